@@ -0,0 +1,59 @@
+package volcano.bench;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.db.Type;
+import volcano.operator.AggregateOperator;
+import volcano.operator.ScanOperator;
+import volcano.operator.aggregate.AggregateFn;
+import volcano.operator.util.Column;
+
+/**
+ * GROUP BY t_k with SUM(t_d) and COUNT(t_id) over 1M rows
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregateBenchmark {
+
+  @Param({"10", "10000", "1000000"})
+  public int groups;
+
+  @Param({"UNIFORM", "ZIPF"})
+  public TableGenerator.Skew skew;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    db = TableGenerator.database(TableGenerator.generate("t", 1_000_000, groups, skew, 1));
+  }
+
+  @Benchmark
+  public long aggregate(Blackhole blackhole) {
+    return Operators.drain(new AggregateOperator(new ScanOperator(db, "t"), Arrays.asList(
+        new Column("t_k", Type.INT, Optional.empty(), true),
+        new Column("t_d", AggregateFn.SUM.resultType(Type.DOUBLE), Optional.of(AggregateFn.SUM), false),
+        new Column("t_id", AggregateFn.COUNT.resultType(Type.INT), Optional.of(AggregateFn.COUNT), false))),
+        blackhole);
+  }
+}
@@ -0,0 +1,52 @@
+package volcano.bench;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.db.Type;
+import volcano.operator.DistinctOperator;
+import volcano.operator.ScanOperator;
+import volcano.operator.util.Column;
+
+/**
+ * DISTINCT t_k over 1M rows
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DistinctBenchmark {
+
+  @Param({"10", "10000", "1000000"})
+  public int keys;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    db = TableGenerator.database(TableGenerator.generate("t", 1_000_000, keys, TableGenerator.Skew.UNIFORM, 1));
+  }
+
+  @Benchmark
+  public long distinct(Blackhole blackhole) {
+    return Operators.drain(new DistinctOperator(new ScanOperator(db, "t"),
+        Collections.singletonList(new Column("t_k", Type.INT, Optional.empty(), false))), blackhole);
+  }
+}
@@ -0,0 +1,79 @@
+package volcano.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.operator.FilterOperator;
+import volcano.operator.Operator;
+import volcano.operator.PipelineCompiler;
+import volcano.operator.ScanOperator;
+import volcano.operator.filter.FilterClause;
+import volcano.operator.filter.FilterLogicalOp;
+
+/**
+ * One clause of every operator over a table of 1M rows with 1000 keys, interpreted and compiled
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+  @Param({"EQ", "NEQ", "GT", "GTE", "LT", "LTE", "BETWEEN", "LIKE", "IN"})
+  public FilterLogicalOp op;
+
+  @Param({"false", "true"})
+  public boolean compiled;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    db = TableGenerator.database(TableGenerator.generate("t", 1_000_000, 1000, TableGenerator.Skew.UNIFORM, 1));
+  }
+
+  // about a tenth of the rows pass, except for the inequality
+  private FilterClause clause() {
+    switch (op) {
+    case EQ:
+    case NEQ:
+      return new FilterClause("t_k", op, 500);
+    case GT:
+    case GTE:
+      return new FilterClause("t_k", op, 900);
+    case LT:
+    case LTE:
+      return new FilterClause("t_k", op, 100);
+    case BETWEEN:
+      return new FilterClause("t_k", op, Arrays.asList(100, 199));
+    case LIKE:
+      return new FilterClause("t_s", op, "k1%");
+    case IN:
+      return new FilterClause("t_k", op, Arrays.asList(3, 141, 592, 653, 589, 793, 238, 462, 643, 383));
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized filter operator [%s]", op));
+    }
+  }
+
+  @Benchmark
+  public long filter(Blackhole blackhole) {
+    Operator filter = new FilterOperator(new ScanOperator(db, "t"), clause());
+    return Operators.drain(compiled ? PipelineCompiler.compile(filter) : filter, blackhole);
+  }
+}
@@ -0,0 +1,57 @@
+package volcano.bench;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.operator.HashJoinOperator;
+import volcano.operator.ScanOperator;
+
+/**
+ * Joins a 1M-row probe table to a build table 1/ratio its size on the build table's unique id, so that every probe
+ * row has one match
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashJoinBenchmark {
+
+  private static final int PROBE_ROWS = 1_000_000;
+
+  @Param({"1", "10", "100", "1000"})
+  public int ratio;
+
+  @Param({"UNIFORM", "ZIPF"})
+  public TableGenerator.Skew skew;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    int buildRows = PROBE_ROWS / ratio;
+    db = TableGenerator.database(TableGenerator.generate("probe", PROBE_ROWS, buildRows, skew, 1),
+        TableGenerator.generate("build", buildRows, buildRows, TableGenerator.Skew.UNIFORM, 2));
+  }
+
+  @Benchmark
+  public long join(Blackhole blackhole) {
+    return Operators.drain(new HashJoinOperator(new ScanOperator(db, "probe"), new ScanOperator(db, "build"),
+        Collections.singletonList("probe_k"), Collections.singletonList("build_id")), blackhole);
+  }
+}
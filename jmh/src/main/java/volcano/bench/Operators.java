@@ -0,0 +1,31 @@
+package volcano.bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.operator.Operator;
+import volcano.operator.batch.RowBatch;
+
+final class Operators {
+
+  private Operators() {
+  }
+
+  /**
+   * Run the operator to completion the way the engine does, a batch at a time
+   *
+   * @return number of rows produced
+   */
+  static long drain(Operator operator, Blackhole blackhole) {
+    RowBatch batch = new RowBatch();
+    long rows = 0;
+    operator.open();
+    while (operator.nextBatch(batch)) {
+      for (int i = 0; i < batch.size(); i++) {
+        blackhole.consume(batch.get(i));
+      }
+      rows += batch.size();
+    }
+    operator.close();
+    return rows;
+  }
+}
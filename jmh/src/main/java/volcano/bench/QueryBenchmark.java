@@ -0,0 +1,72 @@
+package volcano.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.QueryEngine;
+import volcano.ResultCursor;
+
+/**
+ * Whole queries through the in-process parser and planner, over a 1M-row orders table and a 10K-row customers table.
+ * Repeated statements hit the engine's plan cache, as they would in an application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+  public enum Query {
+    FILTER("select orders.orders_id, orders.orders_d from orders where orders.orders_k < 100"),
+    AGGREGATE("select orders.orders_k, sum(orders.orders_d) from orders group by orders.orders_k"),
+    JOIN("select customers.customers_s, count(orders.orders_id) from orders "
+        + "join customers on orders.orders_k = customers.customers_id group by customers.customers_s"),
+    TOP_N("select orders.orders_id, orders.orders_d from orders where orders.orders_d > 500.0 "
+        + "order by orders.orders_d limit 100"),
+    DISTINCT("select distinct orders.orders_s from orders");
+
+    private final String sql;
+
+    Query(String sql) {
+      this.sql = sql;
+    }
+  }
+
+  @Param({"FILTER", "AGGREGATE", "JOIN", "TOP_N", "DISTINCT"})
+  public Query query;
+
+  private QueryEngine engine;
+
+  @Setup
+  public void setUp() {
+    engine = new QueryEngine(TableGenerator.database(
+        TableGenerator.generate("orders", 1_000_000, 10000, TableGenerator.Skew.ZIPF, 1),
+        TableGenerator.generate("customers", 10000, 100, TableGenerator.Skew.UNIFORM, 2)));
+  }
+
+  @Benchmark
+  public long query(Blackhole blackhole) {
+    long rows = 0;
+    try (ResultCursor cursor = engine.query(query.sql)) {
+      while (cursor.hasNext()) {
+        blackhole.consume(cursor.next());
+        rows++;
+      }
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,43 @@
+package volcano.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.operator.ScanOperator;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+  @Param({"100000", "1000000"})
+  public int rows;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    db = TableGenerator.database(TableGenerator.generate("t", rows, 1000, TableGenerator.Skew.UNIFORM, 1));
+  }
+
+  @Benchmark
+  public long scan(Blackhole blackhole) {
+    return Operators.drain(new ScanOperator(db, "t"), blackhole);
+  }
+}
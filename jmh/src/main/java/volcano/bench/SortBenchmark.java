@@ -0,0 +1,50 @@
+package volcano.bench;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.operator.ScanOperator;
+import volcano.operator.SortOperator;
+import volcano.operator.sort.SortOrder;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+  @Param({"100000", "1000000"})
+  public int rows;
+
+  @Param({"t_d", "t_s"})
+  public String column;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    db = TableGenerator.database(TableGenerator.generate("t", rows, 10000, TableGenerator.Skew.UNIFORM, 1));
+  }
+
+  @Benchmark
+  public long sort(Blackhole blackhole) {
+    return Operators.drain(new SortOperator(new ScanOperator(db, "t"), Collections.singletonList(column),
+        Collections.singletonList(SortOrder.ASC)), blackhole);
+  }
+}
@@ -0,0 +1,61 @@
+package volcano.bench;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import volcano.db.Database;
+import volcano.operator.ScanOperator;
+import volcano.operator.SortMergeJoinOperator;
+import volcano.operator.SortOperator;
+import volcano.operator.sort.SortOrder;
+
+/**
+ * The join of {@link HashJoinBenchmark} as a merge join. The other table is stored in id order, so only the 1M-row
+ * table is sorted on its key first
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortMergeJoinBenchmark {
+
+  private static final int LEFT_ROWS = 1_000_000;
+
+  @Param({"1", "10", "100", "1000"})
+  public int ratio;
+
+  @Param({"UNIFORM", "ZIPF"})
+  public TableGenerator.Skew skew;
+
+  private Database db;
+
+  @Setup
+  public void setUp() {
+    int rightRows = LEFT_ROWS / ratio;
+    db = TableGenerator.database(TableGenerator.generate("left", LEFT_ROWS, rightRows, skew, 1),
+        TableGenerator.generate("right", rightRows, rightRows, TableGenerator.Skew.UNIFORM, 2));
+  }
+
+  @Benchmark
+  public long join(Blackhole blackhole) {
+    SortOperator left = new SortOperator(new ScanOperator(db, "left"), Collections.singletonList("left_k"),
+        Collections.singletonList(SortOrder.ASC));
+    return Operators.drain(new SortMergeJoinOperator(left, new ScanOperator(db, "right"),
+        Collections.singletonList("left_k"), Collections.singletonList("right_id")), blackhole);
+  }
+}
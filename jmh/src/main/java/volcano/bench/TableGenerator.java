@@ -0,0 +1,86 @@
+package volcano.bench;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import volcano.db.Database;
+import volcano.db.Row;
+import volcano.db.Table;
+import volcano.db.Type;
+
+/**
+ * Synthetic tables for the benchmarks. Every table has the columns below, named after the table so that columns of
+ * joined tables don't collide, e.g. t_id for table t
+ * <ul>
+ * <li>id INT: the row number</li>
+ * <li>k INT: a key drawn from [0, keys), uniformly or with a Zipf skew towards 0</li>
+ * <li>s STRING: the key as a string, "k" followed by its value</li>
+ * <li>d DOUBLE: uniform in [0, 1000)</li>
+ * <li>b BOOLEAN</li>
+ * <li>n INT: uniform in [0, 1000), null in 10% of the rows</li>
+ * </ul>
+ * Tables built with the same arguments are identical.
+ */
+public final class TableGenerator {
+
+  public enum Skew {
+    UNIFORM,
+    // key i is drawn with probability proportional to 1 / (i + 1)
+    ZIPF
+  }
+
+  private static final List<String> COLUMN_NAMES = Arrays.asList("id", "k", "s", "d", "b", "n");
+  private static final List<Type> COLUMN_TYPES = Arrays.asList(Type.INT, Type.INT, Type.STRING, Type.DOUBLE,
+      Type.BOOLEAN, Type.INT);
+
+  private TableGenerator() {
+  }
+
+  public static Table generate(String name, int rows, int keys, Skew skew, long seed) {
+    if (keys <= 0) {
+      throw new IllegalArgumentException(String.format("Key count must be positive; received %d", keys));
+    }
+    Random random = new Random(seed);
+    double[] zipf = skew == Skew.ZIPF ? zipfDistribution(keys) : null;
+    List<Row> data = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      int k = zipf == null ? random.nextInt(keys) : sample(zipf, random.nextDouble());
+      data.add(new Row(Arrays.asList(i, k, "k" + k, random.nextDouble() * 1000, random.nextBoolean(),
+          random.nextInt(10) == 0 ? null : random.nextInt(1000))));
+    }
+    return new Table(name, COLUMN_NAMES.stream().map(c -> name + "_" + c).collect(toList()), COLUMN_TYPES, data);
+  }
+
+  public static Database database(Table... tables) {
+    Map<String,Table> byName = new HashMap<>();
+    for (Table table : tables) {
+      byName.put(table.getTableName(), table);
+    }
+    return new Database(byName);
+  }
+
+  // cumulative probability of each key
+  private static double[] zipfDistribution(int keys) {
+    double[] cumulative = new double[keys];
+    double total = 0;
+    for (int i = 0; i < keys; i++) {
+      total += 1.0 / (i + 1);
+      cumulative[i] = total;
+    }
+    for (int i = 0; i < keys; i++) {
+      cumulative[i] /= total;
+    }
+    return cumulative;
+  }
+
+  private static int sample(double[] cumulative, double u) {
+    int i = Arrays.binarySearch(cumulative, u);
+    return Math.min(cumulative.length - 1, i >= 0 ? i : -i - 1);
+  }
+}
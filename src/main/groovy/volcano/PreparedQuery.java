@@ -0,0 +1,104 @@
+package volcano;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import volcano.db.Database;
+import volcano.db.Row;
+import volcano.operator.Operator;
+import volcano.operator.profile.OperatorProfile;
+import volcano.operator.profile.ProfilingOperator;
+import volcano.sql.PlanCache;
+import volcano.sql.PreparedPlan;
+import volcano.sql.SqlNormalizer.NormalizedSql;
+
+/**
+ * A statement planned by {@link QueryEngine#prepare(String)}; each execution binds the parameters into a cached
+ * operator tree instead of parsing and planning again. Safe to execute from several threads.
+ */
+public class PreparedQuery {
+
+  private final Database db;
+  private final NormalizedSql statement;
+  private final PlanCache.Entry plan;
+
+  PreparedQuery(Database db, NormalizedSql statement, PlanCache.Entry plan) {
+    this.db = db;
+    this.statement = statement;
+    this.plan = plan;
+  }
+
+  public int getParameterCount() {
+    return statement.getBindParameterCount();
+  }
+
+  public List<Row> execute(Object... parameters) {
+    List<Row> rows = new ArrayList<>();
+    try (ResultCursor cursor = open(parameters)) {
+      cursor.forEachRemaining(rows::add);
+    }
+    return rows;
+  }
+
+  /**
+   * Bind the parameters and return a cursor over the result. The plan is handed back to the cache when the cursor
+   * is closed, which happens on its own once the last row is read; if closing its tree fails, the plan is dropped
+   * instead, so no other execution can share a tree that may still be running.
+   */
+  public ResultCursor open(Object... parameters) {
+    Object[] values = statement.parameters(parameters);
+    PreparedPlan preparedPlan = plan.acquire(db, values);
+    Operator operatorTree;
+    try {
+      operatorTree = preparedPlan.bind(values);
+    } catch (RuntimeException e) {
+      plan.release(preparedPlan);
+      throw e;
+    }
+    return new ResultCursor(operatorTree, () -> plan.release(preparedPlan));
+  }
+
+  public Stream<Row> stream(Object... parameters) {
+    return open(parameters).stream();
+  }
+
+  /**
+   * @return a publisher that runs the statement once per subscriber, delivering rows on the common pool
+   */
+  public Flow.Publisher<Row> publisher(Object... parameters) {
+    return publisher(ForkJoinPool.commonPool(), parameters);
+  }
+
+  public Flow.Publisher<Row> publisher(Executor executor, Object... parameters) {
+    Object[] values = parameters.clone();
+    return new RowPublisher(() -> open(values), executor);
+  }
+
+  /**
+   * @return the operator tree the statement runs, with the parameters bound
+   */
+  public String explain(Object... parameters) {
+    Object[] values = statement.parameters(parameters);
+    PreparedPlan preparedPlan = plan.acquire(db, values);
+    try {
+      Operator operatorTree = preparedPlan.bind(values);
+      return operatorTree.printOperator(0);
+    } finally {
+      plan.release(preparedPlan);
+    }
+  }
+
+  /**
+   * Run the statement to completion, discarding its rows, on a profiled tree planned the same way as the cached one
+   *
+   * @return rows, timings and memory of each operator of the tree
+   */
+  public OperatorProfile explainAnalyze(Object... parameters) {
+    Object[] values = statement.parameters(parameters);
+    return ProfilingOperator.analyze(plan.profile(db, values).bind(values));
+  }
+}
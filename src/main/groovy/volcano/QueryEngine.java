@@ -2,35 +2,144 @@ package volcano;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import volcano.db.Database;
 import volcano.db.Row;
 import volcano.operator.Operator;
+import volcano.operator.profile.OperatorProfile;
+import volcano.operator.profile.ProfilingOperator;
+import volcano.sql.PlanCache;
+import volcano.sql.PlannerOptions;
 import volcano.sql.SqlAstParser;
+import volcano.sql.SqlNormalizer;
+import volcano.sql.SqlNormalizer.NormalizedSql;
+import volcano.sql.SqlSelectNode;
 
 public class QueryEngine {
 
   private final Database db;
   private final SqlAstParser sqlAstParser;
+  private final PlannerOptions options;
+  // only when the parser understands bind parameters
+  private final PlanCache planCache;
 
+  public QueryEngine(Database db) {
+    this(db, PlannerOptions.DEFAULT);
+  }
+
+  public QueryEngine(Database db, PlannerOptions options) {
+    this(db, new SqlAstParser(), options);
+  }
+
+  /**
+   * Parses queries through the SQL AST service instead of in-process
+   */
   public QueryEngine(Database db, String sqlAstParserHostname) {
+    this(db, sqlAstParserHostname, PlannerOptions.DEFAULT);
+  }
+
+  public QueryEngine(Database db, String sqlAstParserHostname, PlannerOptions options) {
+    this(db, new SqlAstParser(sqlAstParserHostname, 7001), options);
+  }
+
+  private QueryEngine(Database db, SqlAstParser sqlAstParser, PlannerOptions options) {
     this.db = db;
-    this.sqlAstParser = new SqlAstParser(sqlAstParserHostname, 7001);
+    this.sqlAstParser = sqlAstParser;
+    this.options = options;
+    this.planCache = sqlAstParser.supportsBindParameters() ? new PlanCache() : null;
   }
 
-  List<Row> executeQuery(String sqlStmt) throws Exception {
-    Operator operatorTree = sqlAstParser.parse(sqlStmt, db);
-    System.out.println(operatorTree.printOperator(0));
-    operatorTree.open();
-    List<Row> rows = new ArrayList<>();
-    while (true) {
-      Row row = operatorTree.next();
-      if (row == null) {
-        break;
+  /**
+   * Plan a statement whose filter values and LIMIT may be {@code ?} placeholders. Statements that only differ in
+   * their literals share a cached plan.
+   */
+  public PreparedQuery prepare(String sql) {
+    if (planCache == null) {
+      throw new UnsupportedOperationException("Prepared statements require the embedded SQL parser");
+    }
+    NormalizedSql statement = SqlNormalizer.normalize(sql);
+    PlanCache.Entry plan = planCache.get(statement.getText(), text -> {
+      try {
+        return sqlAstParser.parseStatement(text, db, options);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalStateException(String.format("Unable to parse %s", sql), e);
       }
-      rows.add(row);
+    });
+    return new PreparedQuery(db, statement, plan);
+  }
+
+  /**
+   * @return a cursor that computes the result as it is read; close it to stop the query early
+   */
+  public ResultCursor query(String sqlStmt) {
+    if (planCache != null) {
+      return prepare(sqlStmt).open();
+    }
+    return new ResultCursor(plan(sqlStmt));
+  }
+
+  public Stream<Row> stream(String sqlStmt) {
+    return query(sqlStmt).stream();
+  }
+
+  /**
+   * @return a publisher that runs the query once per subscriber, delivering rows on the common pool
+   */
+  public Flow.Publisher<Row> publisher(String sqlStmt) {
+    return publisher(sqlStmt, ForkJoinPool.commonPool());
+  }
+
+  public Flow.Publisher<Row> publisher(String sqlStmt, Executor executor) {
+    return new RowPublisher(() -> query(sqlStmt), executor);
+  }
+
+  /**
+   * @return the operator tree the query would run
+   */
+  public String explain(String sqlStmt) {
+    if (planCache != null) {
+      return prepare(sqlStmt).explain();
+    }
+    return plan(sqlStmt).printOperator(0);
+  }
+
+  /**
+   * Run the query, discarding its rows, and report how each operator of its plan performed
+   *
+   * @return the root operator's profile; its toString() renders the whole tree
+   */
+  public OperatorProfile explainAnalyze(String sqlStmt) {
+    if (planCache != null) {
+      return prepare(sqlStmt).explainAnalyze();
+    }
+    return ProfilingOperator.analyze(parse(sqlStmt).toProfiledPlan(db).bind());
+  }
+
+  List<Row> executeQuery(String sqlStmt) {
+    List<Row> rows = new ArrayList<>();
+    try (ResultCursor cursor = query(sqlStmt)) {
+      cursor.forEachRemaining(rows::add);
     }
-    operatorTree.close();
     return rows;
   }
+
+  private Operator plan(String sqlStmt) {
+    return parse(sqlStmt).toOperator(db);
+  }
+
+  private SqlSelectNode parse(String sqlStmt) {
+    try {
+      return sqlAstParser.parseStatement(sqlStmt, db, options);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(String.format("Unable to parse %s", sqlStmt), e);
+    }
+  }
 }
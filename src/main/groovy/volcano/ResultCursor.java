@@ -0,0 +1,104 @@
+package volcano;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import volcano.db.Row;
+import volcano.operator.Operator;
+import volcano.operator.batch.RowBatch;
+
+/**
+ * Pulls a query's result from the root operator one batch at a time. The tree is opened by the first hasNext() and
+ * closed once the last row has been read, or by close() when the caller stops early. Rows returned by next() belong
+ * to the caller. Not thread safe.
+ */
+public class ResultCursor implements Iterator<Row>, AutoCloseable {
+
+  private final Operator root;
+  private final Runnable onClose;
+  private final RowBatch batch;
+  private int position;
+  private boolean opened;
+  private boolean closed;
+
+  public ResultCursor(Operator root) {
+    this(root, null);
+  }
+
+  /**
+   * @param onClose run once after the tree is closed cleanly, e.g. to hand a cached plan back; not run if closing
+   * the tree throws
+   */
+  ResultCursor(Operator root, Runnable onClose) {
+    this.root = root;
+    this.onClose = onClose;
+    this.batch = new RowBatch();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+    if (position < batch.size()) {
+      return true;
+    }
+    try {
+      if (!opened) {
+        opened = true;
+        root.open();
+      }
+      if (root.nextBatch(batch)) {
+        position = 0;
+        return true;
+      }
+    } catch (RuntimeException e) {
+      try {
+        close();
+      } catch (RuntimeException closeFailure) {
+        e.addSuppressed(closeFailure);
+      }
+      throw e;
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public Row next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return batch.get(position++).copy();
+  }
+
+  /**
+   * @return the remaining rows; closing the stream closes the cursor
+   */
+  public Stream<Row> stream() {
+    Spliterator<Row> spliterator = Spliterators.spliteratorUnknownSize(this,
+        Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(this::close);
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    batch.clear();
+    position = 0;
+    if (opened) {
+      root.close();
+    }
+    // skipped if closing failed, since parts of the tree may still be running
+    if (onClose != null) {
+      onClose.run();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package volcano;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import volcano.db.Row;
+
+/**
+ * Publishes a query's rows to {@link Flow.Subscriber}s. Every subscription runs the query on its own cursor, and rows
+ * are only pulled from the operator tree while the subscriber has outstanding demand. Signals are delivered on the
+ * executor, one task at a time per subscription; cancelling closes the tree.
+ */
+public class RowPublisher implements Flow.Publisher<Row> {
+
+  private final Supplier<ResultCursor> query;
+  private final Executor executor;
+
+  /**
+   * @param query opens a new cursor for each subscriber
+   */
+  public RowPublisher(Supplier<ResultCursor> query, Executor executor) {
+    this.query = query;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super Row> subscriber) {
+    Objects.requireNonNull(subscriber);
+    subscriber.onSubscribe(new CursorSubscription(subscriber));
+  }
+
+  private class CursorSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super Row> subscriber;
+    private final AtomicLong demand;
+    // number of times the drain was requested; only the caller that moves it off zero schedules a run
+    private final AtomicInteger pending;
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+
+    // only touched by the drain task
+    private ResultCursor cursor;
+    private boolean done;
+
+    private CursorSubscription(Flow.Subscriber<? super Row> subscriber) {
+      this.subscriber = subscriber;
+      this.demand = new AtomicLong();
+      this.pending = new AtomicInteger();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException(
+            String.format("Subscribers must request a positive number of rows; received %d", n));
+      } else {
+        demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        drain();
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void drain() {
+      if (done) {
+        return;
+      }
+      try {
+        if (cancelled || invalidRequest != null) {
+          finish();
+          if (!cancelled) {
+            subscriber.onError(invalidRequest);
+          }
+          return;
+        }
+        if (cursor == null) {
+          cursor = query.get();
+        }
+        long requested = demand.get();
+        long emitted = 0;
+        while (emitted != requested && !cancelled && cursor.hasNext()) {
+          subscriber.onNext(cursor.next());
+          emitted++;
+          if (emitted == requested) {
+            requested = demand.addAndGet(-emitted);
+            emitted = 0;
+          }
+        }
+        if (emitted != 0) {
+          demand.addAndGet(-emitted);
+        }
+        if (cancelled) {
+          finish();
+        } else if (!cursor.hasNext()) {
+          finish();
+          subscriber.onComplete();
+        }
+      } catch (RuntimeException e) {
+        finish();
+        subscriber.onError(e);
+      }
+    }
+
+    private void finish() {
+      done = true;
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+}
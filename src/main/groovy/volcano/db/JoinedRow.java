@@ -0,0 +1,82 @@
+package volcano.db;
+
+import volcano.db.column.Dictionary;
+
+/**
+ * Zero-copy view of a left row followed by a right row
+ */
+public class JoinedRow extends Row {
+
+  private Row left;
+  private Row right;
+  private int leftSize;
+
+  public JoinedRow() {
+  }
+
+  public JoinedRow(Row left, Row right) {
+    set(left, right);
+  }
+
+  public JoinedRow set(Row left, Row right) {
+    this.left = left;
+    this.right = right;
+    this.leftSize = left.size();
+    return this;
+  }
+
+  @Override
+  public Comparable getAt(int index) {
+    return index < leftSize ? left.getAt(index) : right.getAt(index - leftSize);
+  }
+
+  @Override
+  public int size() {
+    return leftSize + right.size();
+  }
+
+  @Override
+  public boolean isNull(int index) {
+    return index < leftSize ? left.isNull(index) : right.isNull(index - leftSize);
+  }
+
+  @Override
+  public int getInt(int index) {
+    return index < leftSize ? left.getInt(index) : right.getInt(index - leftSize);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return index < leftSize ? left.getDouble(index) : right.getDouble(index - leftSize);
+  }
+
+  @Override
+  public boolean getBoolean(int index) {
+    return index < leftSize ? left.getBoolean(index) : right.getBoolean(index - leftSize);
+  }
+
+  @Override
+  public String getString(int index) {
+    return index < leftSize ? left.getString(index) : right.getString(index - leftSize);
+  }
+
+  @Override
+  public Dictionary getDictionary(int index) {
+    return index < leftSize ? left.getDictionary(index) : right.getDictionary(index - leftSize);
+  }
+
+  @Override
+  public int getCode(int index) {
+    return index < leftSize ? left.getCode(index) : right.getCode(index - leftSize);
+  }
+
+  @Override
+  public long estimatedSizeInBytes() {
+    return 32 + left.estimatedSizeInBytes() + right.estimatedSizeInBytes();
+  }
+
+  @Override
+  public Row copy() {
+    return new JoinedRow(left.copy(), right.copy());
+  }
+}
@@ -0,0 +1,160 @@
+package volcano.db;
+
+import java.util.List;
+
+/**
+ * Reusable row buffer with one typed slot per column. Primitive values are stored unboxed.
+ */
+public class MutableRow extends Row {
+
+  private final Type[] types;
+  // INT values, BOOLEAN values as 0/1, and the raw bits of DOUBLE values
+  private final long[] primitives;
+  private final String[] strings;
+  private final boolean[] nulls;
+
+  public MutableRow(List<Type> types) {
+    this.types = types.toArray(new Type[0]);
+    this.primitives = new long[this.types.length];
+    this.strings = new String[this.types.length];
+    this.nulls = new boolean[this.types.length];
+  }
+
+  @Override
+  public Comparable getAt(int index) {
+    if (nulls[index]) {
+      return null;
+    }
+    switch (types[index]) {
+    case INT:
+      return getInt(index);
+    case DOUBLE:
+      return getDouble(index);
+    case BOOLEAN:
+      return getBoolean(index);
+    case STRING:
+      return strings[index];
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", types[index]));
+    }
+  }
+
+  @Override
+  public int size() {
+    return types.length;
+  }
+
+  @Override
+  public boolean isNull(int index) {
+    return nulls[index];
+  }
+
+  @Override
+  public int getInt(int index) {
+    return (int)primitives[index];
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return Double.longBitsToDouble(primitives[index]);
+  }
+
+  @Override
+  public boolean getBoolean(int index) {
+    return primitives[index] != 0;
+  }
+
+  @Override
+  public String getString(int index) {
+    return strings[index];
+  }
+
+  public void setInt(int index, int value) {
+    primitives[index] = value;
+    nulls[index] = false;
+  }
+
+  public void setDouble(int index, double value) {
+    primitives[index] = Double.doubleToRawLongBits(value);
+    nulls[index] = false;
+  }
+
+  public void setBoolean(int index, boolean value) {
+    primitives[index] = value ? 1 : 0;
+    nulls[index] = false;
+  }
+
+  public void setString(int index, String value) {
+    strings[index] = value;
+    nulls[index] = value == null;
+  }
+
+  public void setNull(int index) {
+    strings[index] = null;
+    nulls[index] = true;
+  }
+
+  public void set(int index, Comparable value) {
+    if (value == null) {
+      setNull(index);
+      return;
+    }
+    Comparable v = types[index].cast(value);
+    switch (types[index]) {
+    case INT:
+      setInt(index, (Integer)v);
+      break;
+    case DOUBLE:
+      setDouble(index, (Double)v);
+      break;
+    case BOOLEAN:
+      setBoolean(index, (Boolean)v);
+      break;
+    case STRING:
+      setString(index, (String)v);
+      break;
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", types[index]));
+    }
+  }
+
+  /**
+   * Copy a value of the same type from another row without boxing it
+   */
+  public void copyFrom(int index, Row source, int sourceIndex) {
+    if (source.isNull(sourceIndex)) {
+      setNull(index);
+      return;
+    }
+    switch (types[index]) {
+    case INT:
+      setInt(index, source.getInt(sourceIndex));
+      break;
+    case DOUBLE:
+      setDouble(index, source.getDouble(sourceIndex));
+      break;
+    case BOOLEAN:
+      setBoolean(index, source.getBoolean(sourceIndex));
+      break;
+    case STRING:
+      setString(index, source.getString(sourceIndex));
+      break;
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", types[index]));
+    }
+  }
+
+  @Override
+  public long estimatedSizeInBytes() {
+    long bytes = 80 + 21L * types.length;
+    for (String s : strings) {
+      bytes += estimatedValueSize(s);
+    }
+    return bytes;
+  }
+
+  @Override
+  public Row copy() {
+    return materialize();
+  }
+}
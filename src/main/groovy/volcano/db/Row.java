@@ -1,10 +1,17 @@
 package volcano.db;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
+import volcano.db.column.Dictionary;
+
+/**
+ * Immutable list-backed row. Operators may also emit reusable rows ({@link TableRow}, {@link MutableRow},
+ * {@link JoinedRow}) whose contents are only valid until the operator's next call; anything that holds on to a
+ * row past that point must {@link #copy()} it.
+ */
 public class Row {
 
   private final List<? extends Comparable> elements;
@@ -13,6 +20,11 @@ public class Row {
     this.elements = elements;
   }
 
+  // subclasses provide their own storage
+  protected Row() {
+    this.elements = null;
+  }
+
   public Comparable getAt(int index) {
     return elements.get(index);
   }
@@ -21,36 +33,131 @@ public class Row {
     return elements.size();
   }
 
+  public boolean isNull(int index) {
+    return getAt(index) == null;
+  }
+
+  public int getInt(int index) {
+    return ((Number)getAt(index)).intValue();
+  }
+
+  public double getDouble(int index) {
+    return ((Number)getAt(index)).doubleValue();
+  }
+
+  public boolean getBoolean(int index) {
+    return (Boolean)getAt(index);
+  }
+
+  public String getString(int index) {
+    return (String)getAt(index);
+  }
+
+  /**
+   * @return dictionary of the STRING column if the row reads it from dictionary-encoded storage, else null
+   */
+  public Dictionary getDictionary(int index) {
+    return null;
+  }
+
+  /**
+   * @return code of the value in {@link #getDictionary(int)}; only supported where that isn't null
+   */
+  public int getCode(int index) {
+    throw new UnsupportedOperationException(String.format("Column %d is not dictionary-encoded", index));
+  }
+
+  /**
+   * @return a row whose contents won't change, safe to hold on to
+   */
+  public Row copy() {
+    return this;
+  }
+
+  /**
+   * @return rough heap footprint of the row, used to enforce operator memory budgets
+   */
+  public long estimatedSizeInBytes() {
+    // row, list and backing array, then each boxed value
+    long bytes = 48 + 4L * size();
+    for (int i = 0; i < size(); i++) {
+      bytes += estimatedValueSize(getAt(i));
+    }
+    return bytes;
+  }
+
+  protected static long estimatedValueSize(Comparable value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof String) {
+      return 40 + 2L * ((String)value).length();
+    } else {
+      return 16;
+    }
+  }
+
   public Row combine(Row otherRow) {
     List<Comparable> l = new ArrayList<>();
-    l.addAll(elements);
-    l.addAll(otherRow.elements);
+    for (int i = 0; i < size(); i++) {
+      l.add(getAt(i));
+    }
+    for (int i = 0; i < otherRow.size(); i++) {
+      l.add(otherRow.getAt(i));
+    }
     return new Row(l);
   }
 
+  protected Row materialize() {
+    Comparable[] values = new Comparable[size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = getAt(i);
+    }
+    return new Row(Arrays.asList(values));
+  }
+
   @Override
   public String toString() {
-    return elements.stream().map(e -> {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < size(); i++) {
+      if (i > 0) {
+        sb.append(",");
+      }
+      Comparable e = getAt(i);
       if (e instanceof String) {
-        return "'" + e + "'";
+        sb.append("'").append(e).append("'");
       } else {
-        return ((Comparable)e).toString();
+        sb.append(e);
       }
-    }).collect(Collectors.joining(","));
+    }
+    return sb.toString();
   }
 
+  // rows are equal when their values are, regardless of how each row stores them
   @Override
   public boolean equals(Object o) {
     if (this == o)
       return true;
-    if (o == null || getClass() != o.getClass())
+    if (!(o instanceof Row))
       return false;
     Row row = (Row)o;
-    return Objects.equals(elements, row.elements);
+    if (size() != row.size()) {
+      return false;
+    }
+    for (int i = 0; i < size(); i++) {
+      if (!Objects.equals(getAt(i), row.getAt(i))) {
+        return false;
+      }
+    }
+    return true;
   }
 
+  // same value as Objects.hash(elements) for a list-backed row
   @Override
   public int hashCode() {
-    return Objects.hash(elements);
+    int listHash = 1;
+    for (int i = 0; i < size(); i++) {
+      listHash = 31 * listHash + Objects.hashCode(getAt(i));
+    }
+    return 31 + listHash;
   }
 }
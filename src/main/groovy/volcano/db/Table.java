@@ -1,15 +1,40 @@
 package volcano.db;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import volcano.db.column.ColumnVector;
+import volcano.db.column.ColumnVectorBuilder;
+import volcano.db.column.ZoneMap;
+import volcano.db.index.HashIndex;
+import volcano.db.index.Index;
+import volcano.db.index.IndexType;
+import volcano.db.index.SortedIndex;
+import volcano.db.stats.ColumnStatistics;
+import volcano.db.stats.TableStatistics;
+
+/**
+ * Column-oriented table: each column's values are held in a primitive-typed {@link ColumnVector}
+ */
 public class Table {
 
+  // rows per zone map block; a multiple of the batch size, so aligned batches never straddle two blocks
+  public static final int BLOCK_SIZE = 4096;
+
   private final List<String> columnNames;
   private final List<Type> columnTypes;
-  private final List<Row> rows;
+  private final ColumnVector[] columns;
+  private final ZoneMap[] zoneMaps;
+  private final int rowCount;
   private final String tableName;
+  private final TableStatistics statistics;
+  private final List<Index> indexes;
 
   public Table(String tableName, List<String> columnNames, List<Type> columnTypes, List<Row> rows) {
     this.tableName = tableName;
@@ -18,6 +43,10 @@ public class Table {
           String.format("Mismatched column names [%d] and types [%d]", columnNames.size(),
               columnTypes.size()));
     }
+    ColumnVectorBuilder[] builders = new ColumnVectorBuilder[columnTypes.size()];
+    for (int c = 0; c < builders.length; c++) {
+      builders[c] = ColumnVectorBuilder.forType(columnTypes.get(c));
+    }
     for (int i = 0; i < rows.size(); i++) {
       Row r = rows.get(i);
       if (r.size() != columnNames.size()) {
@@ -25,14 +54,112 @@ public class Table {
             String.format("Row %d has incorrect number of elements, expected %d but was %d", i,
                 columnNames.size(), r.size()));
       }
+      for (int c = 0; c < builders.length; c++) {
+        builders[c].append(r.getAt(c));
+      }
     }
     this.columnNames = columnNames;
     this.columnTypes = columnTypes;
-    this.rows = rows;
+    this.columns = Arrays.stream(builders).map(ColumnVectorBuilder::build).toArray(ColumnVector[]::new);
+    this.rowCount = rows.size();
+    this.zoneMaps = Arrays.stream(columns).map(c -> ZoneMap.build(c, BLOCK_SIZE)).toArray(ZoneMap[]::new);
+    this.statistics = TableStatistics.compute(this);
+    this.indexes = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Table over column vectors that are already built, such as ones read from a file, with their zone maps and
+   * statistics
+   */
+  public Table(String tableName, List<String> columnNames, List<Type> columnTypes, ColumnVector[] columns,
+      ZoneMap[] zoneMaps, TableStatistics statistics) {
+    if (columnNames.size() != columnTypes.size() || columnNames.size() != columns.length) {
+      throw new IllegalArgumentException(
+          String.format("Mismatched column names [%d], types [%d] and vectors [%d]", columnNames.size(),
+              columnTypes.size(), columns.length));
+    }
+    this.tableName = tableName;
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.columns = columns;
+    this.rowCount = statistics.getRowCount();
+    this.zoneMaps = zoneMaps;
+    this.statistics = statistics;
+    this.indexes = new CopyOnWriteArrayList<>();
   }
 
+  /**
+   * Materializes each row from the column vectors; scans should prefer {@link #column(int)}
+   */
   public Iterator<Row> rows() {
-    return rows.iterator();
+    return new Iterator<Row>() {
+      private int position = 0;
+
+      @Override
+      public boolean hasNext() {
+        return position < rowCount;
+      }
+
+      @Override
+      public Row next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return row(position++);
+      }
+    };
+  }
+
+  public Row row(int position) {
+    Comparable[] elements = new Comparable[columns.length];
+    for (int c = 0; c < columns.length; c++) {
+      elements[c] = columns[c].get(position);
+    }
+    return new Row(Arrays.asList(elements));
+  }
+
+  public ColumnVector column(int fieldIndex) {
+    return columns[fieldIndex];
+  }
+
+  public ZoneMap zoneMap(int fieldIndex) {
+    return zoneMaps[fieldIndex];
+  }
+
+  /**
+   * Index a column's values; the table never changes after loading, so the index is built once, here
+   */
+  public synchronized Index createIndex(String columnName, IndexType type) {
+    int fieldIndex = fieldIdx(columnName);
+    if (indexes.stream().anyMatch(i -> i.getColumnName().equals(columnName) && i.getType() == type)) {
+      throw new IllegalArgumentException(
+          String.format("%s index on %s.%s already exists", type, tableName, columnName));
+    }
+    Index index = type == IndexType.HASH ? HashIndex.build(columnName, columns[fieldIndex])
+        : SortedIndex.build(columnName, columns[fieldIndex]);
+    indexes.add(index);
+    return index;
+  }
+
+  /**
+   * @param ranges whether the index has to answer range lookups; a hash index is preferred for equality
+   */
+  public Optional<Index> findIndex(String columnName, boolean ranges) {
+    return indexes.stream()
+        .filter(i -> i.getColumnName().equals(columnName) && (i.supportsRanges() || !ranges))
+        .min((a, b) -> Boolean.compare(a.supportsRanges(), b.supportsRanges()));
+  }
+
+  public List<Index> getIndexes() {
+    return indexes;
+  }
+
+  public int rowCount() {
+    return rowCount;
+  }
+
+  public String getTableName() {
+    return tableName;
   }
 
   public int fieldIdx(String columnName) {
@@ -59,6 +186,27 @@ public class Table {
     return columnTypes;
   }
 
+  /**
+   * @return statistics gathered when the table was loaded; tables are immutable, so they never go stale
+   */
+  public TableStatistics getStatistics() {
+    return statistics;
+  }
+
+  public ColumnStatistics columnStatistics(String columnName) {
+    return statistics.column(fieldIdx(columnName));
+  }
+
+  public long sizeInBytes() {
+    return Arrays.stream(columns).mapToLong(ColumnVector::sizeInBytes).sum();
+  }
+
+  private List<Row> materializeRows() {
+    List<Row> rows = new ArrayList<>(rowCount);
+    rows().forEachRemaining(rows::add);
+    return rows;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -73,7 +221,7 @@ public class Table {
     sb.append(columnTypes.toString());
     sb.append(",");
     sb.append("rows:");
-    sb.append(rows.toString());
+    sb.append(materializeRows().toString());
     sb.append("]");
     return sb.toString();
   }
@@ -86,11 +234,11 @@ public class Table {
       return false;
     Table table = (Table)o;
     return Objects.equals(columnNames, table.columnNames) && Objects.equals(columnTypes, table.columnTypes) &&
-        Objects.equals(rows, table.rows);
+        rowCount == table.rowCount && Objects.equals(materializeRows(), table.materializeRows());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(columnNames, columnTypes, rows);
+    return Objects.hash(columnNames, columnTypes, rowCount);
   }
 }
@@ -0,0 +1,124 @@
+package volcano.db;
+
+import volcano.db.column.ColumnVector;
+import volcano.db.column.Dictionary;
+import volcano.db.column.DictionaryEncodedVector;
+
+/**
+ * Cursor over one position of a {@link Table}; values are read straight from the column vectors.
+ * Scans reposition the same instance instead of materializing each row.
+ */
+public class TableRow extends Row {
+
+  private final Table table;
+  // table column of each of the row's columns; null for all of them, in table order
+  private final int[] columnIndexes;
+  private final ColumnVector[] columns;
+  // column as a DictionaryEncodedVector, or null if it isn't one
+  private final DictionaryEncodedVector[] dictionaryColumns;
+  private int position;
+
+  public TableRow(Table table) {
+    this(table, 0);
+  }
+
+  public TableRow(Table table, int position) {
+    this(table, null, position);
+  }
+
+  /**
+   * Cursor over only some of the table's columns, e.g. a projection
+   */
+  public TableRow(Table table, int[] columnIndexes, int position) {
+    this.table = table;
+    this.columnIndexes = columnIndexes;
+    this.columns = new ColumnVector[columnIndexes == null ? table.getColumnNames().size() : columnIndexes.length];
+    for (int c = 0; c < columns.length; c++) {
+      columns[c] = table.column(columnIndexes == null ? c : columnIndexes[c]);
+    }
+    this.dictionaryColumns = new DictionaryEncodedVector[columns.length];
+    for (int c = 0; c < columns.length; c++) {
+      if (columns[c] instanceof DictionaryEncodedVector) {
+        dictionaryColumns[c] = (DictionaryEncodedVector)columns[c];
+      }
+    }
+    this.position = position;
+  }
+
+  private TableRow(TableRow row, int position) {
+    this.table = row.table;
+    this.columnIndexes = row.columnIndexes;
+    this.columns = row.columns;
+    this.dictionaryColumns = row.dictionaryColumns;
+    this.position = position;
+  }
+
+  public TableRow setPosition(int position) {
+    this.position = position;
+    return this;
+  }
+
+  public int getPosition() {
+    return position;
+  }
+
+  @Override
+  public Comparable getAt(int index) {
+    return columns[index].get(position);
+  }
+
+  @Override
+  public int size() {
+    return columns.length;
+  }
+
+  @Override
+  public boolean isNull(int index) {
+    return columns[index].isNull(position);
+  }
+
+  @Override
+  public int getInt(int index) {
+    return columns[index].getInt(position);
+  }
+
+  @Override
+  public double getDouble(int index) {
+    return columns[index].getDouble(position);
+  }
+
+  @Override
+  public boolean getBoolean(int index) {
+    return columns[index].getBoolean(position);
+  }
+
+  @Override
+  public String getString(int index) {
+    return columns[index].getString(position);
+  }
+
+  @Override
+  public Dictionary getDictionary(int index) {
+    return dictionaryColumns[index] == null ? null : dictionaryColumns[index].getDictionary();
+  }
+
+  @Override
+  public int getCode(int index) {
+    if (dictionaryColumns[index] == null) {
+      return super.getCode(index);
+    }
+    return dictionaryColumns[index].getCode(position);
+  }
+
+  // values stay in the table's column vectors
+  @Override
+  public long estimatedSizeInBytes() {
+    return 32;
+  }
+
+  // table data never changes, so pinning the position is enough
+  @Override
+  public Row copy() {
+    return new TableRow(this, position);
+  }
+}
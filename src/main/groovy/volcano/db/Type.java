@@ -6,14 +6,16 @@ public enum Type {
   // needed to handle values from SQL service being mis-typed by GSON
   // could use Jackson to avoid this
   public Comparable cast(Object o) {
-    if (this == DOUBLE) {
-      if (o instanceof Integer) {
-        return ((Integer)o).doubleValue();
+    if (o == null) {
+      return null;
+    } else if (this == DOUBLE) {
+      if (o instanceof Number) {
+        return ((Number)o).doubleValue();
       }
       return (double)o;
     } else if (this == INT) {
-      if (o instanceof Double) {
-        return ((Double)o).intValue();
+      if (o instanceof Number) {
+        return ((Number)o).intValue();
       }
       return (int)o;
     } else if (this == BOOLEAN) {
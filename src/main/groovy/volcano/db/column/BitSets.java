@@ -0,0 +1,13 @@
+package volcano.db.column;
+
+import java.util.BitSet;
+
+final class BitSets {
+
+  private BitSets() {
+  }
+
+  static long sizeInBytes(BitSet bits) {
+    return bits == null ? 0 : bits.size() / 8;
+  }
+}
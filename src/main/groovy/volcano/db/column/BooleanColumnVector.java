@@ -0,0 +1,43 @@
+package volcano.db.column;
+
+import java.util.BitSet;
+
+import volcano.db.Type;
+
+public class BooleanColumnVector implements ColumnVector {
+
+  private final BitSet values;
+  private final int size;
+  private final BitSet nulls;
+
+  public BooleanColumnVector(BitSet values, int size, BitSet nulls) {
+    this.values = values;
+    this.size = size;
+    this.nulls = nulls;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.BOOLEAN;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public boolean getBoolean(int position) {
+    return values.get(position);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return BitSets.sizeInBytes(values) + BitSets.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,58 @@
+package volcano.db.column;
+
+import volcano.db.Type;
+
+/**
+ * Read-only storage for the values of a single table column, addressed by row position.
+ * Only the typed accessor matching {@link #getType()} is supported; {@link #get(int)} boxes the value.
+ */
+public interface ColumnVector {
+
+  Type getType();
+
+  int size();
+
+  boolean isNull(int position);
+
+  default int getInt(int position) {
+    throw new UnsupportedOperationException(String.format("Cannot read INT from %s column", getType()));
+  }
+
+  default double getDouble(int position) {
+    throw new UnsupportedOperationException(String.format("Cannot read DOUBLE from %s column", getType()));
+  }
+
+  default boolean getBoolean(int position) {
+    throw new UnsupportedOperationException(String.format("Cannot read BOOLEAN from %s column", getType()));
+  }
+
+  default String getString(int position) {
+    throw new UnsupportedOperationException(String.format("Cannot read STRING from %s column", getType()));
+  }
+
+  /**
+   * @return boxed value at position, or null
+   */
+  default Comparable get(int position) {
+    if (isNull(position)) {
+      return null;
+    }
+    switch (getType()) {
+    case INT:
+      return getInt(position);
+    case DOUBLE:
+      return getDouble(position);
+    case BOOLEAN:
+      return getBoolean(position);
+    case STRING:
+      return getString(position);
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", getType()));
+    }
+  }
+
+  /**
+   * @return approximate number of bytes used to store the column's values
+   */
+  long sizeInBytes();
+}
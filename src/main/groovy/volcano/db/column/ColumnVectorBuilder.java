@@ -0,0 +1,171 @@
+package volcano.db.column;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import volcano.db.Type;
+
+/**
+ * Accumulates the values of one column, in row order, into a {@link ColumnVector}
+ */
+public abstract class ColumnVectorBuilder {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  protected int size;
+  protected BitSet nulls;
+
+  public static ColumnVectorBuilder forType(Type type) {
+    switch (type) {
+    case INT:
+      return new IntVectorBuilder();
+    case DOUBLE:
+      return new DoubleVectorBuilder();
+    case BOOLEAN:
+      return new BooleanVectorBuilder();
+    case STRING:
+      return new StringVectorBuilder();
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+
+  public void append(Object value) {
+    if (value == null) {
+      if (nulls == null) {
+        nulls = new BitSet();
+      }
+      nulls.set(size);
+      appendDefault();
+    } else {
+      appendValue(value);
+    }
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public abstract ColumnVector build();
+
+  protected abstract void appendDefault();
+
+  protected abstract void appendValue(Object value);
+
+  private static int grow(int capacity, int required) {
+    return Math.max(required, Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1)));
+  }
+
+  private static class IntVectorBuilder extends ColumnVectorBuilder {
+    private int[] values = new int[0];
+
+    @Override
+    protected void appendDefault() {
+      appendInt(0);
+    }
+
+    @Override
+    protected void appendValue(Object value) {
+      appendInt((Integer)Type.INT.cast(value));
+    }
+
+    private void appendInt(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(values.length, size + 1));
+      }
+      values[size] = value;
+    }
+
+    @Override
+    public ColumnVector build() {
+      return new IntColumnVector(Arrays.copyOf(values, size), size, nulls);
+    }
+  }
+
+  private static class DoubleVectorBuilder extends ColumnVectorBuilder {
+    private double[] values = new double[0];
+
+    @Override
+    protected void appendDefault() {
+      appendDouble(0);
+    }
+
+    @Override
+    protected void appendValue(Object value) {
+      appendDouble((Double)Type.DOUBLE.cast(value));
+    }
+
+    private void appendDouble(double value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(values.length, size + 1));
+      }
+      values[size] = value;
+    }
+
+    @Override
+    public ColumnVector build() {
+      return new DoubleColumnVector(Arrays.copyOf(values, size), size, nulls);
+    }
+  }
+
+  private static class BooleanVectorBuilder extends ColumnVectorBuilder {
+    private final BitSet values = new BitSet();
+
+    @Override
+    protected void appendDefault() {
+    }
+
+    @Override
+    protected void appendValue(Object value) {
+      if ((Boolean)Type.BOOLEAN.cast(value)) {
+        values.set(size);
+      }
+    }
+
+    @Override
+    public ColumnVector build() {
+      return new BooleanColumnVector(values, size, nulls);
+    }
+  }
+
+  private static class StringVectorBuilder extends ColumnVectorBuilder {
+    private int[] offsets = new int[] {0};
+    private byte[] bytes = new byte[0];
+
+    @Override
+    protected void appendDefault() {
+      appendBytes(new byte[0]);
+    }
+
+    @Override
+    protected void appendValue(Object value) {
+      appendBytes(((String)Type.STRING.cast(value)).getBytes(UTF_8));
+    }
+
+    private void appendBytes(byte[] value) {
+      int start = offsets[size];
+      if (start + value.length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, grow(bytes.length, start + value.length));
+      }
+      System.arraycopy(value, 0, bytes, start, value.length);
+      if (size + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, grow(offsets.length, size + 2));
+      }
+      offsets[size + 1] = start + value.length;
+    }
+
+    /**
+     * @return the column dictionary-encoded if that makes it smaller
+     */
+    @Override
+    public ColumnVector build() {
+      ColumnVector strings = new StringColumnVector(Arrays.copyOf(offsets, size + 1),
+          Arrays.copyOf(bytes, offsets[size]), size, nulls);
+      ColumnVector encoded = DictionaryColumnVector.encode(strings);
+      return encoded == null ? strings : encoded;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package volcano.db.column;
+
+import java.util.Arrays;
+
+/**
+ * Distinct values of a dictionary-encoded STRING column, sorted, so that a value's code is its index and codes
+ * order the same way as the values. Each value's hash code is kept alongside it.
+ */
+public class Dictionary {
+
+  // String object, its bytes and the reference to it, roughly
+  private static final int ENTRY_OVERHEAD_BYTES = 56;
+
+  private final String[] values;
+  private final int[] hashes;
+
+  /**
+   * @param values distinct values in ascending order
+   */
+  public Dictionary(String[] values) {
+    this.values = values;
+    this.hashes = Arrays.stream(values).mapToInt(String::hashCode).toArray();
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  public String value(int code) {
+    return values[code];
+  }
+
+  /**
+   * @return the value's String.hashCode()
+   */
+  public int hash(int code) {
+    return hashes[code];
+  }
+
+  /**
+   * @return code of the value, or (-(insertion point) - 1) if it isn't in the dictionary, as for
+   * {@link Arrays#binarySearch}
+   */
+  public int find(String value) {
+    return Arrays.binarySearch(values, value);
+  }
+
+  public long sizeInBytes() {
+    long bytes = 0;
+    for (String value : values) {
+      bytes += entrySizeInBytes(value);
+    }
+    return bytes;
+  }
+
+  static long entrySizeInBytes(String value) {
+    return ENTRY_OVERHEAD_BYTES + 4 + value.length();
+  }
+}
@@ -0,0 +1,100 @@
+package volcano.db.column;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import volcano.db.Type;
+
+/**
+ * STRING column of dictionary codes; nulls have code 0
+ */
+public class DictionaryColumnVector implements DictionaryEncodedVector {
+
+  private final Dictionary dictionary;
+  private final int[] codes;
+  private final int size;
+  private final BitSet nulls;
+
+  public DictionaryColumnVector(Dictionary dictionary, int[] codes, int size, BitSet nulls) {
+    this.dictionary = dictionary;
+    this.codes = codes;
+    this.size = size;
+    this.nulls = nulls;
+  }
+
+  /**
+   * @return the STRING column dictionary-encoded, or null if that wouldn't make it smaller, i.e. if too few of its
+   * values repeat
+   */
+  public static DictionaryColumnVector encode(ColumnVector column) {
+    int size = column.size();
+    long limit = column.sizeInBytes() - 4L * size;
+    Map<String,Integer> ids = new HashMap<>();
+    int[] codes = new int[size];
+    BitSet nulls = null;
+    long dictionaryBytes = 0;
+    for (int i = 0; i < size; i++) {
+      if (column.isNull(i)) {
+        if (nulls == null) {
+          nulls = new BitSet();
+        }
+        nulls.set(i);
+        continue;
+      }
+      String value = column.getString(i);
+      Integer id = ids.get(value);
+      if (id == null) {
+        dictionaryBytes += Dictionary.entrySizeInBytes(value);
+        if (dictionaryBytes >= limit) {
+          return null;
+        }
+        id = ids.size();
+        ids.put(value, id);
+      }
+      codes[i] = id;
+    }
+    // renumber in value order
+    String[] values = ids.keySet().toArray(new String[0]);
+    Arrays.sort(values);
+    int[] sortedCodes = new int[values.length];
+    for (int code = 0; code < values.length; code++) {
+      sortedCodes[ids.get(values[code])] = code;
+    }
+    for (int i = 0; i < size; i++) {
+      codes[i] = nulls != null && nulls.get(i) ? 0 : sortedCodes[codes[i]];
+    }
+    return new DictionaryColumnVector(new Dictionary(values), codes, size, nulls);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.STRING;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public Dictionary getDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public int getCode(int position) {
+    return codes[position];
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * codes.length + dictionary.sizeInBytes() + BitSets.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,20 @@
+package volcano.db.column;
+
+/**
+ * STRING column stored as a code per row into a {@link Dictionary}. Values read through
+ * {@link #getString(int)} are the dictionary's own instances, so reading them doesn't allocate.
+ */
+public interface DictionaryEncodedVector extends ColumnVector {
+
+  Dictionary getDictionary();
+
+  /**
+   * @return the value's code; undefined for a null
+   */
+  int getCode(int position);
+
+  @Override
+  default String getString(int position) {
+    return getDictionary().value(getCode(position));
+  }
+}
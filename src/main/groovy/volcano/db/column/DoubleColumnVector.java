@@ -0,0 +1,43 @@
+package volcano.db.column;
+
+import java.util.BitSet;
+
+import volcano.db.Type;
+
+public class DoubleColumnVector implements ColumnVector {
+
+  private final double[] values;
+  private final int size;
+  private final BitSet nulls;
+
+  public DoubleColumnVector(double[] values, int size, BitSet nulls) {
+    this.values = values;
+    this.size = size;
+    this.nulls = nulls;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.DOUBLE;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public double getDouble(int position) {
+    return values[position];
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 8L * values.length + BitSets.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,43 @@
+package volcano.db.column;
+
+import java.util.BitSet;
+
+import volcano.db.Type;
+
+public class IntColumnVector implements ColumnVector {
+
+  private final int[] values;
+  private final int size;
+  private final BitSet nulls;
+
+  public IntColumnVector(int[] values, int size, BitSet nulls) {
+    this.values = values;
+    this.size = size;
+    this.nulls = nulls;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.INT;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public int getInt(int position) {
+    return values[position];
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * values.length + BitSets.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,34 @@
+package volcano.db.column;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Bitmap stored as little-endian 64-bit words; bit i is bit i % 64 of word i / 64
+ */
+final class MappedBitmap {
+
+  private final LongBuffer words;
+
+  MappedBitmap(ByteBuffer buffer) {
+    this.words = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+  }
+
+  // null for an empty buffer, meaning no bit is set
+  static MappedBitmap wrap(ByteBuffer buffer) {
+    return buffer == null || buffer.capacity() == 0 ? null : new MappedBitmap(buffer);
+  }
+
+  boolean get(int position) {
+    return ((words.get(position >>> 6) >>> position) & 1L) != 0;
+  }
+
+  long sizeInBytes() {
+    return 8L * words.capacity();
+  }
+
+  static long sizeInBytes(MappedBitmap bitmap) {
+    return bitmap == null ? 0 : bitmap.sizeInBytes();
+  }
+}
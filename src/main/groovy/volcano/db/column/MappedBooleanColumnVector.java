@@ -0,0 +1,50 @@
+package volcano.db.column;
+
+import java.nio.ByteBuffer;
+
+import volcano.db.Type;
+
+/**
+ * BOOLEAN column read in place from a buffer, typically a file mapped into memory
+ */
+public class MappedBooleanColumnVector implements ColumnVector {
+
+  private final MappedBitmap values;
+  private final int size;
+  private final MappedBitmap nulls;
+
+  /**
+   * @param values bitmap of the true values
+   * @param nulls null bitmap, or null or empty if no value is null
+   */
+  public MappedBooleanColumnVector(ByteBuffer values, int size, ByteBuffer nulls) {
+    this.values = MappedBitmap.wrap(values);
+    this.size = size;
+    this.nulls = MappedBitmap.wrap(nulls);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.BOOLEAN;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public boolean getBoolean(int position) {
+    return values != null && values.get(position);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return MappedBitmap.sizeInBytes(values) + MappedBitmap.sizeInBytes(nulls);
+  }
+}
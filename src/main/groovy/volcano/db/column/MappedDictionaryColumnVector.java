@@ -0,0 +1,60 @@
+package volcano.db.column;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import volcano.db.Type;
+
+/**
+ * Dictionary-encoded STRING column whose codes are read in place from a buffer, typically a file mapped into
+ * memory. The dictionary itself is small and is held on the heap.
+ */
+public class MappedDictionaryColumnVector implements DictionaryEncodedVector {
+
+  private final Dictionary dictionary;
+  private final IntBuffer codes;
+  private final int size;
+  private final MappedBitmap nulls;
+
+  /**
+   * @param codes little-endian codes, 4 bytes each
+   * @param nulls null bitmap, or null or empty if no value is null
+   */
+  public MappedDictionaryColumnVector(Dictionary dictionary, ByteBuffer codes, int size, ByteBuffer nulls) {
+    this.dictionary = dictionary;
+    this.codes = codes.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    this.size = size;
+    this.nulls = MappedBitmap.wrap(nulls);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.STRING;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public Dictionary getDictionary() {
+    return dictionary;
+  }
+
+  @Override
+  public int getCode(int position) {
+    return codes.get(position);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * size + dictionary.sizeInBytes() + MappedBitmap.sizeInBytes(nulls);
+  }
+}
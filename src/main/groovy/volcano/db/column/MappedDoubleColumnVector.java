@@ -0,0 +1,52 @@
+package volcano.db.column;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import volcano.db.Type;
+
+/**
+ * DOUBLE column read in place from a buffer, typically a file mapped into memory
+ */
+public class MappedDoubleColumnVector implements ColumnVector {
+
+  private final DoubleBuffer values;
+  private final int size;
+  private final MappedBitmap nulls;
+
+  /**
+   * @param values little-endian values, 8 bytes each
+   * @param nulls null bitmap, or null or empty if no value is null
+   */
+  public MappedDoubleColumnVector(ByteBuffer values, int size, ByteBuffer nulls) {
+    this.values = values.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    this.size = size;
+    this.nulls = MappedBitmap.wrap(nulls);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.DOUBLE;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public double getDouble(int position) {
+    return values.get(position);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 8L * size + MappedBitmap.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,52 @@
+package volcano.db.column;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import volcano.db.Type;
+
+/**
+ * INT column read in place from a buffer, typically a file mapped into memory
+ */
+public class MappedIntColumnVector implements ColumnVector {
+
+  private final IntBuffer values;
+  private final int size;
+  private final MappedBitmap nulls;
+
+  /**
+   * @param values little-endian values, 4 bytes each
+   * @param nulls null bitmap, or null or empty if no value is null
+   */
+  public MappedIntColumnVector(ByteBuffer values, int size, ByteBuffer nulls) {
+    this.values = values.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    this.size = size;
+    this.nulls = MappedBitmap.wrap(nulls);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.INT;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public int getInt(int position) {
+    return values.get(position);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * size + MappedBitmap.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,62 @@
+package volcano.db.column;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import volcano.db.Type;
+
+/**
+ * STRING column read in place from a buffer, typically a file mapped into memory; laid out like a
+ * {@link StringColumnVector}, with value i spanning offsets[i] until offsets[i + 1] of the bytes
+ */
+public class MappedStringColumnVector implements ColumnVector {
+
+  private final IntBuffer offsets;
+  private final ByteBuffer bytes;
+  private final int size;
+  private final MappedBitmap nulls;
+
+  /**
+   * @param offsets size + 1 little-endian offsets into bytes
+   * @param bytes UTF-8 bytes of all values laid end to end
+   * @param nulls null bitmap, or null or empty if no value is null
+   */
+  public MappedStringColumnVector(ByteBuffer offsets, ByteBuffer bytes, int size, ByteBuffer nulls) {
+    this.offsets = offsets.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    this.bytes = bytes;
+    this.size = size;
+    this.nulls = MappedBitmap.wrap(nulls);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.STRING;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public String getString(int position) {
+    int start = offsets.get(position);
+    byte[] value = new byte[offsets.get(position + 1) - start];
+    // an absolute bulk get would need Java 13; a duplicate keeps concurrent readers from sharing a position
+    bytes.duplicate().position(start).get(value);
+    return new String(value, UTF_8);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * (size + 1) + bytes.capacity() + MappedBitmap.sizeInBytes(nulls);
+  }
+}
@@ -0,0 +1,51 @@
+package volcano.db.column;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.BitSet;
+
+import volcano.db.Type;
+
+/**
+ * UTF-8 bytes of all values laid end to end; value i spans offsets[i] until offsets[i + 1]
+ */
+public class StringColumnVector implements ColumnVector {
+
+  private final int[] offsets;
+  private final byte[] bytes;
+  private final int size;
+  private final BitSet nulls;
+
+  public StringColumnVector(int[] offsets, byte[] bytes, int size, BitSet nulls) {
+    this.offsets = offsets;
+    this.bytes = bytes;
+    this.size = size;
+    this.nulls = nulls;
+  }
+
+  @Override
+  public Type getType() {
+    return Type.STRING;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isNull(int position) {
+    return nulls != null && nulls.get(position);
+  }
+
+  @Override
+  public String getString(int position) {
+    int start = offsets[position];
+    return new String(bytes, start, offsets[position + 1] - start, UTF_8);
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * offsets.length + bytes.length + BitSets.sizeInBytes(nulls);
+  }
+}
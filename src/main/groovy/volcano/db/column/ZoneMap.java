@@ -0,0 +1,129 @@
+package volcano.db.column;
+
+/**
+ * Minimum, maximum and null count of each fixed-size block of a column's rows. A scan with a range filter uses it
+ * to skip blocks whose values all fall outside the range, which on data appended in key order is most of them.
+ */
+public class ZoneMap {
+
+  private final int blockSize;
+  private final int rowCount;
+  private final Comparable[] mins;
+  private final Comparable[] maxes;
+  private final int[] nullCounts;
+
+  /**
+   * @param mins each block's smallest non-null value, or null if the block holds only nulls
+   */
+  public ZoneMap(int blockSize, int rowCount, Comparable[] mins, Comparable[] maxes, int[] nullCounts) {
+    this.blockSize = blockSize;
+    this.rowCount = rowCount;
+    this.mins = mins;
+    this.maxes = maxes;
+    this.nullCounts = nullCounts;
+  }
+
+  public static ZoneMap build(ColumnVector column, int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException(String.format("Block size must be positive; received %d", blockSize));
+    }
+    int rowCount = column.size();
+    int blocks = (rowCount + blockSize - 1) / blockSize;
+    Comparable[] mins = new Comparable[blocks];
+    Comparable[] maxes = new Comparable[blocks];
+    int[] nullCounts = new int[blocks];
+    for (int b = 0; b < blocks; b++) {
+      int start = b * blockSize;
+      int end = Math.min(rowCount, start + blockSize);
+      switch (column.getType()) {
+      case INT:
+        buildIntBlock(column, b, start, end, mins, maxes, nullCounts);
+        break;
+      case DOUBLE:
+        buildDoubleBlock(column, b, start, end, mins, maxes, nullCounts);
+        break;
+      default:
+        for (int i = start; i < end; i++) {
+          Comparable v = column.get(i);
+          if (v == null) {
+            nullCounts[b]++;
+            continue;
+          }
+          if (mins[b] == null || v.compareTo(mins[b]) < 0) {
+            mins[b] = v;
+          }
+          if (maxes[b] == null || v.compareTo(maxes[b]) > 0) {
+            maxes[b] = v;
+          }
+        }
+      }
+    }
+    return new ZoneMap(blockSize, rowCount, mins, maxes, nullCounts);
+  }
+
+  // the numeric columns are summarized without boxing every value
+  private static void buildIntBlock(ColumnVector column, int b, int start, int end, Comparable[] mins,
+      Comparable[] maxes, int[] nullCounts) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int i = start; i < end; i++) {
+      if (column.isNull(i)) {
+        nullCounts[b]++;
+        continue;
+      }
+      int v = column.getInt(i);
+      min = Math.min(min, v);
+      max = Math.max(max, v);
+    }
+    if (nullCounts[b] < end - start) {
+      mins[b] = min;
+      maxes[b] = max;
+    }
+  }
+
+  private static void buildDoubleBlock(ColumnVector column, int b, int start, int end, Comparable[] mins,
+      Comparable[] maxes, int[] nullCounts) {
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = start; i < end; i++) {
+      if (column.isNull(i)) {
+        nullCounts[b]++;
+        continue;
+      }
+      double v = column.getDouble(i);
+      min = Math.min(min, v);
+      max = Math.max(max, v);
+    }
+    if (nullCounts[b] < end - start) {
+      mins[b] = min;
+      maxes[b] = max;
+    }
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public int blockCount() {
+    return mins.length;
+  }
+
+  public int blockRows(int block) {
+    return Math.min(rowCount - block * blockSize, blockSize);
+  }
+
+  /**
+   * @return smallest non-null value in the block, or null if all of its values are null
+   */
+  public Comparable getMin(int block) {
+    return mins[block];
+  }
+
+  public Comparable getMax(int block) {
+    return maxes[block];
+  }
+
+  public int getNullCount(int block) {
+    return nullCounts[block];
+  }
+}
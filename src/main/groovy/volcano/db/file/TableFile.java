@@ -0,0 +1,455 @@
+package volcano.db.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+import volcano.db.Table;
+import volcano.db.Type;
+import volcano.db.column.ColumnVector;
+import volcano.db.column.Dictionary;
+import volcano.db.column.DictionaryEncodedVector;
+import volcano.db.column.MappedBooleanColumnVector;
+import volcano.db.column.MappedDictionaryColumnVector;
+import volcano.db.column.MappedDoubleColumnVector;
+import volcano.db.column.MappedIntColumnVector;
+import volcano.db.column.MappedStringColumnVector;
+import volcano.db.column.ZoneMap;
+import volcano.db.stats.ColumnStatistics;
+import volcano.db.stats.Histogram;
+import volcano.db.stats.TableStatistics;
+
+/**
+ * Columnar table file that is opened by mapping it into memory, so opening a table doesn't read its rows and the
+ * OS page cache, not the heap, holds the parts that queries touch.
+ * <p>
+ * The file starts with a magic number and version, followed by each column's segments, 8-byte aligned and
+ * little-endian: a null bitmap, then the values, as for the in-memory vectors. A dictionary-encoded STRING column
+ * stores a code per row in place of the values, followed by its dictionary laid out as a plain STRING column. The
+ * metadata comes next (schema, encodings, segment locations, zone maps and statistics), and the file ends with the
+ * metadata's offset and the magic number.
+ */
+public final class TableFile {
+
+  private static final int MAGIC = 0x564f4c43;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 8;
+  private static final int FOOTER_BYTES = 12;
+
+  private enum Encoding {
+    PLAIN, DICTIONARY
+  }
+
+  private TableFile() {
+  }
+
+  public static void write(Table table, Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      SegmentWriter out = new SegmentWriter(channel);
+      out.putInt(MAGIC);
+      out.putInt(VERSION);
+      List<long[]> segments = new ArrayList<>();
+      for (int c = 0; c < table.getColumnNames().size(); c++) {
+        segments.add(writeColumn(out, table.column(c)));
+      }
+      long metadataOffset = out.position();
+      out.put(metadata(table, segments));
+      out.putLong(metadataOffset);
+      out.putInt(MAGIC);
+      out.flush();
+    }
+  }
+
+  /**
+   * @return offset and length of each of the column's segments
+   */
+  private static long[] writeColumn(SegmentWriter out, ColumnVector column) throws IOException {
+    int size = column.size();
+    boolean hasNulls = false;
+    for (int i = 0; i < size && !hasNulls; i++) {
+      hasNulls = column.isNull(i);
+    }
+    List<Long> segments = new ArrayList<>();
+    long start = out.align();
+    if (hasNulls) {
+      out.putBitmap(size, column::isNull);
+    }
+    segments.add(start);
+    segments.add(out.position() - start);
+    start = out.align();
+    switch (column.getType()) {
+    case INT:
+      for (int i = 0; i < size; i++) {
+        out.putInt(column.getInt(i));
+      }
+      break;
+    case DOUBLE:
+      for (int i = 0; i < size; i++) {
+        out.putDouble(column.getDouble(i));
+      }
+      break;
+    case BOOLEAN:
+      out.putBitmap(size, i -> !column.isNull(i) && column.getBoolean(i));
+      break;
+    case STRING:
+      if (column instanceof DictionaryEncodedVector) {
+        DictionaryEncodedVector encoded = (DictionaryEncodedVector)column;
+        for (int i = 0; i < size; i++) {
+          out.putInt(column.isNull(i) ? 0 : encoded.getCode(i));
+        }
+        segments.add(start);
+        segments.add(out.position() - start);
+        start = out.align();
+        Dictionary dictionary = encoded.getDictionary();
+        start = writeStrings(out, segments, start, dictionary.size(), dictionary::value);
+      } else {
+        start = writeStrings(out, segments, start, size, i -> column.isNull(i) ? "" : column.getString(i));
+      }
+      break;
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", column.getType()));
+    }
+    segments.add(start);
+    segments.add(out.position() - start);
+    return segments.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Write the offsets, then the bytes they point into
+   *
+   * @return start of the bytes segment, which the caller records
+   */
+  private static long writeStrings(SegmentWriter out, List<Long> segments, long start, int count,
+      IntFunction<String> values) throws IOException {
+    long offset = 0;
+    out.putInt(0);
+    for (int i = 0; i < count; i++) {
+      offset += values.apply(i).getBytes(UTF_8).length;
+      if (offset > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("String columns are limited to 2GB of values");
+      }
+      out.putInt((int)offset);
+    }
+    segments.add(start);
+    segments.add(out.position() - start);
+    start = out.align();
+    for (int i = 0; i < count; i++) {
+      out.put(values.apply(i).getBytes(UTF_8));
+    }
+    return start;
+  }
+
+  private static byte[] metadata(Table table, List<long[]> segments) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    List<String> columnNames = table.getColumnNames();
+    out.writeUTF(table.getTableName());
+    out.writeInt(table.rowCount());
+    out.writeInt(columnNames.size());
+    for (int c = 0; c < columnNames.size(); c++) {
+      out.writeUTF(columnNames.get(c));
+      out.writeUTF(table.fieldType(c).name());
+      Encoding encoding = table.column(c) instanceof DictionaryEncodedVector ? Encoding.DICTIONARY : Encoding.PLAIN;
+      out.writeUTF(encoding.name());
+      out.writeInt(segments.get(c).length);
+      for (long l : segments.get(c)) {
+        out.writeLong(l);
+      }
+    }
+    for (int c = 0; c < columnNames.size(); c++) {
+      Type type = table.fieldType(c);
+      ZoneMap zoneMap = table.zoneMap(c);
+      out.writeInt(zoneMap.getBlockSize());
+      out.writeInt(zoneMap.blockCount());
+      for (int b = 0; b < zoneMap.blockCount(); b++) {
+        out.writeInt(zoneMap.getNullCount(b));
+        writeValue(out, type, zoneMap.getMin(b));
+        writeValue(out, type, zoneMap.getMax(b));
+      }
+    }
+    TableStatistics statistics = table.getStatistics();
+    out.writeLong(statistics.getAverageRowBytes());
+    for (int c = 0; c < columnNames.size(); c++) {
+      ColumnStatistics column = statistics.column(c);
+      out.writeInt(column.getNullCount());
+      out.writeInt(column.getDistinctCount());
+      writeValue(out, column.getType(), column.getMin());
+      writeValue(out, column.getType(), column.getMax());
+      double[] bounds = column.getHistogram() == null ? new double[0] : column.getHistogram().getBounds();
+      out.writeInt(bounds.length);
+      for (double bound : bounds) {
+        out.writeDouble(bound);
+      }
+      out.writeBoolean(column.isSorted());
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeValue(DataOutput out, Type type, Comparable value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value == null) {
+      return;
+    }
+    switch (type) {
+    case INT:
+      out.writeInt((Integer)value);
+      break;
+    case DOUBLE:
+      out.writeDouble((Double)value);
+      break;
+    case BOOLEAN:
+      out.writeBoolean((Boolean)value);
+      break;
+    case STRING:
+      byte[] bytes = ((String)value).getBytes(UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+      break;
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+
+  /**
+   * Map a table file into memory. Only the metadata is read; the mapping stays valid after the file is closed.
+   */
+  public static Table open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + FOOTER_BYTES) {
+        throw new IOException(String.format("%s is not a table file", path));
+      }
+      ByteBuffer header = read(channel, 0, HEADER_BYTES);
+      ByteBuffer footer = read(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+      long metadataOffset = footer.getLong();
+      if (header.getInt() != MAGIC || footer.getInt() != MAGIC || metadataOffset < HEADER_BYTES
+          || metadataOffset > size - FOOTER_BYTES) {
+        throw new IOException(String.format("%s is not a table file", path));
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException(String.format("%s has unsupported version %d", path, version));
+      }
+      ByteBuffer metadata = read(channel, metadataOffset, (int)(size - FOOTER_BYTES - metadataOffset));
+      DataInput in = new DataInputStream(new ByteArrayInputStream(metadata.array()));
+      return readTable(channel, in);
+    }
+  }
+
+  private static Table readTable(FileChannel channel, DataInput in) throws IOException {
+    String tableName = in.readUTF();
+    int rowCount = in.readInt();
+    int columnCount = in.readInt();
+    List<String> columnNames = new ArrayList<>();
+    List<Type> columnTypes = new ArrayList<>();
+    ColumnVector[] columns = new ColumnVector[columnCount];
+    for (int c = 0; c < columnCount; c++) {
+      columnNames.add(in.readUTF());
+      columnTypes.add(Type.valueOf(in.readUTF()));
+      Encoding encoding = Encoding.valueOf(in.readUTF());
+      ByteBuffer[] segments = new ByteBuffer[in.readInt() / 2];
+      for (int s = 0; s < segments.length; s++) {
+        long offset = in.readLong();
+        long length = in.readLong();
+        segments[s] = length == 0 ? null : channel.map(MapMode.READ_ONLY, offset, length);
+      }
+      columns[c] = encoding == Encoding.DICTIONARY
+          ? dictionaryColumn(rowCount, segments) : column(columnTypes.get(c), rowCount, segments);
+    }
+    ZoneMap[] zoneMaps = new ZoneMap[columnCount];
+    for (int c = 0; c < columnCount; c++) {
+      int blockSize = in.readInt();
+      int blocks = in.readInt();
+      Comparable[] mins = new Comparable[blocks];
+      Comparable[] maxes = new Comparable[blocks];
+      int[] nullCounts = new int[blocks];
+      for (int b = 0; b < blocks; b++) {
+        nullCounts[b] = in.readInt();
+        mins[b] = readValue(in, columnTypes.get(c));
+        maxes[b] = readValue(in, columnTypes.get(c));
+      }
+      zoneMaps[c] = new ZoneMap(blockSize, rowCount, mins, maxes, nullCounts);
+    }
+    long averageRowBytes = in.readLong();
+    List<ColumnStatistics> statistics = new ArrayList<>();
+    for (int c = 0; c < columnCount; c++) {
+      Type type = columnTypes.get(c);
+      int nullCount = in.readInt();
+      int distinctCount = in.readInt();
+      Comparable min = readValue(in, type);
+      Comparable max = readValue(in, type);
+      double[] bounds = new double[in.readInt()];
+      for (int i = 0; i < bounds.length; i++) {
+        bounds[i] = in.readDouble();
+      }
+      boolean sorted = in.readBoolean();
+      statistics.add(new ColumnStatistics(type, rowCount, nullCount, distinctCount, min, max,
+          bounds.length == 0 ? null : Histogram.fromBounds(bounds), sorted));
+    }
+    return new Table(tableName, columnNames, columnTypes, columns, zoneMaps,
+        new TableStatistics(rowCount, averageRowBytes, statistics));
+  }
+
+  // segments are the null bitmap, then the values; null where a segment is empty
+  private static ColumnVector column(Type type, int rowCount, ByteBuffer[] segments) {
+    ByteBuffer nulls = segments[0];
+    ByteBuffer values = segments[1] == null ? ByteBuffer.allocate(0) : segments[1];
+    switch (type) {
+    case INT:
+      return new MappedIntColumnVector(values, rowCount, nulls);
+    case DOUBLE:
+      return new MappedDoubleColumnVector(values, rowCount, nulls);
+    case BOOLEAN:
+      return new MappedBooleanColumnVector(values, rowCount, nulls);
+    case STRING:
+      ByteBuffer bytes = segments[2] == null ? ByteBuffer.allocate(0) : segments[2];
+      return new MappedStringColumnVector(values, bytes, rowCount, nulls);
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+
+  // segments are the null bitmap, the codes, then the dictionary's offsets and bytes
+  private static ColumnVector dictionaryColumn(int rowCount, ByteBuffer[] segments) {
+    ByteBuffer codes = segments[1] == null ? ByteBuffer.allocate(0) : segments[1];
+    ByteBuffer bytes = segments[3] == null ? ByteBuffer.allocate(0) : segments[3];
+    ColumnVector strings = new MappedStringColumnVector(segments[2], bytes, segments[2].capacity() / 4 - 1, null);
+    String[] values = new String[strings.size()];
+    for (int code = 0; code < values.length; code++) {
+      values[code] = strings.getString(code);
+    }
+    return new MappedDictionaryColumnVector(new Dictionary(values), codes, rowCount, segments[0]);
+  }
+
+  private static Comparable readValue(DataInput in, Type type) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    switch (type) {
+    case INT:
+      return in.readInt();
+    case DOUBLE:
+      return in.readDouble();
+    case BOOLEAN:
+      return in.readBoolean();
+    case STRING:
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new String(bytes, UTF_8);
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of table file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Buffers little-endian writes to a channel, tracking the file position
+   */
+  private static class SegmentWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long position;
+
+    private SegmentWriter(FileChannel channel) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    long position() {
+      return position;
+    }
+
+    // pad to a multiple of 8 bytes, so that every segment can be viewed as aligned longs or doubles
+    long align() throws IOException {
+      while (position % 8 != 0) {
+        ensure(1);
+        buffer.put((byte)0);
+        position++;
+      }
+      return position;
+    }
+
+    void putInt(int v) throws IOException {
+      ensure(4);
+      buffer.putInt(v);
+      position += 4;
+    }
+
+    void putLong(long v) throws IOException {
+      ensure(8);
+      buffer.putLong(v);
+      position += 8;
+    }
+
+    void putDouble(double v) throws IOException {
+      ensure(8);
+      buffer.putDouble(v);
+      position += 8;
+    }
+
+    void put(byte[] bytes) throws IOException {
+      for (int written = 0; written < bytes.length; ) {
+        ensure(1);
+        int n = Math.min(buffer.remaining(), bytes.length - written);
+        buffer.put(bytes, written, n);
+        written += n;
+      }
+      position += bytes.length;
+    }
+
+    // bit i of the bitmap is set when the predicate holds for position i
+    void putBitmap(int size, IntPredicate bit) throws IOException {
+      for (int word = 0; word < (size + 63) / 64; word++) {
+        long bits = 0;
+        for (int i = word * 64; i < Math.min(size, word * 64 + 64); i++) {
+          if (bit.test(i)) {
+            bits |= 1L << i;
+          }
+        }
+        putLong(bits);
+      }
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+}
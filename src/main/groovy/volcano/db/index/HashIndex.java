@@ -0,0 +1,73 @@
+package volcano.db.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import volcano.db.column.ColumnVector;
+
+/**
+ * Hash map from each distinct value to the positions holding it
+ */
+public class HashIndex implements Index {
+
+  private static final int[] NO_POSITIONS = new int[0];
+
+  private final String columnName;
+  private final Map<Comparable,int[]> positions;
+  private final int rowCount;
+
+  private HashIndex(String columnName, Map<Comparable,int[]> positions, int rowCount) {
+    this.columnName = columnName;
+    this.positions = positions;
+    this.rowCount = rowCount;
+  }
+
+  public static HashIndex build(String columnName, ColumnVector column) {
+    // count each value's rows first so every position list is allocated at its final size
+    Map<Comparable,int[]> counts = new HashMap<>();
+    for (int i = 0; i < column.size(); i++) {
+      Comparable v = column.get(i);
+      if (v != null) {
+        counts.computeIfAbsent(v, k -> new int[1])[0]++;
+      }
+    }
+    Map<Comparable,int[]> positions = new HashMap<>(counts.size() * 4 / 3 + 1);
+    counts.forEach((v, count) -> {
+      positions.put(v, new int[count[0]]);
+      count[0] = 0;
+    });
+    int rowCount = 0;
+    for (int i = 0; i < column.size(); i++) {
+      Comparable v = column.get(i);
+      if (v != null) {
+        positions.get(v)[counts.get(v)[0]++] = i;
+        rowCount++;
+      }
+    }
+    return new HashIndex(columnName, positions, rowCount);
+  }
+
+  @Override
+  public String getColumnName() {
+    return columnName;
+  }
+
+  @Override
+  public IndexType getType() {
+    return IndexType.HASH;
+  }
+
+  @Override
+  public int[] lookup(Comparable value) {
+    if (value == null) {
+      return NO_POSITIONS;
+    }
+    return positions.getOrDefault(value, NO_POSITIONS).clone();
+  }
+
+  @Override
+  public long sizeInBytes() {
+    // the position arrays, plus a map entry and boxed key per distinct value
+    return 4L * rowCount + 64L * positions.size();
+  }
+}
@@ -0,0 +1,33 @@
+package volcano.db.index;
+
+/**
+ * Maps a column's values to the positions of the rows holding them. Nulls aren't indexed, as no comparison matches
+ * them. Positions come back in ascending order.
+ */
+public interface Index {
+
+  String getColumnName();
+
+  IndexType getType();
+
+  /**
+   * @return positions of the rows equal to value; none for null
+   */
+  int[] lookup(Comparable value);
+
+  /**
+   * @param lower lowest value to return, or null for no lower bound
+   * @param upper highest value to return, or null for no upper bound
+   * @return positions of the rows between the bounds
+   */
+  default int[] range(Comparable lower, boolean lowerInclusive, Comparable upper, boolean upperInclusive) {
+    throw new UnsupportedOperationException(String.format("%s index on %s can't look up ranges", getType(),
+        getColumnName()));
+  }
+
+  default boolean supportsRanges() {
+    return false;
+  }
+
+  long sizeInBytes();
+}
@@ -0,0 +1,8 @@
+package volcano.db.index;
+
+public enum IndexType {
+  // equality and IN lookups in constant time
+  HASH,
+  // equality, IN and range lookups by binary search
+  SORTED
+}
@@ -0,0 +1,124 @@
+package volcano.db.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import volcano.db.Type;
+import volcano.db.column.ColumnVector;
+
+/**
+ * The column's non-null positions ordered by value, searched with binary search
+ */
+public class SortedIndex implements Index {
+
+  private final String columnName;
+  private final ColumnVector column;
+  // ordered by value, then by position
+  private final int[] positions;
+
+  private SortedIndex(String columnName, ColumnVector column, int[] positions) {
+    this.columnName = columnName;
+    this.column = column;
+    this.positions = positions;
+  }
+
+  public static SortedIndex build(String columnName, ColumnVector column) {
+    int nonNull = 0;
+    for (int i = 0; i < column.size(); i++) {
+      if (!column.isNull(i)) {
+        nonNull++;
+      }
+    }
+    int[] positions = column.getType() == Type.INT ? sortInts(column, nonNull) : sort(column, nonNull);
+    return new SortedIndex(columnName, column, positions);
+  }
+
+  // value in the high half and position in the low half, so sorting the longs orders by value, then position
+  private static int[] sortInts(ColumnVector column, int nonNull) {
+    long[] keys = new long[nonNull];
+    int k = 0;
+    for (int i = 0; i < column.size(); i++) {
+      if (!column.isNull(i)) {
+        keys[k++] = ((long)column.getInt(i) << 32) | i;
+      }
+    }
+    Arrays.sort(keys);
+    int[] positions = new int[nonNull];
+    for (int i = 0; i < nonNull; i++) {
+      positions[i] = (int)keys[i];
+    }
+    return positions;
+  }
+
+  private static int[] sort(ColumnVector column, int nonNull) {
+    Integer[] boxed = new Integer[nonNull];
+    int k = 0;
+    for (int i = 0; i < column.size(); i++) {
+      if (!column.isNull(i)) {
+        boxed[k++] = i;
+      }
+    }
+    // stable, so equal values stay in position order
+    Arrays.sort(boxed, Comparator.comparing(column::get));
+    return Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+  }
+
+  @Override
+  public String getColumnName() {
+    return columnName;
+  }
+
+  @Override
+  public IndexType getType() {
+    return IndexType.SORTED;
+  }
+
+  @Override
+  public int[] lookup(Comparable value) {
+    if (value == null) {
+      return new int[0];
+    }
+    return range(value, true, value, true);
+  }
+
+  @Override
+  public int[] range(Comparable lower, boolean lowerInclusive, Comparable upper, boolean upperInclusive) {
+    int from = lower == null ? 0 : search(lower, !lowerInclusive);
+    int to = upper == null ? positions.length : search(upper, upperInclusive);
+    if (from >= to) {
+      return new int[0];
+    }
+    int[] result = Arrays.copyOfRange(positions, from, to);
+    Arrays.sort(result);
+    return result;
+  }
+
+  @Override
+  public boolean supportsRanges() {
+    return true;
+  }
+
+  /**
+   * @return index of the first entry greater than value, or when pastEqual is false, of the first entry not less
+   * than it
+   */
+  private int search(Comparable value, boolean pastEqual) {
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int c = column.get(positions[mid]).compareTo(value);
+      if (c < 0 || (c == 0 && pastEqual)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return 4L * positions.length;
+  }
+}
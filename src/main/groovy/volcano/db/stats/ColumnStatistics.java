@@ -0,0 +1,155 @@
+package volcano.db.stats;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import volcano.db.Type;
+import volcano.db.column.ColumnVector;
+
+/**
+ * Row count, distinct and null counts, bounds, whether the rows are stored in order and, for numeric columns, a
+ * histogram of one column
+ */
+public class ColumnStatistics {
+
+  private final Type type;
+  private final int rowCount;
+  private final int nullCount;
+  private final int distinctCount;
+  private final Comparable min;
+  private final Comparable max;
+  private final Histogram histogram;
+  private final boolean sorted;
+
+  public ColumnStatistics(Type type, int rowCount, int nullCount, int distinctCount, Comparable min,
+      Comparable max, Histogram histogram, boolean sorted) {
+    this.type = type;
+    this.rowCount = rowCount;
+    this.nullCount = nullCount;
+    this.distinctCount = distinctCount;
+    this.min = min;
+    this.max = max;
+    this.histogram = histogram;
+    this.sorted = sorted;
+  }
+
+  static ColumnStatistics compute(ColumnVector column) {
+    int rowCount = column.size();
+    int nullCount = 0;
+    for (int i = 0; i < rowCount; i++) {
+      if (column.isNull(i)) {
+        nullCount++;
+      }
+    }
+    boolean sorted = isSorted(column, nullCount);
+    Type type = column.getType();
+    if (type == Type.INT || type == Type.DOUBLE) {
+      // sorting the non-null values gives the distinct count, bounds and histogram in one pass
+      double[] values = new double[rowCount - nullCount];
+      int n = 0;
+      for (int i = 0; i < rowCount; i++) {
+        if (!column.isNull(i)) {
+          values[n++] = type == Type.INT ? column.getInt(i) : column.getDouble(i);
+        }
+      }
+      Arrays.sort(values);
+      int distinct = 0;
+      for (int i = 0; i < n; i++) {
+        if (i == 0 || values[i] != values[i - 1]) {
+          distinct++;
+        }
+      }
+      Comparable min = n == 0 ? null : type.cast(values[0]);
+      Comparable max = n == 0 ? null : type.cast(values[n - 1]);
+      return new ColumnStatistics(type, rowCount, nullCount, distinct, min, max,
+          Histogram.fromSorted(values, Histogram.DEFAULT_BUCKETS), sorted);
+    }
+    Set<Comparable> distinct = new HashSet<>();
+    Comparable min = null;
+    Comparable max = null;
+    for (int i = 0; i < rowCount; i++) {
+      Comparable v = column.get(i);
+      if (v == null || !distinct.add(v)) {
+        continue;
+      }
+      if (min == null || v.compareTo(min) < 0) {
+        min = v;
+      }
+      if (max == null || v.compareTo(max) > 0) {
+        max = v;
+      }
+    }
+    return new ColumnStatistics(type, rowCount, nullCount, distinct.size(), min, max, null, sorted);
+  }
+
+  // ascending by position, with the nulls first as they sort
+  private static boolean isSorted(ColumnVector column, int nullCount) {
+    for (int i = 0; i < nullCount; i++) {
+      if (!column.isNull(i)) {
+        return false;
+      }
+    }
+    for (int i = nullCount + 1; i < column.size(); i++) {
+      if (column.isNull(i) || column.get(i - 1).compareTo(column.get(i)) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getNullCount() {
+    return nullCount;
+  }
+
+  public double getNullFraction() {
+    return rowCount == 0 ? 0 : (double)nullCount / rowCount;
+  }
+
+  /**
+   * @return number of distinct non-null values
+   */
+  public int getDistinctCount() {
+    return distinctCount;
+  }
+
+  /**
+   * @return smallest non-null value, or null if there is none
+   */
+  public Comparable getMin() {
+    return min;
+  }
+
+  public Comparable getMax() {
+    return max;
+  }
+
+  /**
+   * @return null unless the column is numeric and has a non-null value
+   */
+  public Histogram getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * @return true if the table stores the column's values in ascending order, nulls first, so that a scan returns
+   * them sorted
+   */
+  public boolean isSorted() {
+    return sorted;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ColumnStatistics[type:%s,rows:%d,nulls:%d,distinct:%d,min:%s,max:%s,sorted:%s]", type,
+        rowCount, nullCount, distinctCount, min, max, sorted);
+  }
+}
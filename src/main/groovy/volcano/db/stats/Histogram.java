@@ -0,0 +1,82 @@
+package volcano.db.stats;
+
+import java.util.Arrays;
+
+/**
+ * Equi-depth histogram over a numeric column: each bucket holds the same share of the non-null values, so skewed
+ * columns get narrow buckets where the values are dense
+ */
+public class Histogram {
+
+  public static final int DEFAULT_BUCKETS = 64;
+
+  // bucket i spans bounds[i] to bounds[i + 1]
+  private final double[] bounds;
+
+  private Histogram(double[] bounds) {
+    this.bounds = bounds;
+  }
+
+  /**
+   * @param sortedValues non-null values in ascending order
+   */
+  static Histogram fromSorted(double[] sortedValues, int buckets) {
+    if (sortedValues.length == 0) {
+      return null;
+    }
+    int n = sortedValues.length;
+    buckets = Math.min(buckets, n);
+    double[] bounds = new double[buckets + 1];
+    for (int i = 0; i <= buckets; i++) {
+      bounds[i] = sortedValues[(int)((long)i * (n - 1) / buckets)];
+    }
+    return new Histogram(bounds);
+  }
+
+  /**
+   * @param bounds ascending bucket bounds, as returned by {@link #getBounds()}
+   */
+  public static Histogram fromBounds(double[] bounds) {
+    if (bounds.length < 2) {
+      throw new IllegalArgumentException(String.format("A histogram needs at least 2 bounds; received %d",
+          bounds.length));
+    }
+    return new Histogram(bounds.clone());
+  }
+
+  public double[] getBounds() {
+    return bounds.clone();
+  }
+
+  public int bucketCount() {
+    return bounds.length - 1;
+  }
+
+  /**
+   * @return estimated fraction of the non-null values that are less than value
+   */
+  public double fractionBelow(double value) {
+    int buckets = bucketCount();
+    if (value <= bounds[0]) {
+      return 0;
+    }
+    if (value > bounds[buckets]) {
+      return 1;
+    }
+    // last bucket whose lower bound is below the value
+    int i = Arrays.binarySearch(bounds, value);
+    int bucket = i >= 0 ? i - 1 : -i - 2;
+    while (bucket > 0 && bounds[bucket] >= value) {
+      bucket--;
+    }
+    double lower = bounds[bucket];
+    double upper = bounds[bucket + 1];
+    double withinBucket = upper > lower ? (Math.min(value, upper) - lower) / (upper - lower) : 1;
+    return Math.min(1, (bucket + withinBucket) / buckets);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Histogram[buckets:%d,bounds:%s]", bucketCount(), Arrays.toString(bounds));
+  }
+}
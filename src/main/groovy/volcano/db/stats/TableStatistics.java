@@ -0,0 +1,46 @@
+package volcano.db.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import volcano.db.Table;
+
+/**
+ * Statistics for every column of a table, gathered in a single pass per column
+ */
+public class TableStatistics {
+
+  private final int rowCount;
+  private final long averageRowBytes;
+  private final List<ColumnStatistics> columns;
+
+  public TableStatistics(int rowCount, long averageRowBytes, List<ColumnStatistics> columns) {
+    this.rowCount = rowCount;
+    this.averageRowBytes = averageRowBytes;
+    this.columns = columns;
+  }
+
+  public static TableStatistics compute(Table table) {
+    List<ColumnStatistics> columns = new ArrayList<>();
+    for (int c = 0; c < table.getColumnNames().size(); c++) {
+      columns.add(ColumnStatistics.compute(table.column(c)));
+    }
+    int rowCount = table.rowCount();
+    return new TableStatistics(rowCount, rowCount == 0 ? 0 : table.sizeInBytes() / rowCount, columns);
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return column bytes per row as stored; a row materialized by an operator is larger
+   */
+  public long getAverageRowBytes() {
+    return averageRowBytes;
+  }
+
+  public ColumnStatistics column(int fieldIndex) {
+    return columns.get(fieldIndex);
+  }
+}
@@ -1,189 +1,137 @@
 package volcano.operator;
 
-import static java.util.stream.Collectors.toList;
-import static volcano.operator.aggregate.AggregateFn.AVG;
-import static volcano.operator.aggregate.AggregateFn.COUNT;
-import static volcano.operator.aggregate.AggregateFn.SUM;
-
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-
-import com.google.common.base.Strings;
 
+import volcano.db.MutableRow;
 import volcano.db.Row;
-import volcano.db.Type;
-import volcano.operator.aggregate.AggregateFn;
+import volcano.operator.aggregate.Accumulator;
+import volcano.operator.aggregate.AggregateColumns;
+import volcano.operator.aggregate.AggregateColumns.KeyCopier;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.hash.GroupHashTable;
 import volcano.operator.util.Column;
 import volcano.operator.util.OutputSchema;
 
-public class AggregateOperator implements Operator {
-  private final Operator input;
-  private final List<Column> groupingColumns;
-  private final List<Column> aggrColumns;
+/**
+ * Hash aggregation: a single group hash table assigns every group a slot, and each aggregate keeps its running
+ * state in flat primitive arrays indexed by that slot. SUM and AVG use double/long arithmetic unless the operator
+ * is created in exact-decimal mode. The APPROX_ functions keep a sketch of a few KB at most per group instead.
+ */
+public class AggregateOperator implements BufferingOperator {
 
-  private final List<Integer> groupingColIndexes;
-  private final OutputSchema outputSchema;
+  private static final Row EMPTY_ROW = new Row(Collections.emptyList());
+
+  private final Operator input;
+  private final AggregateColumns columns;
+  // copies grouping keys out of the hash table
+  private final KeyCopier keys;
 
-  private final List<HashMap<Object,Object>> aggregates;
-  //todo hold grouping col combos
+  private GroupHashTable groups;
+  private Accumulator[] accumulators;
+  private int nextGroup;
+  private long peakBufferedBytes;
 
-  private final Set<Object> uniqueGroups;
-  private Iterator uniqueGroupsToReturn;
+  private MutableRow output;
+  private MutableRow[] batchOutputs;
 
   public AggregateOperator(Operator input, List<Column> columns) {
+    this(input, columns, false);
+  }
+
+  public AggregateOperator(Operator input, List<Column> columns, boolean exactDecimal) {
     this.input = input;
-    this.groupingColumns = columns.stream().filter(Column::isGrouping).collect(toList());
-    this.aggrColumns = columns.stream().filter(c -> c.getFn().isPresent()).collect(toList());
-    this.aggregates = new ArrayList<>();
-    this.uniqueGroups = new HashSet<>();
-    this.groupingColIndexes = groupingColumns.stream()
-        .map(gc -> input.getOutputSchema().columnIndex(gc.getName()))
-        .collect(toList());
-    aggrColumns.forEach(c -> aggregates.add(new HashMap<>()));
-    this.outputSchema = new OutputSchema(columns);
+    this.columns = new AggregateColumns(input.getOutputSchema(), columns, exactDecimal);
+    this.keys = (group, key, out, column) -> groups.copyKeyTo(group, key, out, column);
+  }
+
+  /**
+   * Set the percentile an APPROX_PERCENTILE column reports, which may change between executions of a prepared plan
+   */
+  public void setFraction(Column aggregate, double fraction) {
+    columns.setFraction(aggregate, fraction);
   }
 
   @Override
   public void open() {
+    groups = new GroupHashTable(columns.getGroupingColTypes(), columns.getGroupingColIndexes());
+    accumulators = columns.createAccumulators();
+    output = new MutableRow(columns.getOutputSchema().getColumnTypes());
+
     input.open();
-    while (true) {
-      Row r = input.next();
-      if (r == null) {
-        break;
+    RowBatch batch = new RowBatch();
+    int[] groupIds = new int[batch.capacity()];
+    while (input.nextBatch(batch)) {
+      int size = batch.size();
+      for (int i = 0; i < size; i++) {
+        groupIds[i] = groups.findOrInsert(batch.get(i));
       }
-      List<Object> groupingElements = groupingColIndexes.stream().map(r::getAt).collect(toList());
-      uniqueGroups.add(groupingElements);
-
-      for (int i = 0; i < aggrColumns.size(); i++) {
-        Column col = aggrColumns.get(i);
-        String colName = col.getName();
-        AggregateFn fn = col.getFn().get();
-        HashMap<Object,Object> aggrMap = aggregates.get(i);
-        Object aggrElem = r.getAt(input.getOutputSchema().columnIndex(colName));
-        if (!aggrMap.containsKey(groupingElements)) {
-          if (fn == COUNT) {
-            aggrMap.put(groupingElements, 1);
-          } else if (fn == AVG) {
-            aggrMap.put(groupingElements, new Object[] {bigDecimal(aggrElem), 1});
-          } else if (fn == SUM) {
-            aggrMap.put(groupingElements, bigDecimal(aggrElem));
-          } else {
-            aggrMap.put(groupingElements, aggrElem);
-          }
-        } else {
-          switch (fn) {
-          case AVG:
-            Object[] totalAndCount = (Object[])aggrMap.get(groupingElements);
-            BigDecimal total = (BigDecimal)totalAndCount[0];
-            int count = (int)totalAndCount[1];
-            aggrMap.put(groupingElements, new Object[] {total.add(bigDecimal(aggrElem)), count + 1});
-            break;
-          case COUNT:
-            aggrMap.put(groupingElements, ((Integer)aggrMap.get(groupingElements)) + 1);
-            break;
-          case MIN:
-            Comparable c = (Comparable)aggrMap.get(groupingElements);
-            if ((c.compareTo(aggrElem)) > 0) {
-              aggrMap.put(groupingElements, aggrElem);
-            }
-            break;
-          case MAX:
-            Comparable d = (Comparable)aggrMap.get(groupingElements);
-            if ((d.compareTo(aggrElem)) < 0) {
-              aggrMap.put(groupingElements, aggrElem);
-            }
-            break;
-          case SUM:
-            aggrMap.put(groupingElements,
-                ((BigDecimal)aggrMap.get(groupingElements)).add(bigDecimal(aggrElem)));
-            break;
-          default:
-            throw new IllegalArgumentException(String.format("Unrecognized aggr fn %s", fn));
-          }
-        }
+      for (Accumulator accumulator : accumulators) {
+        accumulator.ensureCapacity(groups.size());
       }
+      columns.add(accumulators, groupIds, batch);
     }
-    uniqueGroupsToReturn = uniqueGroups.iterator();
     input.close();
+    // an ungrouped aggregate over no rows still produces one row
+    if (!columns.isGrouped() && groups.size() == 0) {
+      groups.findOrInsert(EMPTY_ROW);
+      for (Accumulator accumulator : accumulators) {
+        accumulator.ensureCapacity(1);
+      }
+    }
+    nextGroup = 0;
+    peakBufferedBytes = groups.sizeInBytes();
+    for (Accumulator accumulator : accumulators) {
+      peakBufferedBytes += accumulator.sizeInBytes();
+    }
   }
 
   @Override
   public Row next() {
-    if (!uniqueGroupsToReturn.hasNext()) {
+    if (nextGroup == groups.size()) {
       return null;
     }
-    List<Comparable> group = (List<Comparable>)uniqueGroupsToReturn.next();
-    List<Comparable> aggs = new ArrayList<>();
-    for (int i = 0; i < aggrColumns.size(); i++) {
-      Column col = aggrColumns.get(i);
-      Type t = col.getType();
-      Object agg = aggregates.get(i).get(group);
-      switch (col.getFn().get()) {
-      case AVG:
-        aggs.add(((BigDecimal)((Object[])agg)[0]).doubleValue() / (Integer)((Object[])agg)[1]);
-        break;
-      case COUNT:
-        aggs.add((Integer)agg);
-      case MAX:
-      case MIN:
-        if (t == Type.INT) {
-          aggs.add(((BigDecimal)agg).longValue());
-        } else {
-          aggs.add(((BigDecimal)agg).doubleValue());
-        }
-        break;
-      case SUM:
-        aggs.add(((BigDecimal)agg).doubleValue());
-        break;
-      default:
-        throw new IllegalArgumentException(String.format("Unrecognized aggr fn %s", col.getFn().get()));
+    return columns.emit(nextGroup++, accumulators, keys, output);
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchOutputs == null || batchOutputs.length < batch.capacity()) {
+      batchOutputs = new MutableRow[batch.capacity()];
+      for (int i = 0; i < batchOutputs.length; i++) {
+        batchOutputs[i] = new MutableRow(columns.getOutputSchema().getColumnTypes());
       }
     }
-    group.addAll(aggs);
-    return new Row(group);
+    batch.clear();
+    while (!batch.isFull() && nextGroup < groups.size()) {
+      batch.add(columns.emit(nextGroup++, accumulators, keys, batchOutputs[batch.size()]));
+    }
+    return batch.size() > 0;
   }
 
   @Override
   public void close() {
+    input.close();
   }
 
+  // the groups only grow while the input is read, so the final table is the peak
   @Override
-  public OutputSchema getOutputSchema() {
-    return outputSchema;
+  public long getPeakBufferedRows() {
+    return groups == null ? 0 : groups.size();
   }
 
   @Override
-  public String printOperator(int indentation) {
-    StringBuilder sb = new StringBuilder();
-    sb.append(Strings.repeat(" ", indentation));
-    sb.append("aggregate[");
-    sb.append("grouping:");
-    sb.append(groupingColumns);
-    sb.append(",");
-    sb.append("fns:");
-    sb.append(aggrColumns);
-    sb.append(",");
-    sb.append("input:").append("\n");
-    sb.append(input.printOperator(indentation + 2));
-    sb.append("\n");
-    sb.append(Strings.repeat(" ", indentation));
-    sb.append("]");
-    return sb.toString();
+  public long getPeakBufferedBytes() {
+    return peakBufferedBytes;
   }
 
-  private BigDecimal bigDecimal(Object o) {
-    if (o instanceof Double) {
-      return new BigDecimal((Double)o);
-    } else if (o instanceof Integer) {
-      return new BigDecimal((Integer)o);
-    } else {
-      throw new IllegalArgumentException(
-          String.format("Attempted to convert %s into BigDecimal", o.getClass()));
-    }
+  @Override
+  public OutputSchema getOutputSchema() {
+    return columns.getOutputSchema();
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    return columns.printOperator("aggregate", input, indentation);
   }
 }
@@ -0,0 +1,18 @@
+package volcano.operator;
+
+/**
+ * An operator that holds rows in memory between open and close, e.g. in a hash table or a sort buffer, and keeps
+ * track of the most it held at once
+ */
+public interface BufferingOperator extends Operator {
+
+  /**
+   * @return most rows held in memory at once since the operator was last opened
+   */
+  long getPeakBufferedRows();
+
+  /**
+   * @return estimated size of the buffered rows at their peak, or 0 if the operator doesn't estimate it
+   */
+  long getPeakBufferedBytes();
+}
@@ -0,0 +1,184 @@
+package volcano.operator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Strings;
+
+import volcano.db.Row;
+import volcano.db.Table;
+import volcano.db.TableRow;
+import volcano.db.column.ColumnVector;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.filter.AndPredicate;
+import volcano.operator.filter.PositionPredicate;
+import volcano.operator.filter.Predicate;
+import volcano.operator.util.Column;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * A scan with a filter and a projection over it, run as one loop over the scan's positions: the filter is compiled
+ * against the table's column vectors when the operator is opened, and a passing position is emitted as a cursor over
+ * the projected columns, without materializing a row. A filter that can't be compiled is interpreted per row.
+ * Built by {@link PipelineCompiler}.
+ */
+public class CompiledPipelineOperator implements Operator {
+
+  private final ScanOperator scan;
+  // null to pass every row
+  private final Predicate filter;
+  // null to keep all the table's columns
+  private final List<Column> columns;
+  private final int[] columnIndexes;
+  private final OutputSchema outputSchema;
+  private PositionPredicate compiledFilter;
+  // the rest of the run claimed from the scan
+  private int position;
+  private int runEnd;
+  private TableRow cursor;
+  private TableRow[] batchCursors;
+
+  CompiledPipelineOperator(ScanOperator scan, Predicate filter, List<Column> columns) {
+    this.scan = scan;
+    this.filter = filter;
+    this.columns = columns;
+    OutputSchema scanSchema = scan.getOutputSchema();
+    this.columnIndexes = columns == null ? null : columns.stream().mapToInt(c -> scanSchema.columnIndex(c.getName()))
+        .toArray();
+    this.outputSchema = columns == null ? scanSchema : new OutputSchema(columns);
+  }
+
+  CompiledPipelineOperator withFilter(Predicate predicate) {
+    if (columns != null) {
+      throw new IllegalStateException("Can't filter a projected pipeline");
+    }
+    return new CompiledPipelineOperator(scan, filter == null ? predicate : new AndPredicate(Arrays.asList(filter, predicate)), null);
+  }
+
+  CompiledPipelineOperator withColumns(List<Column> columns) {
+    if (this.columns != null) {
+      throw new IllegalStateException("Pipeline is already projected");
+    }
+    return new CompiledPipelineOperator(scan, filter, columns);
+  }
+
+  boolean isProjected() {
+    return columns != null;
+  }
+
+  @Override
+  public void open() {
+    scan.open();
+    Table table = scan.table();
+    position = 0;
+    runEnd = 0;
+    cursor = new TableRow(table, columnIndexes, 0);
+    batchCursors = null;
+    compiledFilter = filter == null ? null : compile(table);
+  }
+
+  private PositionPredicate compile(Table table) {
+    ColumnVector[] vectors = new ColumnVector[table.getColumnNames().size()];
+    for (int c = 0; c < vectors.length; c++) {
+      vectors[c] = table.column(c);
+    }
+    PositionPredicate compiled = filter.compile(vectors);
+    if (compiled != null) {
+      return compiled;
+    }
+    TableRow row = new TableRow(table);
+    return new PositionPredicate() {
+      @Override
+      public boolean accepts(int position) {
+        return filter.accepts(row.setPosition(position));
+      }
+
+      @Override
+      public boolean rejects(int position) {
+        return filter.rejects(row.setPosition(position));
+      }
+    };
+  }
+
+  /**
+   * @return the next position that passes the filter, or -1 if there is none
+   */
+  private int nextPosition() {
+    while (true) {
+      if (position == runEnd) {
+        int start = scan.nextRun(RowBatch.DEFAULT_CAPACITY);
+        if (start < 0) {
+          return -1;
+        }
+        position = start;
+        runEnd = scan.runEnd();
+      }
+      int p = position++;
+      if (compiledFilter == null || compiledFilter.accepts(p)) {
+        return p;
+      }
+    }
+  }
+
+  @Override
+  public Row next() {
+    int p = nextPosition();
+    return p < 0 ? null : cursor.setPosition(p);
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchCursors == null || batchCursors.length < batch.capacity()) {
+      batchCursors = new TableRow[batch.capacity()];
+      for (int i = 0; i < batchCursors.length; i++) {
+        batchCursors[i] = new TableRow(scan.table(), columnIndexes, 0);
+      }
+    }
+    batch.clear();
+    int n = 0;
+    while (n < batch.capacity()) {
+      if (position == runEnd) {
+        int start = scan.nextRun(batch.capacity() - n);
+        if (start < 0) {
+          break;
+        }
+        position = start;
+        runEnd = scan.runEnd();
+      }
+      // the loop the pipeline's operators are fused into
+      for (; position < runEnd && n < batch.capacity(); position++) {
+        if (compiledFilter == null || compiledFilter.accepts(position)) {
+          batch.add(batchCursors[n++].setPosition(position));
+        }
+      }
+    }
+    return n > 0;
+  }
+
+  @Override
+  public void close() {
+    scan.close();
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return outputSchema;
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("compiled[");
+    if (columns != null) {
+      sb.append("columns:").append(columns).append(",");
+    }
+    if (filter != null) {
+      sb.append("filter:").append(filter).append(",");
+    }
+    sb.append("input:").append("\n");
+    sb.append(scan.printOperator(indentation + 2));
+    sb.append("]");
+    return sb.toString();
+  }
+}
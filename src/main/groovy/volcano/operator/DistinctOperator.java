@@ -2,56 +2,203 @@ package volcano.operator;
 
 import static java.util.stream.Collectors.toList;
 
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Objects;
-import java.util.Set;
 
 import com.google.common.base.Strings;
 
 import volcano.db.Row;
+import volcano.db.Type;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.hash.GroupHashTable;
+import volcano.operator.hash.KeyHasher;
+import volcano.operator.spill.HashPartitioner;
+import volcano.operator.spill.SpillFile;
+import volcano.operator.spill.SpillScanOperator;
 import volcano.operator.util.Column;
 import volcano.operator.util.OutputSchema;
 
-public class DistinctOperator implements Operator {
+/**
+ * Passes on the first row of each distinct key, in input order, tracking the keys seen in a {@link GroupHashTable}.
+ * Once the table outgrows the memory budget it stops taking new keys: rows with a key already in it are still
+ * dropped, and the rest are hash-partitioned to local spill files, which are deduplicated one at a time after the
+ * input is exhausted, splitting again any partition whose keys still don't fit. Rows from spilled partitions
+ * follow the rest, so the output is then no longer in input order.
+ */
+public class DistinctOperator implements BufferingOperator {
+
+  private static final int SPILL_FANOUT = 16;
+  // past this depth a partition is deduplicated in memory regardless
+  private static final int MAX_SPILL_LEVEL = 4;
 
   private final Operator input;
-  private final Set<Integer> previouslySeenRowHashes;
-  private final List<Integer> columnIndexes;
+  private final List<Column> distinctColumns;
+  private final long memoryBudgetBytes;
+  private final int[] columnIndexes;
+  private final List<Type> columnTypes;
+  private final KeyHasher keyHasher;
+
+  private GroupHashTable seen;
+  // the input, or the spilled partition currently being deduplicated
+  private Operator source;
+  private SpillFile sourceFile;
+  private int level;
+  // set once the keys seen no longer fit, for the rows of the current source with keys not in the table
+  private HashPartitioner spill;
+  private final Deque<SpilledPartition> spilledPartitions;
+
+  private long peakBufferedRows;
+  private long peakBufferedBytes;
 
   // distinctColumns maps to projected columns for this select node
   public DistinctOperator(Operator input, List<Column> distinctColumns) {
+    this(input, distinctColumns, SortOperator.DEFAULT_MEMORY_BUDGET_BYTES);
+  }
+
+  public DistinctOperator(Operator input, List<Column> distinctColumns, long memoryBudgetBytes) {
     this.input = input;
-    this.previouslySeenRowHashes = new HashSet<>();
-    this.columnIndexes = distinctColumns.stream()
-        .map(c -> input.getOutputSchema().columnIndex(c.getName()))
-        .collect(toList());
+    this.distinctColumns = distinctColumns;
+    this.memoryBudgetBytes = memoryBudgetBytes;
+    OutputSchema inputSchema = input.getOutputSchema();
+    this.columnIndexes = distinctColumns.stream().mapToInt(c -> inputSchema.columnIndex(c.getName())).toArray();
+    this.columnTypes = distinctColumns.stream().map(c -> inputSchema.columnType(c.getName())).collect(toList());
+    this.keyHasher = new KeyHasher(columnTypes);
+    this.spilledPartitions = new ArrayDeque<>();
   }
 
   @Override
   public void open() {
+    close();
+    peakBufferedRows = 0;
+    peakBufferedBytes = 0;
+    seen = new GroupHashTable(columnTypes, columnIndexes);
+    level = 0;
     input.open();
+    source = input;
   }
 
   @Override
   public Row next() {
-    while (true) {
-      Row r = input.next();
+    while (source != null) {
+      Row r = source.next();
       if (r == null) {
-        input.close();
-        return null;
-      }
-      Object[] distinctCandidateElements = columnIndexes.stream().map(r::getAt).toArray();
-      int rowHash = Objects.hash(distinctCandidateElements);
-      if (!previouslySeenRowHashes.contains(rowHash)) {
-        previouslySeenRowHashes.add(rowHash);
+        finishSource();
+      } else if (accept(r)) {
         return r;
       }
     }
+    return null;
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    while (source != null) {
+      if (!source.nextBatch(batch)) {
+        finishSource();
+        continue;
+      }
+      int[] selection = batch.selection();
+      int numSelected = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        int rowIndex = batch.rowIndex(i);
+        if (accept(batch.rowAt(rowIndex))) {
+          selection[numSelected++] = rowIndex;
+        }
+      }
+      batch.setSelected(numSelected);
+      if (numSelected > 0) {
+        return true;
+      }
+    }
+    batch.clear();
+    return false;
+  }
+
+  /**
+   * @return true if the row is the first with its key
+   */
+  private boolean accept(Row r) {
+    if (spill != null) {
+      if (seen.find(r) < 0) {
+        spill.add(r);
+      }
+      return false;
+    }
+    int groups = seen.size();
+    seen.findOrInsert(r);
+    if (seen.size() == groups) {
+      return false;
+    }
+    long bytes = seen.sizeInBytes();
+    peakBufferedRows = Math.max(peakBufferedRows, seen.size());
+    peakBufferedBytes = Math.max(peakBufferedBytes, bytes);
+    if (bytes > memoryBudgetBytes && level < MAX_SPILL_LEVEL) {
+      spill = new HashPartitioner(SPILL_FANOUT, input.getOutputSchema().getColumnTypes(), keyHasher, columnIndexes,
+          level);
+    }
+    return true;
+  }
+
+  /**
+   * Move on to the next spilled partition, with an empty table
+   */
+  private void finishSource() {
+    closeSource();
+    if (spill != null) {
+      List<SpillFile> files = spill.finish();
+      spill = null;
+      // sub-partitions go to the front so that spill files are consumed depth first
+      for (int i = files.size() - 1; i >= 0; i--) {
+        spilledPartitions.addFirst(new SpilledPartition(files.get(i), level + 1));
+      }
+    }
+    while (!spilledPartitions.isEmpty()) {
+      SpilledPartition partition = spilledPartitions.pollFirst();
+      if (partition.file.getRowCount() == 0) {
+        partition.file.delete();
+        continue;
+      }
+      seen = new GroupHashTable(columnTypes, columnIndexes);
+      level = partition.level;
+      sourceFile = partition.file;
+      source = new SpillScanOperator(sourceFile, input.getOutputSchema());
+      source.open();
+      return;
+    }
+  }
+
+  private void closeSource() {
+    if (source != null) {
+      source.close();
+      source = null;
+    }
+    if (sourceFile != null) {
+      sourceFile.delete();
+      sourceFile = null;
+    }
   }
 
   @Override
   public void close() {
+    input.close();
+    closeSource();
+    if (spill != null) {
+      spill.finish().forEach(SpillFile::delete);
+      spill = null;
+    }
+    spilledPartitions.forEach(p -> p.file.delete());
+    spilledPartitions.clear();
+  }
+
+  @Override
+  public long getPeakBufferedRows() {
+    return peakBufferedRows;
+  }
+
+  @Override
+  public long getPeakBufferedBytes() {
+    return peakBufferedBytes;
   }
 
   @Override
@@ -69,4 +216,14 @@ public class DistinctOperator implements Operator {
     sb.append("]");
     return sb.toString();
   }
+
+  private static class SpilledPartition {
+    private final SpillFile file;
+    private final int level;
+
+    private SpilledPartition(SpillFile file, int level) {
+      this.file = file;
+      this.level = level;
+    }
+  }
 }
@@ -3,19 +3,35 @@ package volcano.operator;
 import com.google.common.base.Strings;
 
 import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.filter.ClausePredicate;
 import volcano.operator.filter.FilterClause;
+import volcano.operator.filter.Predicate;
 import volcano.operator.util.OutputSchema;
 
 public class FilterOperator implements Operator {
 
   private final Operator input;
-  private final FilterClause filter;
-  private final int fieldIndex;
+  private final Predicate filter;
 
   public FilterOperator(Operator input, FilterClause filter) {
+    this(input, new ClausePredicate(filter, input.getOutputSchema()));
+  }
+
+  /**
+   * Passes the rows for which the predicate is true
+   */
+  public FilterOperator(Operator input, Predicate filter) {
     this.input = input;
     this.filter = filter;
-    this.fieldIndex = input.getOutputSchema().columnIndex(filter.getColumn());
+  }
+
+  Operator getInput() {
+    return input;
+  }
+
+  Predicate getPredicate() {
+    return filter;
   }
 
   @Override
@@ -31,14 +47,35 @@ public class FilterOperator implements Operator {
         input.close();
         return null;
       }
-      if (filter.accepts(r, fieldIndex)) {
+      if (filter.accepts(r)) {
         return r;
       }
     }
   }
 
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    while (input.nextBatch(batch)) {
+      int[] selection = batch.selection();
+      int numSelected = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        int rowIndex = batch.rowIndex(i);
+        if (filter.accepts(batch.rowAt(rowIndex))) {
+          selection[numSelected++] = rowIndex;
+        }
+      }
+      batch.setSelected(numSelected);
+      if (numSelected > 0) {
+        return true;
+      }
+    }
+    input.close();
+    return false;
+  }
+
   @Override
   public void close() {
+    input.close();
   }
 
   @Override
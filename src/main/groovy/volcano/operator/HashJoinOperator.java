@@ -2,97 +2,403 @@ package volcano.operator;
 
 import static java.util.stream.Collectors.toList;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
 
 import com.google.common.base.Strings;
 
+import volcano.db.JoinedRow;
 import volcano.db.Row;
 import volcano.db.Type;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.hash.JoinHashTable;
+import volcano.operator.hash.KeyHasher;
+import volcano.operator.parallel.SharedJoinBuild;
+import volcano.operator.spill.HashPartitioner;
+import volcano.operator.spill.SpillFile;
+import volcano.operator.spill.SpillScanOperator;
 import volcano.operator.util.OutputSchema;
 
-public class HashJoinOperator implements Operator {
+/**
+ * Builds a hash table over one input, the right one unless told otherwise, and probes it with the other; output rows
+ * are always the left row followed by the right row. If the build side grows past the
+ * memory budget, the join falls back to a Grace hash join: both inputs are hash-partitioned to local spill files
+ * and joined one partition pair at a time, splitting again any partition whose build side still doesn't fit.
+ * <p>
+ * Copies of a parallel pipeline pass a {@link SharedJoinBuild} instead, so the hash table is built once, in memory,
+ * and probed by every copy.
+ */
+public class HashJoinOperator implements BufferingOperator {
+
+  public static final long DEFAULT_MEMORY_BUDGET_BYTES = 256L * 1024 * 1024;
+
+  private static final int NO_MATCH = -1;
+  private static final int SPILL_FANOUT = 16;
+  // past this depth a partition is built in memory regardless, e.g. when one key holds most of the rows
+  private static final int MAX_SPILL_LEVEL = 4;
+
+  public enum BuildSide {
+    LEFT, RIGHT
+  }
 
   private final Operator leftInput;
   private final Operator rightInput;
   private final List<String> leftJoinCols;
   private final List<String> rightJoinCols;
-  private final Map<Object,List<Row>> probeTable;
+  private final List<Type> joinColTypes;
+  private final long memoryBudgetBytes;
+  private final SharedJoinBuild sharedBuild;
+  private final BuildSide buildSide;
 
-  private final List<Integer> leftColJoinIndexes;
-  private final List<Integer> rightColJoinIndexes;
+  private final Operator buildSource;
+  private final Operator probeSource;
+  private final int[] buildKeyIndexes;
+  private final int[] probeKeyIndexes;
+  private final KeyHasher keyHasher;
 
-  private List<Row> temporaryMultipleBuildRowsForKeys;
-  private Row temporaryProbeRow;
+  private JoinHashTable probeTable;
+  private long buildRowBytes;
+  private long peakBufferedRows;
+  private long peakBufferedBytes;
+
+  // the probe source, or the probe half of the spilled partition currently being joined
+  private Operator probeInput;
+  private SpilledPartition currentPartition;
+  private final Deque<SpilledPartition> spilledPartitions;
+
+  // next build row matching the current probe row
+  private int nextMatch;
+  private Row probeRow;
+
+  private RowBatch probeBatch;
+  private int probeBatchIndex;
+
+  // reused output rows, one per batch slot
+  private final JoinedRow output;
+  private JoinedRow[] batchOutputs;
 
-  // ONLY WORKS FOR EQUI JOINS
   public HashJoinOperator(
       Operator leftInput, Operator rightInput, List<String> leftJoinCols, List<String> rightJoinCols) {
+    this(leftInput, rightInput, leftJoinCols, rightJoinCols, DEFAULT_MEMORY_BUDGET_BYTES);
+  }
+
+  public HashJoinOperator(Operator leftInput, Operator rightInput, List<String> leftJoinCols,
+      List<String> rightJoinCols, long memoryBudgetBytes) {
+    this(leftInput, rightInput, leftJoinCols, rightJoinCols, BuildSide.RIGHT, memoryBudgetBytes, null);
+  }
+
+  public HashJoinOperator(Operator leftInput, Operator rightInput, List<String> leftJoinCols,
+      List<String> rightJoinCols, SharedJoinBuild sharedBuild) {
+    this(leftInput, rightInput, leftJoinCols, rightJoinCols, BuildSide.RIGHT, DEFAULT_MEMORY_BUDGET_BYTES,
+        sharedBuild);
+  }
+
+  // ONLY WORKS FOR EQUI JOINS
+  /**
+   * @param sharedBuild null unless this is one copy of a parallel pipeline, in which case memoryBudgetBytes is unused
+   */
+  public HashJoinOperator(Operator leftInput, Operator rightInput, List<String> leftJoinCols,
+      List<String> rightJoinCols, BuildSide buildSide, long memoryBudgetBytes, SharedJoinBuild sharedBuild) {
     this.leftInput = leftInput;
     this.rightInput = rightInput;
     this.leftJoinCols = leftJoinCols;
     this.rightJoinCols = rightJoinCols;
-    this.probeTable = new HashMap<>();
-    this.leftColJoinIndexes = leftJoinCols.stream()
-        .map(c -> leftInput.getOutputSchema().columnIndex(c))
-        .collect(toList());
-    this.rightColJoinIndexes = rightJoinCols.stream()
-        .map(c -> rightInput.getOutputSchema().columnIndex(c))
-        .collect(toList());
-    this.temporaryMultipleBuildRowsForKeys = new LinkedList<>();
+    this.memoryBudgetBytes = memoryBudgetBytes;
+    this.sharedBuild = sharedBuild;
+    this.buildSide = buildSide;
+    int[] leftColJoinIndexes = leftJoinCols.stream()
+        .mapToInt(c -> leftInput.getOutputSchema().columnIndex(c))
+        .toArray();
+    int[] rightColJoinIndexes = rightJoinCols.stream()
+        .mapToInt(c -> rightInput.getOutputSchema().columnIndex(c))
+        .toArray();
+    boolean buildLeft = buildSide == BuildSide.LEFT;
+    this.buildSource = buildLeft ? leftInput : rightInput;
+    this.probeSource = buildLeft ? rightInput : leftInput;
+    this.buildKeyIndexes = buildLeft ? leftColJoinIndexes : rightColJoinIndexes;
+    this.probeKeyIndexes = buildLeft ? rightColJoinIndexes : leftColJoinIndexes;
+    this.joinColTypes = rightJoinCols.stream().map(c -> rightInput.getOutputSchema().columnType(c)).collect(toList());
+    for (int i = 0; i < leftJoinCols.size(); i++) {
+      Type leftType = leftInput.getOutputSchema().columnType(leftJoinCols.get(i));
+      if (leftType != joinColTypes.get(i)) {
+        throw new IllegalArgumentException(
+            String.format("Cannot join %s [%s] with %s [%s]", leftJoinCols.get(i), leftType, rightJoinCols.get(i),
+                joinColTypes.get(i)));
+      }
+    }
+    this.keyHasher = new KeyHasher(joinColTypes);
+    this.spilledPartitions = new ArrayDeque<>();
+    this.output = new JoinedRow();
   }
 
   @Override
   public void open() {
-    rightInput.open();
+    nextMatch = NO_MATCH;
+    probeBatchIndex = 0;
+    if (probeBatch != null) {
+      probeBatch.clear();
+    }
+    peakBufferedRows = 0;
+    peakBufferedBytes = 0;
+    if (sharedBuild != null) {
+      probeTable = sharedBuild.getOrBuild(this::buildInMemory);
+      // the shared build doesn't size its rows, only the table
+      peakBufferedRows = probeTable.size();
+      peakBufferedBytes = probeTable.sizeInBytes();
+      probeSource.open();
+      probeInput = probeSource;
+      return;
+    }
+    newProbeTable();
+    HashPartitioner buildPartitioner = null;
+    buildSource.open();
+    while (true) {
+      Row r = buildSource.next();
+      if (r == null) {
+        buildSource.close();
+        break;
+      }
+      if (KeyHasher.hasNullKey(r, buildKeyIndexes)) {
+        continue;
+      }
+      if (buildPartitioner != null) {
+        buildPartitioner.add(r);
+      } else if (!addBuildRow(r.copy())) {
+        buildPartitioner = newPartitioner(buildSource, buildKeyIndexes, 0);
+        for (int i = 0; i < probeTable.size(); i++) {
+          buildPartitioner.add(probeTable.getRow(i));
+        }
+        probeTable = null;
+      }
+    }
+    probeSource.open();
+    if (buildPartitioner == null) {
+      probeInput = probeSource;
+      return;
+    }
+    HashPartitioner probePartitioner = newPartitioner(probeSource, probeKeyIndexes, 0);
     while (true) {
-      Row r = rightInput.next();
+      Row r = probeSource.next();
       if (r == null) {
-        rightInput.close();
+        probeSource.close();
         break;
       }
-      List<Object> joinCols = rightColJoinIndexes.stream().map(r::getAt).collect(toList());
-      if (!probeTable.containsKey(joinCols)) {
-        probeTable.put(joinCols, new ArrayList<>());
+      if (!KeyHasher.hasNullKey(r, probeKeyIndexes)) {
+        probePartitioner.add(r);
       }
-      probeTable.get(joinCols).add(r);
     }
-    leftInput.open();
+    queuePartitions(buildPartitioner.finish(), probePartitioner.finish(), 0);
+    if (!loadNextPartition()) {
+      probeInput = null;
+    }
   }
 
   @Override
   public Row next() {
-    if (!temporaryMultipleBuildRowsForKeys.isEmpty()) {
-      Row buildTableRow = temporaryMultipleBuildRowsForKeys.remove(0);
-      return temporaryProbeRow.combine(buildTableRow);
+    if (nextMatch != NO_MATCH) {
+      return emitMatch(output);
+    }
+    while (probeInput != null) {
+      Row r = probeInput.next();
+      if (r == null) {
+        finishProbeInput();
+        continue;
+      }
+      nextMatch = probeTable.find(r, probeKeyIndexes);
+      if (nextMatch != NO_MATCH) {
+        probeRow = r;
+        return emitMatch(output);
+      }
     }
+    return null;
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (probeBatch == null) {
+      probeBatch = new RowBatch(batch.capacity());
+    }
+    if (batchOutputs == null || batchOutputs.length < batch.capacity()) {
+      batchOutputs = new JoinedRow[batch.capacity()];
+      for (int i = 0; i < batchOutputs.length; i++) {
+        batchOutputs[i] = new JoinedRow();
+      }
+    }
+    batch.clear();
+    while (!batch.isFull()) {
+      if (nextMatch != NO_MATCH) {
+        batch.add(emitMatch(batchOutputs[batch.size()]));
+        continue;
+      }
+      if (probeBatchIndex == probeBatch.size()) {
+        // output rows point into the probe batch and hash table, so neither can change until they are consumed
+        if (batch.size() > 0 || probeInput == null) {
+          break;
+        }
+        probeBatchIndex = 0;
+        if (!probeInput.nextBatch(probeBatch)) {
+          finishProbeInput();
+          continue;
+        }
+      }
+      Row r = probeBatch.get(probeBatchIndex++);
+      nextMatch = probeTable.find(r, probeKeyIndexes);
+      probeRow = r;
+    }
+    return batch.size() > 0;
+  }
+
+  private Row emitMatch(JoinedRow out) {
+    Row buildRow = probeTable.getRow(nextMatch);
+    nextMatch = probeTable.nextMatch(nextMatch);
+    return buildSide == BuildSide.LEFT ? out.set(buildRow, probeRow) : out.set(probeRow, buildRow);
+  }
+
+  private JoinHashTable buildInMemory() {
+    JoinHashTable table = new JoinHashTable(joinColTypes, buildKeyIndexes);
+    buildSource.open();
     while (true) {
-      Row r = leftInput.next();
+      Row r = buildSource.next();
       if (r == null) {
-        leftInput.close();
-        return null;
-      }
-      List<Object> joinCols = leftColJoinIndexes.stream().map(r::getAt).collect(toList());
-      List<Row> rows = probeTable.get(joinCols);
-      if (rows != null) {
-        if (rows.size() > 1) {
-          temporaryProbeRow = r;
-          temporaryMultipleBuildRowsForKeys.addAll(rows);
-          Row buildTableRow = temporaryMultipleBuildRowsForKeys.remove(0);
-          return temporaryProbeRow.combine(buildTableRow);
-        } else {
-          return r.combine(rows.get(0));
+        buildSource.close();
+        return table;
+      }
+      table.add(r.copy());
+    }
+  }
+
+  private void newProbeTable() {
+    probeTable = new JoinHashTable(joinColTypes, buildKeyIndexes);
+    buildRowBytes = 0;
+  }
+
+  /**
+   * @return false once the build side no longer fits in the memory budget
+   */
+  private boolean addBuildRow(Row r) {
+    probeTable.add(r);
+    buildRowBytes += r.estimatedSizeInBytes();
+    long bytes = buildRowBytes + probeTable.sizeInBytes();
+    peakBufferedRows = Math.max(peakBufferedRows, probeTable.size());
+    peakBufferedBytes = Math.max(peakBufferedBytes, bytes);
+    return bytes <= memoryBudgetBytes;
+  }
+
+  private void finishProbeInput() {
+    if (probeInput == probeSource) {
+      probeSource.close();
+      probeInput = null;
+      return;
+    }
+    probeInput.close();
+    currentPartition.delete();
+    currentPartition = null;
+    if (!loadNextPartition()) {
+      probeInput = null;
+    }
+  }
+
+  /**
+   * Build the hash table for the next spilled partition pair, splitting it further if it's still too large
+   *
+   * @return false if no partitions remain
+   */
+  private boolean loadNextPartition() {
+    while (!spilledPartitions.isEmpty()) {
+      SpilledPartition partition = spilledPartitions.pollFirst();
+      if (partition.build.getRowCount() == 0 || partition.probe.getRowCount() == 0) {
+        partition.delete();
+        continue;
+      }
+      newProbeTable();
+      boolean fits = true;
+      Operator buildInput = new SpillScanOperator(partition.build, buildSource.getOutputSchema());
+      buildInput.open();
+      while (true) {
+        Row r = buildInput.next();
+        if (r == null) {
+          break;
+        }
+        if (!addBuildRow(r.copy()) && partition.level < MAX_SPILL_LEVEL) {
+          fits = false;
+          break;
         }
       }
+      buildInput.close();
+      if (!fits) {
+        probeTable = null;
+        repartition(partition);
+        continue;
+      }
+      currentPartition = partition;
+      probeInput = new SpillScanOperator(partition.probe, probeSource.getOutputSchema());
+      probeInput.open();
+      return true;
+    }
+    return false;
+  }
+
+  private void repartition(SpilledPartition partition) {
+    int level = partition.level + 1;
+    List<SpillFile> buildFiles = spill(partition.build, buildSource, buildKeyIndexes, level);
+    List<SpillFile> probeFiles = spill(partition.probe, probeSource, probeKeyIndexes, level);
+    partition.delete();
+    queuePartitions(buildFiles, probeFiles, level);
+  }
+
+  private List<SpillFile> spill(SpillFile file, Operator source, int[] keyIndexes, int level) {
+    HashPartitioner partitioner = newPartitioner(source, keyIndexes, level);
+    Operator scan = new SpillScanOperator(file, source.getOutputSchema());
+    scan.open();
+    while (true) {
+      Row r = scan.next();
+      if (r == null) {
+        break;
+      }
+      partitioner.add(r);
+    }
+    scan.close();
+    return partitioner.finish();
+  }
+
+  private HashPartitioner newPartitioner(Operator source, int[] keyIndexes, int level) {
+    return new HashPartitioner(SPILL_FANOUT, source.getOutputSchema().getColumnTypes(), keyHasher, keyIndexes,
+        level);
+  }
+
+  // sub-partitions go to the front so that spill files are consumed depth first
+  private void queuePartitions(List<SpillFile> buildFiles, List<SpillFile> probeFiles, int level) {
+    for (int i = buildFiles.size() - 1; i >= 0; i--) {
+      spilledPartitions.addFirst(new SpilledPartition(buildFiles.get(i), probeFiles.get(i), level));
     }
   }
 
   @Override
   public void close() {
+    // the probe side is left open when the consumer stops early, e.g. under a LIMIT; the build side only when
+    // building failed
+    buildSource.close();
+    probeSource.close();
+    if (currentPartition != null) {
+      probeInput.close();
+      currentPartition.delete();
+      currentPartition = null;
+    }
+    probeInput = null;
+    spilledPartitions.forEach(SpilledPartition::delete);
+    spilledPartitions.clear();
+  }
 
+  @Override
+  public long getPeakBufferedRows() {
+    return peakBufferedRows;
+  }
+
+  @Override
+  public long getPeakBufferedBytes() {
+    return peakBufferedBytes;
   }
 
   @Override
@@ -119,6 +425,12 @@ public class HashJoinOperator implements Operator {
     sb.append("rightColumns:");
     sb.append(rightJoinCols);
     sb.append(",");
+    if (buildSide == BuildSide.LEFT) {
+      sb.append("buildSide:LEFT,");
+    }
+    if (sharedBuild != null) {
+      sb.append("sharedBuild:true,");
+    }
     sb.append("\n");
     sb.append(Strings.repeat(" ", indentation + 2));
     sb.append("left_input:").append("\n");
@@ -132,4 +444,21 @@ public class HashJoinOperator implements Operator {
     sb.append("]");
     return sb.toString();
   }
+
+  private static class SpilledPartition {
+    private final SpillFile build;
+    private final SpillFile probe;
+    private final int level;
+
+    private SpilledPartition(SpillFile build, SpillFile probe, int level) {
+      this.build = build;
+      this.probe = probe;
+      this.level = level;
+    }
+
+    private void delete() {
+      build.delete();
+      probe.delete();
+    }
+  }
 }
@@ -0,0 +1,97 @@
+package volcano.operator;
+
+import com.google.common.base.Strings;
+
+import volcano.db.Database;
+import volcano.db.Row;
+import volcano.db.Table;
+import volcano.db.TableRow;
+import volcano.db.index.Index;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.filter.FilterClause;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Returns the rows of a table that a clause accepts by looking them up in an index on the clause's column, instead
+ * of scanning every row. Rows come back in table order, as from a {@link ScanOperator}.
+ */
+public class IndexScanOperator implements Operator {
+
+  private static final int[] NO_POSITIONS = new int[0];
+
+  private final Database db;
+  private final String tableName;
+  private final Index index;
+  private final FilterClause clause;
+  private final OutputSchema outputSchema;
+  private int[] positions;
+  private int nextIndex;
+  // reused for every row emitted, one per batch slot
+  private TableRow cursor;
+  private TableRow[] batchCursors;
+
+  /**
+   * @param clause a clause on the index's column that the index can evaluate; its value is read when the operator
+   * is opened
+   */
+  public IndexScanOperator(Database db, String tableName, Index index, FilterClause clause) {
+    if (!index.getColumnName().equals(clause.getColumn())) {
+      throw new IllegalArgumentException(String.format("Index on %s can't evaluate a filter on %s",
+          index.getColumnName(), clause.getColumn()));
+    }
+    this.db = db;
+    this.tableName = tableName;
+    this.index = index;
+    this.clause = clause;
+    Table t = db.getTable(tableName);
+    this.outputSchema = new OutputSchema(t.getColumnNames(), t.getColumnTypes());
+  }
+
+  @Override
+  public void open() {
+    Table table = db.getTable(tableName);
+    this.positions = clause.lookup(index);
+    this.nextIndex = 0;
+    this.cursor = new TableRow(table);
+    this.batchCursors = null;
+  }
+
+  @Override
+  public Row next() {
+    if (nextIndex == positions.length) {
+      return null;
+    }
+    return cursor.setPosition(positions[nextIndex++]);
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchCursors == null || batchCursors.length < batch.capacity()) {
+      batchCursors = new TableRow[batch.capacity()];
+      for (int i = 0; i < batchCursors.length; i++) {
+        batchCursors[i] = new TableRow(db.getTable(tableName));
+      }
+    }
+    batch.clear();
+    for (int i = 0; !batch.isFull() && nextIndex < positions.length; i++) {
+      batch.add(batchCursors[i].setPosition(positions[nextIndex++]));
+    }
+    return batch.size() > 0;
+  }
+
+  @Override
+  public void close() {
+    positions = NO_POSITIONS;
+    nextIndex = 0;
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return outputSchema;
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    return Strings.repeat(" ", indentation) + "index_scan[" + tableName + "," + index.getType() + "," + clause + "]";
+  }
+}
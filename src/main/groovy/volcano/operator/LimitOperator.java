@@ -3,22 +3,34 @@ package volcano.operator;
 import com.google.common.base.Strings;
 
 import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
 import volcano.operator.util.OutputSchema;
 
 public class LimitOperator implements Operator {
 
   private final Operator input;
-  private final int limit;
+  private int limit;
   private int numRowsEmitted;
 
   public LimitOperator(Operator input, int limit) {
     this.input = input;
-    this.limit = limit;
+    setLimit(limit);
     this.numRowsEmitted = 0;
   }
 
+  /**
+   * Change the limit for the next time the operator is opened, e.g. to bind a prepared statement's parameter
+   */
+  public void setLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException(String.format("Limit must not be negative; received %d", limit));
+    }
+    this.limit = limit;
+  }
+
   @Override
   public void open() {
+    numRowsEmitted = 0;
     input.open();
   }
 
@@ -33,8 +45,21 @@ public class LimitOperator implements Operator {
     return input.next();
   }
 
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (numRowsEmitted >= limit || !input.nextBatch(batch)) {
+      batch.clear();
+      input.close();
+      return false;
+    }
+    batch.truncate(limit - numRowsEmitted);
+    numRowsEmitted += batch.size();
+    return true;
+  }
+
   @Override
   public void close() {
+    input.close();
   }
 
   @Override
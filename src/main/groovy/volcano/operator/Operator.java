@@ -1,6 +1,7 @@
 package volcano.operator;
 
 import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
 import volcano.operator.util.OutputSchema;
 
 public interface Operator {
@@ -11,12 +12,34 @@ public interface Operator {
   void open();
 
   /**
-   * @return next input row, or null if no more input
+   * @return next input row, or null if no more input. The row may be reused by the operator, so it is only valid
+   * until the following call; use {@link Row#copy()} to keep it.
    */
   Row next();
 
   /**
-   * Cleanup state for the operator
+   * Fill the caller-owned batch with the next input rows. The batch is cleared first, so callers can reuse a
+   * single batch for the whole scan. Operators without a native batch implementation fall back to {@link #next()}.
+   * A consumer should drive an operator through either next() or nextBatch(), not both.
+   * Rows in the batch are only valid until the following call.
+   *
+   * @return false if no more input
+   */
+  default boolean nextBatch(RowBatch batch) {
+    batch.clear();
+    while (!batch.isFull()) {
+      Row r = next();
+      if (r == null) {
+        break;
+      }
+      batch.add(r.copy());
+    }
+    return batch.size() > 0;
+  }
+
+  /**
+   * Cleanup state for the operator and close its inputs, e.g. when the consumer stops before the last row. Operators
+   * also close an input once it runs out, so close() must tolerate being called again.
    */
   void close();
 
@@ -0,0 +1,53 @@
+package volcano.operator;
+
+import volcano.operator.profile.ProfilingOperator;
+
+/**
+ * Fuses a pipeline of non-blocking operators, a {@link ScanOperator} under any number of {@link FilterOperator}s and
+ * at most one {@link ProjectOperator} on top, into a {@link CompiledPipelineOperator}. Other operators aren't fused
+ * and keep running interpreted. Operators wrapped for profiling are fused through their wrappers.
+ */
+public final class PipelineCompiler {
+
+  private PipelineCompiler() {
+  }
+
+  /**
+   * @return an equivalent operator with the pipeline ending at root fused, or root if it doesn't end one
+   */
+  public static Operator compile(Operator root) {
+    CompiledPipelineOperator compiled = fuse(root);
+    return compiled == null ? root : compiled;
+  }
+
+  // null unless op is a filter or projection whose input can be fused
+  private static CompiledPipelineOperator fuse(Operator op) {
+    if (op instanceof ProfilingOperator) {
+      return fuse(((ProfilingOperator)op).getOperator());
+    }
+    if (op instanceof CompiledPipelineOperator) {
+      return (CompiledPipelineOperator)op;
+    }
+    if (op instanceof FilterOperator) {
+      FilterOperator filter = (FilterOperator)op;
+      CompiledPipelineOperator input = input(filter.getInput());
+      return input == null || input.isProjected() ? null : input.withFilter(filter.getPredicate());
+    }
+    if (op instanceof ProjectOperator) {
+      ProjectOperator project = (ProjectOperator)op;
+      CompiledPipelineOperator input = input(project.getInput());
+      return input == null || input.isProjected() ? null : input.withColumns(project.getColumns());
+    }
+    return null;
+  }
+
+  private static CompiledPipelineOperator input(Operator input) {
+    if (input instanceof ProfilingOperator) {
+      return input(((ProfilingOperator)input).getOperator());
+    }
+    if (input instanceof ScanOperator) {
+      return new CompiledPipelineOperator((ScanOperator)input, null, null);
+    }
+    return fuse(input);
+  }
+}
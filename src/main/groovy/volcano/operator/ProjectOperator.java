@@ -1,12 +1,12 @@
 package volcano.operator;
 
-import static java.util.stream.Collectors.toList;
-
 import java.util.List;
 
 import com.google.common.base.Strings;
 
+import volcano.db.MutableRow;
 import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
 import volcano.operator.util.Column;
 import volcano.operator.util.OutputSchema;
 
@@ -14,20 +14,32 @@ public class ProjectOperator implements Operator {
 
   private final Operator input;
   private final List<Column> columns;
-  private final List<Integer> columnIndexes;
+  private final int[] columnIndexes;
   private final OutputSchema outputSchema;
+  private MutableRow output;
+  private MutableRow[] batchOutputs;
+  private RowBatch inputBatch;
 
   public ProjectOperator(Operator input, List<Column> columns) {
     this.input = input;
     this.columns = columns;
     this.columnIndexes = columns.stream()
-        .map(c -> input.getOutputSchema().columnIndex(c.getName()))
-        .collect(toList());
+        .mapToInt(c -> input.getOutputSchema().columnIndex(c.getName()))
+        .toArray();
     this.outputSchema = new OutputSchema(columns);
   }
 
+  Operator getInput() {
+    return input;
+  }
+
+  List<Column> getColumns() {
+    return columns;
+  }
+
   @Override
   public void open() {
+    output = new MutableRow(outputSchema.getColumnTypes());
     input.open();
   }
 
@@ -38,11 +50,39 @@ public class ProjectOperator implements Operator {
       input.close();
       return null;
     }
-    return new Row(columnIndexes.stream().map(r::getAt).collect(toList()));
+    return project(r, output);
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (inputBatch == null || inputBatch.capacity() != batch.capacity()) {
+      inputBatch = new RowBatch(batch.capacity());
+      batchOutputs = new MutableRow[batch.capacity()];
+      for (int i = 0; i < batchOutputs.length; i++) {
+        batchOutputs[i] = new MutableRow(outputSchema.getColumnTypes());
+      }
+    }
+    batch.clear();
+    if (!input.nextBatch(inputBatch)) {
+      input.close();
+      return false;
+    }
+    for (int i = 0; i < inputBatch.size(); i++) {
+      batch.add(project(inputBatch.get(i), batchOutputs[i]));
+    }
+    return true;
+  }
+
+  private Row project(Row r, MutableRow out) {
+    for (int c = 0; c < columnIndexes.length; c++) {
+      out.copyFrom(c, r, columnIndexes[c]);
+    }
+    return out;
   }
 
   @Override
   public void close() {
+    input.close();
   }
 
   @Override
@@ -1,40 +1,168 @@
 package volcano.operator;
 
-import java.util.Iterator;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 
 import com.google.common.base.Strings;
 
 import volcano.db.Database;
 import volcano.db.Row;
 import volcano.db.Table;
+import volcano.db.TableRow;
+import volcano.db.column.ZoneMap;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.filter.FilterClause;
+import volcano.operator.parallel.MorselQueue;
 import volcano.operator.util.OutputSchema;
 
+/**
+ * Scans a whole table, or when given a {@link MorselQueue}, only the morsels it claims from that queue. Given block
+ * filters, it skips the table blocks whose zone maps show that a filter can't match any of their rows; the filters
+ * must still be applied to the rows that are returned.
+ */
 public class ScanOperator implements Operator {
 
   private final Database db;
   private final String tableName;
   private final OutputSchema outputSchema;
-  private Iterator<Row> rows;
+  private final MorselQueue morsels;
+  private final List<FilterClause> blockFilters;
+  private Table table;
+  // blocks to skip in this execution; null without block filters
+  private BitSet skippedBlocks;
+  private int position;
+  private int end;
+  // reused for every row emitted, one per batch slot
+  private TableRow cursor;
+  private TableRow[] batchCursors;
 
   public ScanOperator(Database db, String tableName) {
+    this(db, tableName, null);
+  }
+
+  public ScanOperator(Database db, String tableName, MorselQueue morsels) {
+    this(db, tableName, morsels, Collections.emptyList());
+  }
+
+  /**
+   * @param blockFilters clauses on the table's columns that every returned row has to pass; their values are read
+   * when the operator is opened
+   */
+  public ScanOperator(Database db, String tableName, MorselQueue morsels, List<FilterClause> blockFilters) {
     this.db = db;
     this.tableName = tableName;
+    this.morsels = morsels;
+    this.blockFilters = blockFilters;
     Table t = db.getTable(tableName);
     this.outputSchema = new OutputSchema(t.getColumnNames(), t.getColumnTypes());
   }
 
   @Override
   public void open() {
-    Table t = db.getTable(tableName);
-    this.rows = t.rows();
+    this.table = db.getTable(tableName);
+    this.position = 0;
+    this.end = morsels == null ? table.rowCount() : 0;
+    this.cursor = new TableRow(table);
+    this.batchCursors = null;
+    this.skippedBlocks = blockFilters.isEmpty() ? null : skippedBlocks();
+  }
+
+  private BitSet skippedBlocks() {
+    BitSet skipped = new BitSet();
+    for (FilterClause filter : blockFilters) {
+      ZoneMap zoneMap = table.zoneMap(table.fieldIdx(filter.getColumn()));
+      for (int b = 0; b < zoneMap.blockCount(); b++) {
+        if (!filter.mayMatch(zoneMap.getMin(b), zoneMap.getMax(b))) {
+          skipped.set(b);
+        }
+      }
+    }
+    return skipped;
+  }
+
+  /**
+   * Move to the next row that is in a block that isn't skipped, claiming a new morsel if needed
+   *
+   * @return false if the scan is done
+   */
+  private boolean advance() {
+    while (true) {
+      if (position == end && !nextMorsel()) {
+        return false;
+      }
+      if (skippedBlocks == null || !skippedBlocks.get(position / Table.BLOCK_SIZE)) {
+        return true;
+      }
+      position = Math.min(end, (position / Table.BLOCK_SIZE + 1) * Table.BLOCK_SIZE);
+    }
   }
 
   @Override
   public Row next() {
-    if (!rows.hasNext()) {
+    if (!advance()) {
       return null;
     }
-    return rows.next();
+    return cursor.setPosition(position++);
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchCursors == null || batchCursors.length < batch.capacity()) {
+      batchCursors = new TableRow[batch.capacity()];
+      for (int i = 0; i < batchCursors.length; i++) {
+        batchCursors[i] = new TableRow(table);
+      }
+    }
+    batch.clear();
+    int start = nextRun(batch.capacity());
+    if (start < 0) {
+      return false;
+    }
+    for (int p = start; p < position; p++) {
+      batch.add(batchCursors[p - start].setPosition(p));
+    }
+    return true;
+  }
+
+  /**
+   * Claim the next run of consecutive positions to read, at most maxRows long; a run never spans two morsels, or a
+   * skipped block. The run ends at {@link #runEnd()}.
+   *
+   * @return the run's first position, or -1 if the scan is done
+   */
+  int nextRun(int maxRows) {
+    if (!advance()) {
+      return -1;
+    }
+    int start = position;
+    int runEnd = Math.min(end, position + maxRows);
+    if (skippedBlocks != null) {
+      runEnd = Math.min(runEnd, (position / Table.BLOCK_SIZE + 1) * Table.BLOCK_SIZE);
+    }
+    position = runEnd;
+    return start;
+  }
+
+  int runEnd() {
+    return position;
+  }
+
+  Table table() {
+    return table;
+  }
+
+  private boolean nextMorsel() {
+    if (morsels == null) {
+      return false;
+    }
+    int start = morsels.claim();
+    if (start < 0) {
+      return false;
+    }
+    position = start;
+    end = morsels.end(start);
+    return true;
   }
 
   @Override
@@ -48,6 +176,7 @@ public class ScanOperator implements Operator {
 
   @Override
   public String printOperator(int indentation) {
-    return Strings.repeat(" ", indentation) + "select[" + tableName + "]";
+    return Strings.repeat(" ", indentation) + "select[" + tableName + (morsels == null ? "" : ",morsels")
+        + (blockFilters.isEmpty() ? "" : ",zoneMaps:" + blockFilters.size()) + "]";
   }
 }
@@ -0,0 +1,286 @@
+package volcano.operator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Strings;
+
+import volcano.db.JoinedRow;
+import volcano.db.Row;
+import volcano.db.Type;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.hash.KeyHasher;
+import volcano.operator.sort.RowComparator;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Equijoin of two inputs that are each sorted ascending on their join columns, in the order the columns are given;
+ * wrap an input that isn't in a {@link SortOperator}. Both inputs are read in step, and only the right rows with
+ * the current key are held, copied, to pair with each left row of that key. Output rows are the left row followed
+ * by the right row, in left input order, so they are sorted on the join columns too. Rows with a null key match
+ * nothing and are skipped wherever they sort.
+ */
+public class SortMergeJoinOperator implements BufferingOperator {
+
+  private final Operator leftInput;
+  private final Operator rightInput;
+  private final List<String> leftJoinCols;
+  private final List<String> rightJoinCols;
+  private final Type[] joinColTypes;
+  private final int[] leftKeyIndexes;
+  private final int[] rightKeyIndexes;
+
+  private Cursor left;
+  private Cursor right;
+  // right rows with the current left row's key
+  private final List<Row> run;
+  private long runBytes;
+  // next row of the run to pair with the current left row
+  private int nextMatch;
+
+  private long peakBufferedRows;
+  private long peakBufferedBytes;
+
+  // reused output rows, one per batch slot
+  private final JoinedRow output;
+  private JoinedRow[] batchOutputs;
+
+  public SortMergeJoinOperator(Operator leftInput, Operator rightInput, List<String> leftJoinCols,
+      List<String> rightJoinCols) {
+    this.leftInput = leftInput;
+    this.rightInput = rightInput;
+    this.leftJoinCols = leftJoinCols;
+    this.rightJoinCols = rightJoinCols;
+    OutputSchema leftSchema = leftInput.getOutputSchema();
+    OutputSchema rightSchema = rightInput.getOutputSchema();
+    this.leftKeyIndexes = leftJoinCols.stream().mapToInt(leftSchema::columnIndex).toArray();
+    this.rightKeyIndexes = rightJoinCols.stream().mapToInt(rightSchema::columnIndex).toArray();
+    this.joinColTypes = new Type[leftJoinCols.size()];
+    for (int i = 0; i < leftJoinCols.size(); i++) {
+      Type leftType = leftSchema.columnType(leftJoinCols.get(i));
+      Type rightType = rightSchema.columnType(rightJoinCols.get(i));
+      if (leftType != rightType) {
+        throw new IllegalArgumentException(
+            String.format("Cannot join %s [%s] with %s [%s]", leftJoinCols.get(i), leftType, rightJoinCols.get(i),
+                rightType));
+      }
+      joinColTypes[i] = leftType;
+    }
+    this.run = new ArrayList<>();
+    this.output = new JoinedRow();
+  }
+
+  @Override
+  public void open() {
+    close();
+    clearRun();
+    nextMatch = 0;
+    peakBufferedRows = 0;
+    peakBufferedBytes = 0;
+    left = new Cursor(leftInput, leftKeyIndexes);
+    right = new Cursor(rightInput, rightKeyIndexes);
+    right.advance(true);
+  }
+
+  @Override
+  public Row next() {
+    if (left.row == null || nextMatch == run.size()) {
+      if (!findMatch(true)) {
+        return null;
+      }
+    }
+    return emitMatch(output);
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchOutputs == null || batchOutputs.length < batch.capacity()) {
+      batchOutputs = new JoinedRow[batch.capacity()];
+      for (int i = 0; i < batchOutputs.length; i++) {
+        batchOutputs[i] = new JoinedRow();
+      }
+    }
+    batch.clear();
+    while (!batch.isFull()) {
+      if (left.row != null && nextMatch < run.size()) {
+        batch.add(emitMatch(batchOutputs[batch.size()]));
+        continue;
+      }
+      // output rows point into the left input's batch, so it can't be replaced until they are consumed
+      if (!findMatch(batch.size() == 0)) {
+        break;
+      }
+    }
+    return batch.size() > 0;
+  }
+
+  private Row emitMatch(JoinedRow out) {
+    return out.set(left.row, run.get(nextMatch++));
+  }
+
+  /**
+   * Move to the next left row that has matching right rows, gathering them into the run unless the previous left
+   * row had the same key
+   *
+   * @return false once no more rows can match, or if the next left row is in the left input's next batch and
+   * fetchLeft is false
+   */
+  private boolean findMatch(boolean fetchLeft) {
+    while (left.advance(fetchLeft)) {
+      Row l = left.row;
+      nextMatch = 0;
+      if (!run.isEmpty() && compareKeys(l, run.get(0)) == 0) {
+        return true;
+      }
+      clearRun();
+      while (right.row != null && compareKeys(l, right.row) > 0) {
+        right.advance(true);
+      }
+      if (right.row == null) {
+        // every later left row has a key past the last right row
+        left.finish();
+        return false;
+      }
+      while (right.row != null && compareKeys(l, right.row) == 0) {
+        Row r = right.row.copy();
+        run.add(r);
+        runBytes += r.estimatedSizeInBytes();
+        right.advance(true);
+      }
+      peakBufferedRows = Math.max(peakBufferedRows, run.size());
+      peakBufferedBytes = Math.max(peakBufferedBytes, runBytes);
+      if (!run.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int compareKeys(Row l, Row r) {
+    for (int k = 0; k < joinColTypes.length; k++) {
+      int c = RowComparator.compareValues(joinColTypes[k], l, leftKeyIndexes[k], r, rightKeyIndexes[k]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private void clearRun() {
+    run.clear();
+    runBytes = 0;
+  }
+
+  @Override
+  public void close() {
+    // an input is left unfinished when the consumer stops early, e.g. under a LIMIT
+    if (left != null) {
+      left.finish();
+    }
+    if (right != null) {
+      right.finish();
+    }
+  }
+
+  @Override
+  public long getPeakBufferedRows() {
+    return peakBufferedRows;
+  }
+
+  @Override
+  public long getPeakBufferedBytes() {
+    return peakBufferedBytes;
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    OutputSchema leftSchema = leftInput.getOutputSchema();
+    OutputSchema rightSchema = rightInput.getOutputSchema();
+    List<String> names = new ArrayList<>();
+    names.addAll(leftSchema.getColumnNames());
+    names.addAll(rightSchema.getColumnNames());
+    List<Type> types = new ArrayList<>();
+    types.addAll(leftSchema.getColumnTypes());
+    types.addAll(rightSchema.getColumnTypes());
+    return new OutputSchema(names, types);
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("merge_join[");
+    sb.append("leftColumns:");
+    sb.append(leftJoinCols);
+    sb.append(",");
+    sb.append("rightColumns:");
+    sb.append(rightJoinCols);
+    sb.append(",");
+    sb.append("\n");
+    sb.append(Strings.repeat(" ", indentation + 2));
+    sb.append("left_input:").append("\n");
+    sb.append(leftInput.printOperator(indentation + 4));
+    sb.append("\n");
+    sb.append(Strings.repeat(" ", indentation + 2));
+    sb.append("right_input:").append("\n");
+    sb.append(rightInput.printOperator(indentation + 4));
+    sb.append("\n");
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("]");
+    return sb.toString();
+  }
+
+  /**
+   * Reads an input a batch at a time, stopping on each row with a non-null key
+   */
+  private static class Cursor {
+    private final Operator input;
+    private final int[] keyIndexes;
+    private final RowBatch batch;
+    private int index;
+    private boolean finished;
+    // the current row, valid until the next batch is read; null before the first row and once finished
+    private Row row;
+
+    private Cursor(Operator input, int[] keyIndexes) {
+      this.input = input;
+      this.keyIndexes = keyIndexes;
+      this.batch = new RowBatch();
+      this.index = -1;
+      input.open();
+    }
+
+    /**
+     * @return false if there are no more rows, or if the next one is in the next batch and fetch is false
+     */
+    private boolean advance(boolean fetch) {
+      while (!finished) {
+        if (index + 1 < batch.size()) {
+          Row r = batch.get(++index);
+          if (!KeyHasher.hasNullKey(r, keyIndexes)) {
+            row = r;
+            return true;
+          }
+          continue;
+        }
+        if (!fetch) {
+          return false;
+        }
+        if (!input.nextBatch(batch)) {
+          finish();
+          return false;
+        }
+        index = -1;
+      }
+      return false;
+    }
+
+    private void finish() {
+      if (!finished) {
+        input.close();
+        finished = true;
+      }
+      row = null;
+    }
+  }
+}
@@ -3,29 +3,58 @@ package volcano.operator;
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 import com.google.common.base.Strings;
 
 import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.sort.LoserTree;
+import volcano.operator.sort.RowComparator;
 import volcano.operator.sort.SortOrder;
+import volcano.operator.spill.SpillFile;
+import volcano.operator.spill.SpillScanOperator;
 import volcano.operator.util.OutputSchema;
 
-public class SortOperator implements Operator {
+/**
+ * External merge sort. Input rows are buffered until the memory budget is reached, then sorted and spilled to a
+ * local run file. The runs, plus whatever is still buffered, are merged k-way with a {@link LoserTree}; if there
+ * are more runs than can be merged at once, consecutive runs are first merged into longer ones. The sort is stable.
+ */
+public class SortOperator implements BufferingOperator {
+
+  public static final long DEFAULT_MEMORY_BUDGET_BYTES = 256L * 1024 * 1024;
+
+  // each open run holds a read buffer, so this bounds the memory a merge needs
+  private static final int MAX_MERGE_FAN_IN = 64;
 
   private final Operator input;
   private final List<String> columns;
   private final List<SortOrder> sortOrders;
-  private final List<Integer> columnIndexes;
+  private final long memoryBudgetBytes;
+  private final RowComparator comparator;
 
   private final List<Row> rows;
+  private long bufferedBytes;
+  private long peakBufferedRows;
+  private long peakBufferedBytes;
+  private final List<SpillFile> runs;
   private int nextIndex;
 
+  // set when runs were spilled
+  private List<SpillScanOperator> runReaders;
+  private LoserTree merge;
+
   public SortOperator(Operator input, List<String> columns, List<SortOrder> sortOrders) {
+    this(input, columns, sortOrders, DEFAULT_MEMORY_BUDGET_BYTES);
+  }
+
+  public SortOperator(Operator input, List<String> columns, List<SortOrder> sortOrders, long memoryBudgetBytes) {
     this.input = input;
     this.columns = columns;
     this.sortOrders = sortOrders;
+    this.memoryBudgetBytes = memoryBudgetBytes;
     if (columns.size() != sortOrders.size()) {
       throw new IllegalArgumentException(
           String.format("column name [%d] and sort order [%d] lists are mismatched", columns.size(),
@@ -34,37 +63,116 @@ public class SortOperator implements Operator {
     if (columns.isEmpty()) {
       throw new IllegalArgumentException("No ordering specified for orderBy node");
     }
-    this.columnIndexes = columns.stream().map(c -> input.getOutputSchema().columnIndex(c)).collect(toList());
+    OutputSchema schema = input.getOutputSchema();
+    this.comparator = new RowComparator(
+        columns.stream().map(schema::columnType).collect(toList()),
+        columns.stream().mapToInt(schema::columnIndex).toArray(), sortOrders);
     this.rows = new ArrayList<>();
+    this.runs = new ArrayList<>();
     this.nextIndex = 0;
   }
 
   // this needs to block until sub operators return entire result set
   @Override
   public void open() {
+    close();
+    peakBufferedRows = 0;
+    peakBufferedBytes = 0;
     input.open();
-    while (true) {
-      Row r = input.next();
-      if (r == null) {
-        break;
+    RowBatch batch = new RowBatch();
+    while (input.nextBatch(batch)) {
+      for (int i = 0; i < batch.size(); i++) {
+        Row r = batch.get(i).copy();
+        rows.add(r);
+        bufferedBytes += r.estimatedSizeInBytes() + 8;
+        if (bufferedBytes > memoryBudgetBytes) {
+          spillRun();
+        }
       }
-      rows.add(r);
     }
-    // apply sorts in reverse order
-    for (int i = columnIndexes.size() - 1; i >= 0; i--) {
-      int colIdx = columnIndexes.get(i);
-      if (sortOrders.get(i) == SortOrder.ASC) {
-        rows.sort(Comparator.comparing(a -> a.getAt(colIdx)));
-      } else {
-        rows.sort((a, b) -> b.getAt(colIdx).compareTo(a.getAt(colIdx)));
+    input.close();
+    recordPeak();
+    rows.sort(comparator);
+    if (!runs.isEmpty()) {
+      mergeRunsDownTo(MAX_MERGE_FAN_IN - 1);
+      // the rows still buffered are merged straight from memory as the last run
+      runReaders = new ArrayList<>();
+      List<LoserTree.Run> sources = openRuns(runs, runReaders);
+      Iterator<Row> buffered = rows.iterator();
+      sources.add(() -> buffered.hasNext() ? buffered.next() : null);
+      merge = new LoserTree(sources, comparator);
+    }
+  }
+
+  private void spillRun() {
+    recordPeak();
+    rows.sort(comparator);
+    SpillFile run = SpillFile.create(input.getOutputSchema().getColumnTypes());
+    try (SpillFile.Writer writer = run.openWriter()) {
+      for (Row r : rows) {
+        writer.write(r);
+      }
+    }
+    runs.add(run);
+    rows.clear();
+    bufferedBytes = 0;
+  }
+
+  private void recordPeak() {
+    peakBufferedRows = Math.max(peakBufferedRows, rows.size());
+    peakBufferedBytes = Math.max(peakBufferedBytes, bufferedBytes);
+  }
+
+  /**
+   * Merge consecutive groups of runs into longer runs until at most maxRuns remain
+   */
+  private void mergeRunsDownTo(int maxRuns) {
+    while (runs.size() > maxRuns) {
+      List<SpillFile> merged = new ArrayList<>();
+      for (int start = 0; start < runs.size(); start += MAX_MERGE_FAN_IN) {
+        List<SpillFile> group = runs.subList(start, Math.min(runs.size(), start + MAX_MERGE_FAN_IN));
+        merged.add(group.size() == 1 ? group.get(0) : mergeToRun(group));
+      }
+      runs.clear();
+      runs.addAll(merged);
+    }
+  }
+
+  private SpillFile mergeToRun(List<SpillFile> group) {
+    List<SpillScanOperator> readers = new ArrayList<>();
+    LoserTree groupMerge = new LoserTree(openRuns(group, readers), comparator);
+    SpillFile run = SpillFile.create(input.getOutputSchema().getColumnTypes());
+    try (SpillFile.Writer writer = run.openWriter()) {
+      while (true) {
+        Row r = groupMerge.next();
+        if (r == null) {
+          break;
+        }
+        writer.write(r);
       }
     }
+    readers.forEach(SpillScanOperator::close);
+    group.forEach(SpillFile::delete);
+    return run;
+  }
+
+  private List<LoserTree.Run> openRuns(List<SpillFile> files, List<SpillScanOperator> readers) {
+    List<LoserTree.Run> sources = new ArrayList<>();
+    for (SpillFile file : files) {
+      SpillScanOperator reader = new SpillScanOperator(file, input.getOutputSchema());
+      reader.open();
+      readers.add(reader);
+      sources.add(reader::next);
+    }
+    return sources;
   }
 
   @Override
   public Row next() {
+    if (merge != null) {
+      return merge.next();
+    }
     if (nextIndex == rows.size()) {
-      input.close();
       return null;
     }
     Row r = rows.get(nextIndex);
@@ -72,8 +180,41 @@ public class SortOperator implements Operator {
     return r;
   }
 
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (merge != null) {
+      // merged rows are read back into reused rows, so they have to be copied
+      return BufferingOperator.super.nextBatch(batch);
+    }
+    batch.clear();
+    while (!batch.isFull() && nextIndex < rows.size()) {
+      batch.add(rows.get(nextIndex++));
+    }
+    return batch.size() > 0;
+  }
+
   @Override
   public void close() {
+    if (runReaders != null) {
+      runReaders.forEach(SpillScanOperator::close);
+      runReaders = null;
+    }
+    merge = null;
+    runs.forEach(SpillFile::delete);
+    runs.clear();
+    rows.clear();
+    bufferedBytes = 0;
+    nextIndex = 0;
+  }
+
+  @Override
+  public long getPeakBufferedRows() {
+    return peakBufferedRows;
+  }
+
+  @Override
+  public long getPeakBufferedBytes() {
+    return peakBufferedBytes;
   }
 
   @Override
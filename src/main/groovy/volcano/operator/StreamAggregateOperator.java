@@ -0,0 +1,179 @@
+package volcano.operator;
+
+import static java.util.Collections.nCopies;
+
+import java.util.List;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.operator.aggregate.Accumulator;
+import volcano.operator.aggregate.AggregateColumns;
+import volcano.operator.aggregate.AggregateColumns.KeyCopier;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.sort.RowComparator;
+import volcano.operator.sort.SortOrder;
+import volcano.operator.util.Column;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Aggregation over input already sorted on the grouping columns, in any order and direction, so that the rows of a
+ * group arrive together. A group is passed on as soon as a row with another key arrives, and only the current
+ * group's key and state are kept, so output starts with the first group and memory doesn't grow with the number
+ * of groups. Groups come out in input order.
+ */
+public class StreamAggregateOperator implements Operator {
+
+  // groups that take a slot of the accumulators in turn before they are replaced with empty ones; a group's result
+  // is written out before the next group starts, so the slots only spare resetting the accumulators for each group
+  private static final int SLOTS = RowBatch.DEFAULT_CAPACITY;
+
+  private final Operator input;
+  private final AggregateColumns columns;
+  private final RowComparator keyComparator;
+  // copies grouping keys out of the current group's key
+  private final KeyCopier keys;
+
+  private Accumulator[] accumulators;
+  private int slot;
+  // the current group's key, at the grouping columns' input positions
+  private MutableRow groupKey;
+  private boolean inGroup;
+  private boolean exhausted;
+
+  private RowBatch inputBatch;
+  private int inputPosition;
+  private MutableRow output;
+  private MutableRow[] batchOutputs;
+
+  public StreamAggregateOperator(Operator input, List<Column> columns) {
+    this(input, columns, false);
+  }
+
+  public StreamAggregateOperator(Operator input, List<Column> columns, boolean exactDecimal) {
+    this.input = input;
+    this.columns = new AggregateColumns(input.getOutputSchema(), columns, exactDecimal);
+    int[] groupingColIndexes = this.columns.getGroupingColIndexes();
+    this.keyComparator = new RowComparator(this.columns.getGroupingColTypes(), groupingColIndexes,
+        nCopies(groupingColIndexes.length, SortOrder.ASC));
+    this.keys = (group, key, out, column) -> out.copyFrom(column, groupKey, groupingColIndexes[key]);
+  }
+
+  /**
+   * Set the percentile an APPROX_PERCENTILE column reports, which may change between executions of a prepared plan
+   */
+  public void setFraction(Column aggregate, double fraction) {
+    columns.setFraction(aggregate, fraction);
+  }
+
+  @Override
+  public void open() {
+    resetAccumulators();
+    groupKey = new MutableRow(input.getOutputSchema().getColumnTypes());
+    inGroup = false;
+    exhausted = false;
+    inputBatch = null;
+    output = new MutableRow(columns.getOutputSchema().getColumnTypes());
+    input.open();
+  }
+
+  @Override
+  public Row next() {
+    while (!exhausted) {
+      Row r = input.next();
+      if (r == null) {
+        input.close();
+        exhausted = true;
+        // an ungrouped aggregate over no rows still produces one row
+        return inGroup || !columns.isGrouped() ? emit(output) : null;
+      }
+      if (add(r)) {
+        return output;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchOutputs == null || batchOutputs.length < batch.capacity()) {
+      batchOutputs = new MutableRow[batch.capacity()];
+      for (int i = 0; i < batchOutputs.length; i++) {
+        batchOutputs[i] = new MutableRow(columns.getOutputSchema().getColumnTypes());
+      }
+    }
+    if (inputBatch == null) {
+      inputBatch = new RowBatch();
+      inputPosition = 0;
+    }
+    batch.clear();
+    while (!batch.isFull() && !exhausted) {
+      if (inputPosition == inputBatch.size()) {
+        inputPosition = 0;
+        if (!input.nextBatch(inputBatch)) {
+          input.close();
+          exhausted = true;
+          if (inGroup || !columns.isGrouped()) {
+            batch.add(emit(batchOutputs[batch.size()]));
+          }
+        }
+        continue;
+      }
+      output = batchOutputs[batch.size()];
+      if (add(inputBatch.get(inputPosition++))) {
+        batch.add(output);
+      }
+    }
+    return batch.size() > 0;
+  }
+
+  /**
+   * Fold a row into its group, first writing the previous group's result to the output row if the row starts a new
+   * one
+   *
+   * @return true if a group was completed
+   */
+  private boolean add(Row r) {
+    boolean completed = inGroup && keyComparator.compare(groupKey, r) != 0;
+    if (completed) {
+      emit(output);
+      if (++slot == SLOTS) {
+        resetAccumulators();
+      }
+    }
+    if (completed || !inGroup) {
+      for (int index : columns.getGroupingColIndexes()) {
+        groupKey.copyFrom(index, r, index);
+      }
+      inGroup = true;
+    }
+    columns.add(accumulators, slot, r);
+    return completed;
+  }
+
+  private void resetAccumulators() {
+    accumulators = columns.createAccumulators();
+    for (Accumulator accumulator : accumulators) {
+      accumulator.ensureCapacity(SLOTS);
+    }
+    slot = 0;
+  }
+
+  private Row emit(MutableRow out) {
+    return columns.emit(slot, accumulators, keys, out);
+  }
+
+  @Override
+  public void close() {
+    input.close();
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return columns.getOutputSchema();
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    return columns.printOperator("stream_aggregate", input, indentation);
+  }
+}
@@ -0,0 +1,108 @@
+package volcano.operator;
+
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+
+import com.google.common.base.Strings;
+
+import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.sort.RowComparator;
+import volcano.operator.sort.SortOrder;
+import volcano.operator.util.Column;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * DISTINCT over input already sorted on the distinct columns, in any order and direction, so that rows with equal
+ * keys arrive together. Only the last row passed on is kept, to compare the next one with.
+ */
+public class StreamDistinctOperator implements Operator {
+
+  private final Operator input;
+  private final List<Column> distinctColumns;
+  private final RowComparator keyComparator;
+
+  private Row previous;
+
+  public StreamDistinctOperator(Operator input, List<Column> distinctColumns) {
+    this.input = input;
+    this.distinctColumns = distinctColumns;
+    OutputSchema inputSchema = input.getOutputSchema();
+    this.keyComparator = new RowComparator(
+        distinctColumns.stream().map(c -> inputSchema.columnType(c.getName())).collect(toList()),
+        distinctColumns.stream().mapToInt(c -> inputSchema.columnIndex(c.getName())).toArray(),
+        nCopies(distinctColumns.size(), SortOrder.ASC));
+  }
+
+  @Override
+  public void open() {
+    previous = null;
+    input.open();
+  }
+
+  @Override
+  public Row next() {
+    while (true) {
+      Row r = input.next();
+      if (r == null) {
+        input.close();
+        return null;
+      }
+      if (accept(r)) {
+        return r;
+      }
+    }
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    while (input.nextBatch(batch)) {
+      int[] selection = batch.selection();
+      int numSelected = 0;
+      for (int i = 0; i < batch.size(); i++) {
+        int rowIndex = batch.rowIndex(i);
+        if (accept(batch.rowAt(rowIndex))) {
+          selection[numSelected++] = rowIndex;
+        }
+      }
+      batch.setSelected(numSelected);
+      if (numSelected > 0) {
+        return true;
+      }
+    }
+    input.close();
+    return false;
+  }
+
+  private boolean accept(Row r) {
+    if (previous != null && keyComparator.compare(previous, r) == 0) {
+      return false;
+    }
+    previous = r.copy();
+    return true;
+  }
+
+  @Override
+  public void close() {
+    input.close();
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return input.getOutputSchema();
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("stream_distinct[");
+    sb.append("columns:").append(distinctColumns.stream().map(Column::getName).collect(toList())).append(",");
+    sb.append("input:").append("\n");
+    sb.append(input.printOperator(indentation + 2));
+    sb.append("]");
+    return sb.toString();
+  }
+}
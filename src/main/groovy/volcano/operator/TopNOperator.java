@@ -0,0 +1,203 @@
+package volcano.operator;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Strings;
+
+import volcano.db.Row;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.sort.RowComparator;
+import volcano.operator.sort.SortOrder;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * ORDER BY ... LIMIT n without sorting everything: a max-heap keeps the n smallest rows seen so far, so a row that
+ * doesn't beat the current n-th is dropped without being copied. Ties are broken by arrival order, giving the same
+ * result as a stable sort followed by a limit.
+ */
+public class TopNOperator implements Operator {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Operator input;
+  private final List<String> columns;
+  private final List<SortOrder> sortOrders;
+  private int limit;
+  private final RowComparator comparator;
+
+  // binary max-heap on (row, arrival sequence); sorted ascending once the input is consumed
+  private Row[] heap;
+  private long[] sequences;
+  private int size;
+  private int nextIndex;
+
+  public TopNOperator(Operator input, List<String> columns, List<SortOrder> sortOrders, int limit) {
+    if (columns.size() != sortOrders.size()) {
+      throw new IllegalArgumentException(
+          String.format("column name [%d] and sort order [%d] lists are mismatched", columns.size(),
+              sortOrders.size()));
+    }
+    this.input = input;
+    this.columns = columns;
+    this.sortOrders = sortOrders;
+    setLimit(limit);
+    OutputSchema schema = input.getOutputSchema();
+    this.comparator = new RowComparator(columns.stream().map(schema::columnType).collect(toList()),
+        columns.stream().mapToInt(schema::columnIndex).toArray(), sortOrders);
+  }
+
+  // takes effect the next time the operator is opened
+  public void setLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException(String.format("Limit must not be negative; received %d", limit));
+    }
+    this.limit = limit;
+  }
+
+  @Override
+  public void open() {
+    heap = new Row[Math.min(limit, INITIAL_CAPACITY)];
+    sequences = new long[heap.length];
+    size = 0;
+    nextIndex = 0;
+    if (limit == 0) {
+      return;
+    }
+    long sequence = 0;
+    input.open();
+    RowBatch batch = new RowBatch();
+    while (input.nextBatch(batch)) {
+      for (int i = 0; i < batch.size(); i++) {
+        offer(batch.get(i), sequence++);
+      }
+    }
+    input.close();
+    sortHeap();
+  }
+
+  private void offer(Row r, long sequence) {
+    if (size < limit) {
+      if (size == heap.length) {
+        int capacity = (int)Math.min(limit, 2L * heap.length);
+        heap = Arrays.copyOf(heap, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+      }
+      heap[size] = r.copy();
+      sequences[size] = sequence;
+      siftUp(size++);
+    } else if (comparator.compare(r, heap[0]) < 0) {
+      // later arrivals lose ties, so only a strictly smaller row replaces the largest
+      heap[0] = r.copy();
+      sequences[0] = sequence;
+      siftDown(0, size);
+    }
+  }
+
+  private boolean greater(int a, int b) {
+    int c = comparator.compare(heap[a], heap[b]);
+    return c > 0 || (c == 0 && sequences[a] > sequences[b]);
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >> 1;
+      if (!greater(i, parent)) {
+        return;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i, int end) {
+    while (true) {
+      int largest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+      if (left < end && greater(left, largest)) {
+        largest = left;
+      }
+      if (right < end && greater(right, largest)) {
+        largest = right;
+      }
+      if (largest == i) {
+        return;
+      }
+      swap(i, largest);
+      i = largest;
+    }
+  }
+
+  // heapsort in place: repeatedly move the largest row to the end of the shrinking heap
+  private void sortHeap() {
+    for (int end = size - 1; end > 0; end--) {
+      swap(0, end);
+      siftDown(0, end);
+    }
+  }
+
+  private void swap(int a, int b) {
+    Row r = heap[a];
+    heap[a] = heap[b];
+    heap[b] = r;
+    long s = sequences[a];
+    sequences[a] = sequences[b];
+    sequences[b] = s;
+  }
+
+  @Override
+  public Row next() {
+    if (nextIndex == size) {
+      return null;
+    }
+    return heap[nextIndex++];
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    batch.clear();
+    while (!batch.isFull() && nextIndex < size) {
+      batch.add(heap[nextIndex++]);
+    }
+    return batch.size() > 0;
+  }
+
+  @Override
+  public void close() {
+    input.close();
+    heap = null;
+    sequences = null;
+    size = 0;
+    nextIndex = 0;
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return input.getOutputSchema();
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("top_n[");
+    sb.append("limit:");
+    sb.append(limit);
+    sb.append(",");
+    sb.append("columns:");
+    for (int i = 0; i < columns.size(); i++) {
+      sb.append(columns.get(i)).append(" ").append(sortOrders.get(i));
+      if (i != columns.size() - 1) {
+        sb.append(",");
+      }
+    }
+    sb.append(",");
+    sb.append("input:").append("\n");
+    sb.append(input.printOperator(indentation + 2));
+    sb.append("]");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,579 @@
+package volcano.operator.aggregate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.google.common.hash.Hashing;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.db.Type;
+import volcano.db.column.Dictionary;
+
+/**
+ * Running state of one aggregate function for every group, held in flat arrays indexed by group id.
+ * Callers only pass non-null input values; groups that never saw a value produce null (or 0 for COUNT).
+ */
+public abstract class Accumulator {
+
+  public static Accumulator create(AggregateFn fn, Type inputType, boolean exactDecimal) {
+    return create(fn, inputType, exactDecimal, 0.5);
+  }
+
+  /**
+   * @param fraction percentile that APPROX_PERCENTILE reports, between 0 and 1; ignored by other functions
+   */
+  public static Accumulator create(AggregateFn fn, Type inputType, boolean exactDecimal, double fraction) {
+    switch (fn) {
+    case COUNT:
+      return new CountAccumulator();
+    case SUM:
+      return sum(inputType, exactDecimal);
+    case AVG:
+      return new AvgAccumulator(sum(inputType, exactDecimal));
+    case MIN:
+    case MAX:
+      return minMax(inputType, fn == AggregateFn.MAX);
+    case APPROX_COUNT_DISTINCT:
+      return new ApproxCountDistinctAccumulator(inputType);
+    case APPROX_MEDIAN:
+      return percentile(inputType, 0.5);
+    case APPROX_PERCENTILE:
+      return percentile(inputType, fraction);
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized aggr fn %s", fn));
+    }
+  }
+
+  private static SumAccumulator sum(Type inputType, boolean exactDecimal) {
+    if (inputType != Type.INT && inputType != Type.DOUBLE) {
+      throw new IllegalArgumentException(String.format("Cannot sum values of type %s", inputType));
+    }
+    if (exactDecimal) {
+      return new DecimalSumAccumulator(inputType);
+    }
+    return inputType == Type.INT ? new LongSumAccumulator() : new DoubleSumAccumulator();
+  }
+
+  private static Accumulator percentile(Type inputType, double fraction) {
+    if (inputType != Type.INT && inputType != Type.DOUBLE) {
+      throw new IllegalArgumentException(String.format("Cannot compute percentiles of type %s", inputType));
+    }
+    if (!(fraction >= 0 && fraction <= 1)) {
+      throw new IllegalArgumentException(String.format("Percentile must be between 0 and 1; received %s", fraction));
+    }
+    return new ApproxPercentileAccumulator(inputType, fraction);
+  }
+
+  private static Accumulator minMax(Type inputType, boolean max) {
+    switch (inputType) {
+    case INT:
+      return new IntMinMaxAccumulator(max);
+    case DOUBLE:
+      return new DoubleMinMaxAccumulator(max);
+    default:
+      return new ComparableMinMaxAccumulator(max);
+    }
+  }
+
+  /**
+   * Make room for groups [0, groups)
+   */
+  public abstract void ensureCapacity(int groups);
+
+  public abstract void add(int group, Row row, int index);
+
+  public abstract void writeResult(int group, MutableRow row, int index);
+
+  /**
+   * Fold a group of another accumulator for the same function and input type into {@code group}, which then
+   * reports the result over both groups' values. Only the APPROX_ functions, whose sketches are built to be merged,
+   * support it so far.
+   */
+  public void merge(int group, Accumulator other, int otherGroup) {
+    throw new UnsupportedOperationException(String.format("%s cannot be merged", getClass().getSimpleName()));
+  }
+
+  public abstract long sizeInBytes();
+
+  static int grow(int length, int capacity) {
+    return Math.max(capacity, Math.max(16, length + (length >> 1)));
+  }
+
+  private static class CountAccumulator extends Accumulator {
+    private long[] counts = new long[0];
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > counts.length) {
+        counts = Arrays.copyOf(counts, grow(counts.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      counts[group]++;
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      row.setInt(index, (int)counts[group]);
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * counts.length;
+    }
+  }
+
+  private abstract static class SumAccumulator extends Accumulator {
+    protected final BitSet seen = new BitSet();
+
+    abstract double doubleSum(int group);
+
+    BigDecimal decimalSum(int group) {
+      return BigDecimal.valueOf(doubleSum(group));
+    }
+
+    boolean isExact() {
+      return false;
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      if (seen.get(group)) {
+        row.setDouble(index, doubleSum(group));
+      } else {
+        row.setNull(index);
+      }
+    }
+  }
+
+  private static class LongSumAccumulator extends SumAccumulator {
+    private long[] sums = new long[0];
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > sums.length) {
+        sums = Arrays.copyOf(sums, grow(sums.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      sums[group] += row.getInt(index);
+      seen.set(group);
+    }
+
+    @Override
+    double doubleSum(int group) {
+      return sums[group];
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * sums.length + seen.size() / 8;
+    }
+  }
+
+  private static class DoubleSumAccumulator extends SumAccumulator {
+    private double[] sums = new double[0];
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > sums.length) {
+        sums = Arrays.copyOf(sums, grow(sums.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      sums[group] += row.getDouble(index);
+      seen.set(group);
+    }
+
+    @Override
+    double doubleSum(int group) {
+      return sums[group];
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * sums.length + seen.size() / 8;
+    }
+  }
+
+  // exact-decimal mode: no rounding error builds up across additions
+  private static class DecimalSumAccumulator extends SumAccumulator {
+    private final Type inputType;
+    private BigDecimal[] sums = new BigDecimal[0];
+
+    DecimalSumAccumulator(Type inputType) {
+      this.inputType = inputType;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > sums.length) {
+        int oldLength = sums.length;
+        sums = Arrays.copyOf(sums, grow(sums.length, groups));
+        Arrays.fill(sums, oldLength, sums.length, BigDecimal.ZERO);
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      BigDecimal value = inputType == Type.INT
+          ? BigDecimal.valueOf(row.getInt(index))
+          : BigDecimal.valueOf(row.getDouble(index));
+      sums[group] = sums[group].add(value);
+      seen.set(group);
+    }
+
+    @Override
+    double doubleSum(int group) {
+      return sums[group].doubleValue();
+    }
+
+    @Override
+    BigDecimal decimalSum(int group) {
+      return sums[group];
+    }
+
+    @Override
+    boolean isExact() {
+      return true;
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 48L * sums.length + seen.size() / 8;
+    }
+  }
+
+  private static class AvgAccumulator extends Accumulator {
+    private final SumAccumulator sum;
+    private long[] counts = new long[0];
+
+    AvgAccumulator(SumAccumulator sum) {
+      this.sum = sum;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      sum.ensureCapacity(groups);
+      if (groups > counts.length) {
+        counts = Arrays.copyOf(counts, grow(counts.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      sum.add(group, row, index);
+      counts[group]++;
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      if (counts[group] == 0) {
+        row.setNull(index);
+      } else if (sum.isExact()) {
+        row.setDouble(index,
+            sum.decimalSum(group).divide(BigDecimal.valueOf(counts[group]), MathContext.DECIMAL128).doubleValue());
+      } else {
+        row.setDouble(index, sum.doubleSum(group) / counts[group]);
+      }
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return sum.sizeInBytes() + 8L * counts.length;
+    }
+  }
+
+  private static class IntMinMaxAccumulator extends Accumulator {
+    private final boolean max;
+    private final BitSet seen = new BitSet();
+    private int[] values = new int[0];
+
+    IntMinMaxAccumulator(boolean max) {
+      this.max = max;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      int v = row.getInt(index);
+      if (!seen.get(group)) {
+        seen.set(group);
+        values[group] = v;
+      } else if (max ? v > values[group] : v < values[group]) {
+        values[group] = v;
+      }
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      if (seen.get(group)) {
+        row.setInt(index, values[group]);
+      } else {
+        row.setNull(index);
+      }
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 4L * values.length + seen.size() / 8;
+    }
+  }
+
+  private static class DoubleMinMaxAccumulator extends Accumulator {
+    private final boolean max;
+    private final BitSet seen = new BitSet();
+    private double[] values = new double[0];
+
+    DoubleMinMaxAccumulator(boolean max) {
+      this.max = max;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      double v = row.getDouble(index);
+      if (!seen.get(group)) {
+        seen.set(group);
+        values[group] = v;
+      } else {
+        int cmp = Double.compare(v, values[group]);
+        if (max ? cmp > 0 : cmp < 0) {
+          values[group] = v;
+        }
+      }
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      if (seen.get(group)) {
+        row.setDouble(index, values[group]);
+      } else {
+        row.setNull(index);
+      }
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * values.length + seen.size() / 8;
+    }
+  }
+
+  private static class ComparableMinMaxAccumulator extends Accumulator {
+    private final boolean max;
+    private Comparable[] values = new Comparable[0];
+
+    ComparableMinMaxAccumulator(boolean max) {
+      this.max = max;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      Comparable v = row.getAt(index);
+      if (values[group] == null) {
+        values[group] = v;
+      } else {
+        int cmp = v.compareTo(values[group]);
+        if (max ? cmp > 0 : cmp < 0) {
+          values[group] = v;
+        }
+      }
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      row.set(index, values[group]);
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * values.length;
+    }
+  }
+
+  /**
+   * A HyperLogLog sketch per group. Values are hashed to 64 bits; a dictionary-encoded string is hashed once per
+   * code rather than once per row.
+   */
+  private static class ApproxCountDistinctAccumulator extends Accumulator {
+    private final Type inputType;
+    private HyperLogLog[] sketches = new HyperLogLog[0];
+    private long sketchBytes;
+
+    private Dictionary dictionary;
+    private long[] codeHashes;
+    private BitSet hashedCodes;
+
+    ApproxCountDistinctAccumulator(Type inputType) {
+      this.inputType = inputType;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > sketches.length) {
+        sketches = Arrays.copyOf(sketches, grow(sketches.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      HyperLogLog sketch = sketches[group];
+      if (sketch == null) {
+        sketch = sketches[group] = new HyperLogLog();
+      } else {
+        sketchBytes -= sketch.sizeInBytes();
+      }
+      sketch.add(hash(row, index));
+      sketchBytes += sketch.sizeInBytes();
+    }
+
+    @Override
+    public void merge(int group, Accumulator other, int otherGroup) {
+      HyperLogLog otherSketch = ((ApproxCountDistinctAccumulator)other).sketches[otherGroup];
+      if (otherSketch == null) {
+        return;
+      }
+      HyperLogLog sketch = sketches[group];
+      if (sketch == null) {
+        sketch = sketches[group] = new HyperLogLog();
+      } else {
+        sketchBytes -= sketch.sizeInBytes();
+      }
+      sketch.merge(otherSketch);
+      sketchBytes += sketch.sizeInBytes();
+    }
+
+    private long hash(Row row, int index) {
+      switch (inputType) {
+      case INT:
+        return HyperLogLog.hash(row.getInt(index));
+      case DOUBLE:
+        return HyperLogLog.hash(Double.doubleToLongBits(row.getDouble(index)));
+      case BOOLEAN:
+        return HyperLogLog.hash(row.getBoolean(index) ? 1 : 0);
+      case STRING:
+        Dictionary rowDictionary = row.getDictionary(index);
+        if (rowDictionary == null) {
+          return stringHash(row.getString(index));
+        }
+        if (rowDictionary != dictionary) {
+          dictionary = rowDictionary;
+          codeHashes = new long[dictionary.size()];
+          hashedCodes = new BitSet(dictionary.size());
+        }
+        int code = row.getCode(index);
+        if (!hashedCodes.get(code)) {
+          codeHashes[code] = stringHash(dictionary.value(code));
+          hashedCodes.set(code);
+        }
+        return codeHashes[code];
+      default:
+        throw new IllegalArgumentException(String.format("Unrecognized type %s", inputType));
+      }
+    }
+
+    private static long stringHash(String value) {
+      return Hashing.murmur3_128().hashUnencodedChars(value).asLong();
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      row.setInt(index, sketches[group] == null ? 0 : (int)sketches[group].estimate());
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * sketches.length + sketchBytes + (codeHashes == null ? 0 : 8L * codeHashes.length);
+    }
+  }
+
+  // a t-digest per group
+  private static class ApproxPercentileAccumulator extends Accumulator {
+    private final Type inputType;
+    private final double fraction;
+    private TDigest[] digests = new TDigest[0];
+    private long digestBytes;
+
+    ApproxPercentileAccumulator(Type inputType, double fraction) {
+      this.inputType = inputType;
+      this.fraction = fraction;
+    }
+
+    @Override
+    public void ensureCapacity(int groups) {
+      if (groups > digests.length) {
+        digests = Arrays.copyOf(digests, grow(digests.length, groups));
+      }
+    }
+
+    @Override
+    public void add(int group, Row row, int index) {
+      TDigest digest = digests[group];
+      if (digest == null) {
+        digest = digests[group] = new TDigest();
+      } else {
+        digestBytes -= digest.sizeInBytes();
+      }
+      digest.add(inputType == Type.INT ? row.getInt(index) : row.getDouble(index));
+      digestBytes += digest.sizeInBytes();
+    }
+
+    @Override
+    public void merge(int group, Accumulator other, int otherGroup) {
+      TDigest otherDigest = ((ApproxPercentileAccumulator)other).digests[otherGroup];
+      if (otherDigest == null) {
+        return;
+      }
+      TDigest digest = digests[group];
+      if (digest == null) {
+        digest = digests[group] = new TDigest();
+      } else {
+        digestBytes -= digest.sizeInBytes();
+      }
+      digest.merge(otherDigest);
+      digestBytes += digest.sizeInBytes();
+    }
+
+    @Override
+    public void writeResult(int group, MutableRow row, int index) {
+      if (digests[group] == null) {
+        row.setNull(index);
+      } else {
+        row.setDouble(index, digests[group].quantile(fraction));
+      }
+    }
+
+    @Override
+    public long sizeInBytes() {
+      return 8L * digests.length + digestBytes;
+    }
+  }
+}
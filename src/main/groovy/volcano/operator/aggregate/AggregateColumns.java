@@ -0,0 +1,200 @@
+package volcano.operator.aggregate;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Strings;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.db.Type;
+import volcano.operator.Operator;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.util.Column;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Select list of an aggregate, resolved against its input: the grouping columns, the aggregates and the
+ * accumulators that compute them, and how each output column is filled in. Shared by the hash and the streaming
+ * aggregate, which differ only in how they find a row's group.
+ */
+public class AggregateColumns {
+
+  private final List<Column> groupingColumns;
+  private final List<Column> aggrColumns;
+  private final boolean exactDecimal;
+
+  private final int[] groupingColIndexes;
+  private final List<Type> groupingColTypes;
+  private final int[] aggrColIndexes;
+  private final List<Type> aggrColTypes;
+  // percentile each aggregate reports, for APPROX_PERCENTILE
+  private final double[] fractions;
+  // for each output column, the grouping key it copies (>= 0) or the aggregate it reports (-1 - aggregate index)
+  private final int[] outputSources;
+  private final OutputSchema outputSchema;
+
+  public AggregateColumns(OutputSchema inputSchema, List<Column> columns, boolean exactDecimal) {
+    this.exactDecimal = exactDecimal;
+    this.groupingColumns = columns.stream().filter(Column::isGrouping).collect(toList());
+    this.aggrColumns = columns.stream().filter(c -> c.getFn().isPresent()).collect(toList());
+    this.groupingColIndexes = groupingColumns.stream().mapToInt(c -> inputSchema.columnIndex(c.getName())).toArray();
+    this.groupingColTypes = groupingColumns.stream().map(c -> inputSchema.columnType(c.getName())).collect(toList());
+    this.aggrColIndexes = aggrColumns.stream().mapToInt(c -> inputSchema.columnIndex(c.getName())).toArray();
+    this.aggrColTypes = aggrColumns.stream().map(c -> inputSchema.columnType(c.getName())).collect(toList());
+    this.fractions = new double[aggrColumns.size()];
+    Arrays.fill(fractions, 0.5);
+    this.outputSources = new int[columns.size()];
+    for (int i = 0; i < columns.size(); i++) {
+      Column c = columns.get(i);
+      if (c.getFn().isPresent()) {
+        outputSources[i] = -1 - aggrColumns.indexOf(c);
+      } else if (c.isGrouping()) {
+        outputSources[i] = groupingColumns.indexOf(c);
+      } else {
+        throw new IllegalArgumentException(
+            String.format("Column %s must be grouped or aggregated", c.getName()));
+      }
+    }
+    this.outputSchema = new OutputSchema(columns);
+  }
+
+  /**
+   * Set the percentile an APPROX_PERCENTILE column reports, which may change between executions of a prepared plan
+   */
+  public void setFraction(Column aggregate, double fraction) {
+    int a = aggrColumns.indexOf(aggregate);
+    if (a < 0 || aggregate.getFn().get() != AggregateFn.APPROX_PERCENTILE) {
+      throw new IllegalArgumentException(String.format("%s is not an APPROX_PERCENTILE column", aggregate));
+    }
+    if (!(fraction >= 0 && fraction <= 1)) {
+      throw new IllegalArgumentException(String.format("Percentile must be between 0 and 1; received %s", fraction));
+    }
+    fractions[a] = fraction;
+  }
+
+  public boolean isGrouped() {
+    return !groupingColumns.isEmpty();
+  }
+
+  public List<Column> getGroupingColumns() {
+    return groupingColumns;
+  }
+
+  /**
+   * @return input position of each grouping column
+   */
+  public int[] getGroupingColIndexes() {
+    return groupingColIndexes;
+  }
+
+  public List<Type> getGroupingColTypes() {
+    return groupingColTypes;
+  }
+
+  public OutputSchema getOutputSchema() {
+    return outputSchema;
+  }
+
+  /**
+   * @return an empty accumulator for each aggregate, in select-list order
+   */
+  public Accumulator[] createAccumulators() {
+    Accumulator[] accumulators = new Accumulator[aggrColumns.size()];
+    for (int a = 0; a < accumulators.length; a++) {
+      accumulators[a] = Accumulator.create(aggrColumns.get(a).getFn().get(), aggrColTypes.get(a), exactDecimal,
+          fractions[a]);
+    }
+    return accumulators;
+  }
+
+  /**
+   * Fold a row's non-null aggregate inputs into a group
+   */
+  public void add(Accumulator[] accumulators, int group, Row r) {
+    for (int a = 0; a < accumulators.length; a++) {
+      int colIdx = aggrColIndexes[a];
+      if (!r.isNull(colIdx)) {
+        accumulators[a].add(group, r, colIdx);
+      }
+    }
+  }
+
+  /**
+   * Fold a batch of rows into their groups one aggregate at a time
+   *
+   * @param groupIds group of each row of the batch
+   */
+  public void add(Accumulator[] accumulators, int[] groupIds, RowBatch batch) {
+    for (int a = 0; a < accumulators.length; a++) {
+      Accumulator accumulator = accumulators[a];
+      int colIdx = aggrColIndexes[a];
+      for (int i = 0; i < batch.size(); i++) {
+        Row r = batch.get(i);
+        if (!r.isNull(colIdx)) {
+          accumulator.add(groupIds[i], r, colIdx);
+        }
+      }
+    }
+  }
+
+  /**
+   * Write a group's output row
+   *
+   * @param keys copies the group's value of a grouping column
+   */
+  public Row emit(int group, Accumulator[] accumulators, KeyCopier keys, MutableRow out) {
+    for (int c = 0; c < outputSources.length; c++) {
+      int source = outputSources[c];
+      if (source >= 0) {
+        keys.copyKey(group, source, out, c);
+      } else {
+        accumulators[-1 - source].writeResult(group, out, c);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Print an aggregate operator named {@code name} over {@code input}
+   */
+  public String printOperator(String name, Operator input, int indentation) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append(name).append("[");
+    sb.append("grouping:");
+    sb.append(groupingColumns);
+    sb.append(",");
+    sb.append("fns:");
+    sb.append(aggrColumns);
+    sb.append(",");
+    List<Double> percentiles = new ArrayList<>();
+    for (int a = 0; a < fractions.length; a++) {
+      if (aggrColumns.get(a).getFn().get() == AggregateFn.APPROX_PERCENTILE) {
+        percentiles.add(fractions[a]);
+      }
+    }
+    if (!percentiles.isEmpty()) {
+      sb.append("percentiles:").append(percentiles).append(",");
+    }
+    if (exactDecimal) {
+      sb.append("exactDecimal:true,");
+    }
+    sb.append("input:").append("\n");
+    sb.append(input.printOperator(indentation + 2));
+    sb.append("\n");
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("]");
+    return sb.toString();
+  }
+
+  public interface KeyCopier {
+    /**
+     * Copy a group's value of the {@code key}-th grouping column to column {@code column} of {@code out}
+     */
+    void copyKey(int group, int key, MutableRow out, int column);
+  }
+}
@@ -1,5 +1,22 @@
 package volcano.operator.aggregate;
 
+import volcano.db.Type;
+
 public enum AggregateFn {
-  AVG, COUNT, MIN, MAX, SUM
+  AVG, COUNT, MIN, MAX, SUM, APPROX_COUNT_DISTINCT, APPROX_MEDIAN, APPROX_PERCENTILE;
+
+  public Type resultType(Type inputType) {
+    switch (this) {
+    case AVG:
+    case SUM:
+    case APPROX_MEDIAN:
+    case APPROX_PERCENTILE:
+      return Type.DOUBLE;
+    case COUNT:
+    case APPROX_COUNT_DISTINCT:
+      return Type.INT;
+    default:
+      return inputType;
+    }
+  }
 }
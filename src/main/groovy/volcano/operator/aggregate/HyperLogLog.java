@@ -0,0 +1,156 @@
+package volcano.operator.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog++ sketch estimating the number of distinct 64-bit hashes added to it, with a standard error of about
+ * 1.6%. It starts sparse, keeping each distinct register update at a higher precision, which is near exact for small
+ * counts, and switches to 4096 one-byte registers once that would take less room. Two sketches merge into the
+ * sketch of the union of their inputs.
+ */
+public class HyperLogLog {
+
+  private static final int PRECISION = 12;
+  private static final int REGISTERS = 1 << PRECISION;
+  private static final int SPARSE_PRECISION = 25;
+  // the register index bits of the sparse precision that the dense registers don't use
+  private static final int EXTRA_BITS = SPARSE_PRECISION - PRECISION;
+  private static final int MAX_SPARSE_ENTRIES = REGISTERS / 4;
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+  // sparse entries, ordered by index: register index at the sparse precision << 6 | rank
+  private int[] sparse = new int[4];
+  private int sparseSize;
+  // null while sparse
+  private byte[] registers;
+
+  /**
+   * @param hash a well-mixed 64-bit hash of the value, e.g. from {@link #hash(long)}
+   */
+  public void add(long hash) {
+    if (registers != null) {
+      int index = (int)(hash >>> (64 - PRECISION));
+      setRegister(index, rank(hash << PRECISION, PRECISION));
+      return;
+    }
+    int index = (int)(hash >>> (64 - SPARSE_PRECISION));
+    addSparse(index << 6 | rank(hash << SPARSE_PRECISION, SPARSE_PRECISION));
+  }
+
+  /**
+   * Fold another sketch into this one
+   */
+  public void merge(HyperLogLog other) {
+    if (other.registers != null) {
+      toDense();
+      for (int i = 0; i < REGISTERS; i++) {
+        setRegister(i, other.registers[i]);
+      }
+    } else {
+      for (int i = 0; i < other.sparseSize; i++) {
+        if (registers != null) {
+          addDense(other.sparse[i]);
+        } else {
+          addSparse(other.sparse[i]);
+        }
+      }
+    }
+  }
+
+  public long estimate() {
+    if (registers == null) {
+      // linear counting over the sparse precision's registers
+      double m = 1 << SPARSE_PRECISION;
+      return Math.round(m * Math.log(m / (m - sparseSize)));
+    }
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += Math.scalb(1.0, -register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    // linear counting is the more accurate below about three values per register, where the raw estimate is biased
+    if (zeros > 0) {
+      double linearCount = REGISTERS * Math.log((double)REGISTERS / zeros);
+      if (linearCount <= 3 * REGISTERS) {
+        return Math.round(linearCount);
+      }
+    }
+    return Math.round(ALPHA * REGISTERS * REGISTERS / sum);
+  }
+
+  public long sizeInBytes() {
+    return 32 + (registers != null ? registers.length : 4L * sparse.length);
+  }
+
+  /**
+   * @return the bits of a long mixed by MurmurHash3's finalizer
+   */
+  public static long hash(long value) {
+    value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+    value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return value ^ (value >>> 33);
+  }
+
+  // position of the first set bit of the hash bits after the register index, counting from 1
+  private static int rank(long remainingBits, int precision) {
+    return remainingBits == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(remainingBits) + 1;
+  }
+
+  private void addSparse(int entry) {
+    int index = entry >>> 6;
+    int lo = 0;
+    int hi = sparseSize - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int midIndex = sparse[mid] >>> 6;
+      if (midIndex < index) {
+        lo = mid + 1;
+      } else if (midIndex > index) {
+        hi = mid - 1;
+      } else {
+        sparse[mid] = Math.max(sparse[mid], entry);
+        return;
+      }
+    }
+    if (sparseSize == MAX_SPARSE_ENTRIES) {
+      toDense();
+      addDense(entry);
+      return;
+    }
+    if (sparseSize == sparse.length) {
+      sparse = Arrays.copyOf(sparse, Math.min(MAX_SPARSE_ENTRIES, sparse.length * 2));
+    }
+    System.arraycopy(sparse, lo, sparse, lo + 1, sparseSize - lo);
+    sparse[lo] = entry;
+    sparseSize++;
+  }
+
+  private void toDense() {
+    if (registers != null) {
+      return;
+    }
+    registers = new byte[REGISTERS];
+    for (int i = 0; i < sparseSize; i++) {
+      addDense(sparse[i]);
+    }
+    sparse = null;
+    sparseSize = 0;
+  }
+
+  // the register a sparse entry falls in, and its rank among the bits after that register's index
+  private void addDense(int entry) {
+    int index = entry >>> 6;
+    int extra = index & ((1 << EXTRA_BITS) - 1);
+    int rank = extra != 0 ? Integer.numberOfLeadingZeros(extra) - (32 - EXTRA_BITS) + 1 : EXTRA_BITS + (entry & 63);
+    setRegister(index >>> EXTRA_BITS, rank);
+  }
+
+  private void setRegister(int index, int rank) {
+    if (rank > registers[index]) {
+      registers[index] = (byte)rank;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package volcano.operator.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest: values are summarized as centroids, each a mean and a weight, that are kept small near the
+ * extremes so that tail percentiles stay accurate. Added values are buffered and folded in, sorted, once the buffer
+ * fills. With the default compression a digest holds at most about a hundred centroids, and two digests merge into
+ * the digest of both inputs.
+ */
+public class TDigest {
+
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  private final double compression;
+  private final int maxBuffered;
+
+  // centroids, ordered by mean
+  private double[] means = new double[0];
+  private double[] weights = new double[0];
+  private int centroids;
+  private double totalWeight;
+
+  private double[] buffer = new double[0];
+  private int buffered;
+
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  public TDigest(double compression) {
+    this.compression = compression;
+    this.maxBuffered = (int)(2 * compression);
+  }
+
+  public void add(double value) {
+    if (buffered == buffer.length) {
+      if (buffer.length < maxBuffered) {
+        buffer = Arrays.copyOf(buffer, Math.min(maxBuffered, Math.max(8, buffer.length * 2)));
+      } else {
+        flush();
+      }
+    }
+    buffer[buffered++] = value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Fold another digest into this one
+   */
+  public void merge(TDigest other) {
+    flush();
+    other.flush();
+    if (other.centroids == 0) {
+      return;
+    }
+    int n = centroids + other.centroids;
+    double[] mergedMeans = new double[n];
+    double[] mergedWeights = new double[n];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < n; k++) {
+      if (j == other.centroids || (i < centroids && means[i] <= other.means[j])) {
+        mergedMeans[k] = means[i];
+        mergedWeights[k] = weights[i++];
+      } else {
+        mergedMeans[k] = other.means[j];
+        mergedWeights[k] = other.weights[j++];
+      }
+    }
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    compress(mergedMeans, mergedWeights, n, totalWeight + other.totalWeight);
+  }
+
+  /**
+   * @return estimated value below which the given fraction of the values fall, interpolating between centroids, or
+   * NaN if no value was added
+   */
+  public double quantile(double fraction) {
+    flush();
+    if (centroids == 0) {
+      return Double.NaN;
+    }
+    if (centroids == 1) {
+      return means[0];
+    }
+    double rank = fraction * totalWeight;
+    // the first half of the first centroid lies between the minimum and its mean
+    double center = weights[0] / 2;
+    if (rank < center) {
+      return min + (means[0] - min) * rank / center;
+    }
+    for (int i = 0; i < centroids - 1; i++) {
+      double nextCenter = center + (weights[i] + weights[i + 1]) / 2;
+      if (rank <= nextCenter) {
+        return means[i] + (means[i + 1] - means[i]) * (rank - center) / (nextCenter - center);
+      }
+      center = nextCenter;
+    }
+    int last = centroids - 1;
+    return Math.min(max, means[last] + (max - means[last]) * (rank - center) / (weights[last] / 2));
+  }
+
+  public long sizeInBytes() {
+    return 48 + 16L * means.length + 8L * buffer.length;
+  }
+
+  private void flush() {
+    if (buffered == 0) {
+      return;
+    }
+    Arrays.sort(buffer, 0, buffered);
+    int n = centroids + buffered;
+    double[] mergedMeans = new double[n];
+    double[] mergedWeights = new double[n];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < n; k++) {
+      if (j == buffered || (i < centroids && means[i] <= buffer[j])) {
+        mergedMeans[k] = means[i];
+        mergedWeights[k] = weights[i++];
+      } else {
+        mergedMeans[k] = buffer[j++];
+        mergedWeights[k] = 1;
+      }
+    }
+    double total = totalWeight + buffered;
+    buffered = 0;
+    compress(mergedMeans, mergedWeights, n, total);
+  }
+
+  // merges neighbouring centroids, in order, for as long as the result stays within one unit of the scale function
+  private void compress(double[] sortedMeans, double[] sortedWeights, int n, double total) {
+    int k = 0;
+    double weightBefore = 0;
+    for (int i = 1; i < n; i++) {
+      double proposed = sortedWeights[k] + sortedWeights[i];
+      if (scale((weightBefore + proposed) / total) - scale(weightBefore / total) <= 1) {
+        sortedMeans[k] += (sortedMeans[i] - sortedMeans[k]) * sortedWeights[i] / proposed;
+        sortedWeights[k] = proposed;
+      } else {
+        weightBefore += sortedWeights[k];
+        k++;
+        sortedMeans[k] = sortedMeans[i];
+        sortedWeights[k] = sortedWeights[i];
+      }
+    }
+    centroids = k + 1;
+    means = Arrays.copyOf(sortedMeans, centroids);
+    weights = Arrays.copyOf(sortedWeights, centroids);
+    totalWeight = total;
+  }
+
+  // k1 scale function: centroids may cover a fixed span of k, so they shrink towards either tail
+  private double scale(double q) {
+    return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+  }
+}
@@ -0,0 +1,103 @@
+package volcano.operator.batch;
+
+import volcano.db.Row;
+
+/**
+ * Fixed-capacity group of rows passed between operators by {@link volcano.operator.Operator#nextBatch}.
+ * Filtering operators narrow the batch through the selection vector instead of copying the surviving rows.
+ */
+public class RowBatch {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private final Row[] rows;
+  private final int[] selection;
+  private int numRows;
+  private int numSelected;
+  private boolean selectionInUse;
+
+  public RowBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public RowBatch(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(String.format("Batch capacity must be positive; received %d", capacity));
+    }
+    this.rows = new Row[capacity];
+    this.selection = new int[capacity];
+  }
+
+  public void clear() {
+    numRows = 0;
+    numSelected = 0;
+    selectionInUse = false;
+  }
+
+  public void add(Row row) {
+    if (selectionInUse) {
+      throw new IllegalStateException("Cannot add rows to a batch once a selection has been applied");
+    }
+    rows[numRows++] = row;
+  }
+
+  public boolean isFull() {
+    return numRows == rows.length;
+  }
+
+  public int capacity() {
+    return rows.length;
+  }
+
+  /**
+   * @return number of live (selected) rows in the batch
+   */
+  public int size() {
+    return selectionInUse ? numSelected : numRows;
+  }
+
+  /**
+   * @return the i-th live row of the batch
+   */
+  public Row get(int i) {
+    return rows[rowIndex(i)];
+  }
+
+  /**
+   * @return physical position of the i-th live row
+   */
+  public int rowIndex(int i) {
+    return selectionInUse ? selection[i] : i;
+  }
+
+  public Row rowAt(int physicalIndex) {
+    return rows[physicalIndex];
+  }
+
+  /**
+   * Selection vector to be filled with physical row positions, followed by a call to {@link #setSelected(int)}.
+   * It is safe to overwrite the vector while iterating the batch's current live rows in order.
+   */
+  public int[] selection() {
+    return selection;
+  }
+
+  public void setSelected(int count) {
+    numSelected = count;
+    selectionInUse = true;
+  }
+
+  /**
+   * Keep only the first {@code count} live rows
+   */
+  public void truncate(int count) {
+    if (count >= size()) {
+      return;
+    }
+    if (selectionInUse) {
+      numSelected = count;
+    } else {
+      numRows = count;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package volcano.operator.filter;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.db.column.ColumnVector;
+
+/**
+ * Conjunction that stops at the first operand that isn't true, so the most selective operand should come first
+ */
+public class AndPredicate implements Predicate {
+
+  private final Predicate[] operands;
+
+  public AndPredicate(List<Predicate> operands) {
+    if (operands.isEmpty()) {
+      throw new IllegalArgumentException("AND requires at least one operand");
+    }
+    this.operands = operands.toArray(new Predicate[0]);
+  }
+
+  @Override
+  public boolean accepts(Row row) {
+    for (Predicate operand : operands) {
+      if (!operand.accepts(row)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean rejects(Row row) {
+    for (Predicate operand : operands) {
+      if (operand.rejects(row)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public PositionPredicate compile(ColumnVector[] columns) {
+    PositionPredicate[] compiled = new PositionPredicate[operands.length];
+    for (int i = 0; i < operands.length; i++) {
+      compiled[i] = operands[i].compile(columns);
+      if (compiled[i] == null) {
+        return null;
+      }
+    }
+    return new PositionPredicate() {
+      @Override
+      public boolean accepts(int position) {
+        for (PositionPredicate operand : compiled) {
+          if (!operand.accepts(position)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public boolean rejects(int position) {
+        for (PositionPredicate operand : compiled) {
+          if (operand.rejects(position)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.stream(operands).map(p -> "(" + p + ")").collect(joining(" AND "));
+  }
+}
@@ -0,0 +1,39 @@
+package volcano.operator.filter;
+
+import volcano.db.Row;
+import volcano.db.column.ColumnVector;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * A single {@link FilterClause}, with its column resolved against the filtered input
+ */
+public class ClausePredicate implements Predicate {
+
+  private final FilterClause clause;
+  private final int fieldIndex;
+
+  public ClausePredicate(FilterClause clause, OutputSchema schema) {
+    this.clause = clause;
+    this.fieldIndex = schema.columnIndex(clause.getColumn());
+  }
+
+  @Override
+  public boolean accepts(Row row) {
+    return clause.accepts(row, fieldIndex);
+  }
+
+  @Override
+  public boolean rejects(Row row) {
+    return clause.rejects(row, fieldIndex);
+  }
+
+  @Override
+  public PositionPredicate compile(ColumnVector[] columns) {
+    return clause.compile(columns[fieldIndex]);
+  }
+
+  @Override
+  public String toString() {
+    return clause.toString();
+  }
+}
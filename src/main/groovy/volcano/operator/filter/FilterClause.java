@@ -11,31 +11,50 @@ import static volcano.operator.filter.FilterLogicalOp.LTE;
 import static volcano.operator.filter.FilterLogicalOp.NEQ;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.IntPredicate;
 import java.util.regex.Pattern;
 
 import volcano.db.Row;
+import volcano.db.Type;
+import volcano.db.column.ColumnVector;
+import volcano.db.column.Dictionary;
+import volcano.db.column.DictionaryEncodedVector;
+import volcano.db.index.Index;
 
 //todo can filters use multiple fields?
 // e.g select * from tbl where (a+b) > 5
 public class FilterClause {
   private static final Set<FilterLogicalOp> scalarOps = new HashSet<>(
       Arrays.asList(EQ, NEQ, GT, GTE, LT, LTE, LIKE));
+  private static final Set<FilterLogicalOp> rangeOps = new HashSet<>(Arrays.asList(GT, GTE, LT, LTE, BETWEEN));
 
   private final String column;
   private final FilterLogicalOp op;
-  private final Comparable value;
+  private Object value;
   private Optional<Pattern> regex;
   private Optional<List<Comparable>> betweenClause;
   private Optional<List<Comparable>> inClause;
 
-  public FilterClause(String column, FilterLogicalOp op, Comparable value) {
+  public FilterClause(String column, FilterLogicalOp op, Object value) {
+    this(column, op);
+    bind(value);
+  }
+
+  /**
+   * Clause whose value is supplied later through {@link #bind(Object)}, e.g. for a prepared statement
+   */
+  public FilterClause(String column, FilterLogicalOp op) {
     this.column = column;
     this.op = op;
-    this.value = value;
+  }
+
+  public void bind(Object value) {
     if (scalarOps.contains(op)) {
       if (value instanceof List) {
         throw new IllegalArgumentException(
@@ -62,33 +81,286 @@ public class FilterClause {
       if (!(value instanceof String)) {
         throw new IllegalArgumentException(String.format("Expected string for LIKE; received %s", value));
       }
-      regex = Optional.of(Pattern.compile((String)value));
+      regex = Optional.of(likePattern((String)value));
+    }
+    this.value = value;
+  }
+
+  // % matches any run of characters and _ any single one; everything else is literal
+  private static Pattern likePattern(String pattern) {
+    StringBuilder regex = new StringBuilder();
+    int literalStart = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '%' || c == '_') {
+        if (i > literalStart) {
+          regex.append(Pattern.quote(pattern.substring(literalStart, i)));
+        }
+        regex.append(c == '%' ? ".*" : ".");
+        literalStart = i + 1;
+      }
+    }
+    if (pattern.length() > literalStart) {
+      regex.append(Pattern.quote(pattern.substring(literalStart)));
     }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
   }
 
+  // a comparison against null is neither true nor false, so a null is neither accepted nor rejected
   public boolean accepts(Row row, int fieldIndex) {
+    return !row.isNull(fieldIndex) && matches(row.getAt(fieldIndex));
+  }
+
+  /**
+   * @return true if the clause is false for the row, the case that NOT turns into a match
+   */
+  public boolean rejects(Row row, int fieldIndex) {
+    return !row.isNull(fieldIndex) && !matches(row.getAt(fieldIndex));
+  }
+
+  /**
+   * @return false only if no row of a block with these bounds can be accepted; min and max are null when the block
+   * holds nothing but nulls
+   */
+  public boolean mayMatch(Comparable min, Comparable max) {
+    if (min == null) {
+      return false;
+    }
+    switch (op) {
+    case EQ:
+      return value == null || inRange(min, max, (Comparable)value);
+    case LT:
+      return value == null || min.compareTo(value) < 0;
+    case LTE:
+      return value == null || min.compareTo(value) <= 0;
+    case GT:
+      return value == null || max.compareTo(value) > 0;
+    case GTE:
+      return value == null || max.compareTo(value) >= 0;
+    case BETWEEN:
+      Comparable lowerBound = betweenClause.get().get(0);
+      Comparable upperBound = betweenClause.get().get(1);
+      return lowerBound == null || upperBound == null
+          || (max.compareTo(lowerBound) >= 0 && min.compareTo(upperBound) <= 0);
+    case IN:
+      return inClause.get().stream().anyMatch(v -> v == null || inRange(min, max, v));
+    default:
+      return true;
+    }
+  }
+
+  /**
+   * @return whether {@link #lookup} can answer an op against the index
+   */
+  public static boolean canUseIndex(FilterLogicalOp op, Index index) {
+    return op == EQ || op == IN || (rangeOps.contains(op) && index.supportsRanges());
+  }
+
+  /**
+   * @return positions of the rows the clause accepts, ascending
+   */
+  public int[] lookup(Index index) {
+    if (!canUseIndex(op, index)) {
+      throw new IllegalArgumentException(
+          String.format("%s index on %s can't evaluate %s", index.getType(), index.getColumnName(), op));
+    }
+    switch (op) {
+    case EQ:
+      return index.lookup((Comparable)value);
+    case IN:
+      // distinct values match disjoint sets of rows
+      return inClause.get().stream().filter(Objects::nonNull).distinct()
+          .flatMapToInt(v -> Arrays.stream(index.lookup(v))).sorted().toArray();
+    case BETWEEN:
+      Comparable lowerBound = betweenClause.get().get(0);
+      Comparable upperBound = betweenClause.get().get(1);
+      return lowerBound == null || upperBound == null ? new int[0] : index.range(lowerBound, true, upperBound, true);
+    default:
+      if (value == null) {
+        return new int[0];
+      }
+      Comparable v = (Comparable)value;
+      boolean below = op == LT || op == LTE;
+      return below ? index.range(null, false, v, op == LTE) : index.range(v, op == GTE, null, false);
+    }
+  }
+
+  private static boolean inRange(Comparable min, Comparable max, Comparable v) {
+    return min.compareTo(v) <= 0 && max.compareTo(v) >= 0;
+  }
+
+  /**
+   * Specialize the clause, with its current value, to a column: the op and the value's type are resolved here
+   * rather than for every row
+   */
+  public PositionPredicate compile(ColumnVector column) {
+    IntPredicate matches = compileMatches(column);
+    return new PositionPredicate() {
+      @Override
+      public boolean accepts(int position) {
+        return !column.isNull(position) && matches.test(position);
+      }
+
+      @Override
+      public boolean rejects(int position) {
+        return !column.isNull(position) && !matches.test(position);
+      }
+    };
+  }
+
+  // tests a non-null position
+  private IntPredicate compileMatches(ColumnVector column) {
+    if (column.getType() == Type.INT && hasValues(Integer.class)) {
+      return compileIntMatches(column);
+    }
+    if (column.getType() == Type.DOUBLE && hasValues(Double.class)) {
+      return compileDoubleMatches(column);
+    }
+    if (column instanceof DictionaryEncodedVector && (op == LIKE || hasValues(String.class))) {
+      return compileDictionaryMatches((DictionaryEncodedVector)column);
+    }
+    if (column.getType() == Type.STRING && (op == EQ || op == NEQ) && value instanceof String) {
+      String s = (String)value;
+      return op == EQ ? p -> column.getString(p).equals(s) : p -> !column.getString(p).equals(s);
+    }
+    return p -> matches(column.get(p));
+  }
+
+  // whether the clause's values are all non-null and of the given class; IN ignores nulls, which match nothing
+  private boolean hasValues(Class<?> type) {
+    if (scalarOps.contains(op)) {
+      return op != LIKE && type.isInstance(value);
+    }
+    if (op == BETWEEN) {
+      return betweenClause.get().stream().allMatch(type::isInstance);
+    }
+    return inClause.get().stream().allMatch(v -> v == null || type.isInstance(v));
+  }
+
+  /**
+   * EQ and NEQ compare codes; any other op is evaluated once per dictionary value, so LIKE runs its regex once per
+   * distinct string rather than once per row
+   */
+  private IntPredicate compileDictionaryMatches(DictionaryEncodedVector column) {
+    Dictionary dictionary = column.getDictionary();
+    if (op == EQ || op == NEQ) {
+      int code = dictionary.find((String)value);
+      if (code < 0) {
+        return op == EQ ? p -> false : p -> true;
+      }
+      return op == EQ ? p -> column.getCode(p) == code : p -> column.getCode(p) != code;
+    }
+    BitSet matching = new BitSet(dictionary.size());
+    for (int code = 0; code < dictionary.size(); code++) {
+      if (matches(dictionary.value(code))) {
+        matching.set(code);
+      }
+    }
+    return p -> matching.get(column.getCode(p));
+  }
+
+  private IntPredicate compileIntMatches(ColumnVector column) {
+    switch (op) {
+    case EQ:
+      int eq = (Integer)value;
+      return p -> column.getInt(p) == eq;
+    case NEQ:
+      int neq = (Integer)value;
+      return p -> column.getInt(p) != neq;
+    case GT:
+      int gt = (Integer)value;
+      return p -> column.getInt(p) > gt;
+    case GTE:
+      int gte = (Integer)value;
+      return p -> column.getInt(p) >= gte;
+    case LT:
+      int lt = (Integer)value;
+      return p -> column.getInt(p) < lt;
+    case LTE:
+      int lte = (Integer)value;
+      return p -> column.getInt(p) <= lte;
+    case BETWEEN:
+      int lower = (Integer)betweenClause.get().get(0);
+      int upper = (Integer)betweenClause.get().get(1);
+      return p -> {
+        int v = column.getInt(p);
+        return v >= lower && v <= upper;
+      };
+    case IN:
+      int[] values = inClause.get().stream().filter(Objects::nonNull).mapToInt(v -> (Integer)v).sorted().toArray();
+      return p -> Arrays.binarySearch(values, column.getInt(p)) >= 0;
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized filter operator [%s]", op));
+    }
+  }
+
+  // Double.compare orders -0.0 and NaN as Double.compareTo and equals do
+  private IntPredicate compileDoubleMatches(ColumnVector column) {
+    switch (op) {
+    case EQ:
+      double eq = (Double)value;
+      return p -> Double.compare(column.getDouble(p), eq) == 0;
+    case NEQ:
+      double neq = (Double)value;
+      return p -> Double.compare(column.getDouble(p), neq) != 0;
+    case GT:
+      double gt = (Double)value;
+      return p -> Double.compare(column.getDouble(p), gt) > 0;
+    case GTE:
+      double gte = (Double)value;
+      return p -> Double.compare(column.getDouble(p), gte) >= 0;
+    case LT:
+      double lt = (Double)value;
+      return p -> Double.compare(column.getDouble(p), lt) < 0;
+    case LTE:
+      double lte = (Double)value;
+      return p -> Double.compare(column.getDouble(p), lte) <= 0;
+    case BETWEEN:
+      double lower = (Double)betweenClause.get().get(0);
+      double upper = (Double)betweenClause.get().get(1);
+      return p -> {
+        double v = column.getDouble(p);
+        return Double.compare(v, lower) >= 0 && Double.compare(v, upper) <= 0;
+      };
+    case IN:
+      double[] values = inClause.get().stream().filter(Objects::nonNull).mapToDouble(v -> (Double)v).toArray();
+      return p -> {
+        double v = column.getDouble(p);
+        for (double in : values) {
+          if (Double.compare(v, in) == 0) {
+            return true;
+          }
+        }
+        return false;
+      };
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized filter operator [%s]", op));
+    }
+  }
+
+  private boolean matches(Comparable v) {
     switch (op) {
     case EQ:
-      return row.getAt(fieldIndex).equals(value);
+      return v.equals(value);
     case NEQ:
-      return !row.getAt(fieldIndex).equals(value);
+      return !v.equals(value);
     case GT:
-      return row.getAt(fieldIndex).compareTo(value) > 0;
+      return v.compareTo(value) > 0;
     case GTE:
-      return row.getAt(fieldIndex).compareTo(value) >= 0;
+      return v.compareTo(value) >= 0;
     case LT:
-      return row.getAt(fieldIndex).compareTo(value) < 0;
+      return v.compareTo(value) < 0;
     case LTE:
-      return row.getAt(fieldIndex).compareTo(value) <= 0;
+      return v.compareTo(value) <= 0;
     case LIKE:
-      return regex.get().matcher((String)value).matches();
+      // other types are matched by their text
+      return regex.get().matcher(v.toString()).matches();
     case BETWEEN:
-      Comparable v = row.getAt(fieldIndex);
       Comparable lowerBound = betweenClause.get().get(0);
       Comparable upperBound = betweenClause.get().get(1);
       return v.compareTo(lowerBound) >= 0 && v.compareTo(upperBound) <= 0;
     case IN:
-      return inClause.get().contains(row.getAt(fieldIndex));
+      return inClause.get().contains(v);
     default:
       throw new IllegalArgumentException(String.format("Unrecognized filter operator [%s]", op));
     }
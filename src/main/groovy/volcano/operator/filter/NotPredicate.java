@@ -0,0 +1,47 @@
+package volcano.operator.filter;
+
+import volcano.db.Row;
+import volcano.db.column.ColumnVector;
+
+public class NotPredicate implements Predicate {
+
+  private final Predicate operand;
+
+  public NotPredicate(Predicate operand) {
+    this.operand = operand;
+  }
+
+  @Override
+  public boolean accepts(Row row) {
+    return operand.rejects(row);
+  }
+
+  @Override
+  public boolean rejects(Row row) {
+    return operand.accepts(row);
+  }
+
+  @Override
+  public PositionPredicate compile(ColumnVector[] columns) {
+    PositionPredicate compiled = operand.compile(columns);
+    if (compiled == null) {
+      return null;
+    }
+    return new PositionPredicate() {
+      @Override
+      public boolean accepts(int position) {
+        return compiled.rejects(position);
+      }
+
+      @Override
+      public boolean rejects(int position) {
+        return compiled.accepts(position);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "NOT (" + operand + ")";
+  }
+}
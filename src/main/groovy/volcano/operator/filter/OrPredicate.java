@@ -0,0 +1,81 @@
+package volcano.operator.filter;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.db.column.ColumnVector;
+
+/**
+ * Disjunction that stops at the first true operand, so the operand most likely to be true should come first
+ */
+public class OrPredicate implements Predicate {
+
+  private final Predicate[] operands;
+
+  public OrPredicate(List<Predicate> operands) {
+    if (operands.isEmpty()) {
+      throw new IllegalArgumentException("OR requires at least one operand");
+    }
+    this.operands = operands.toArray(new Predicate[0]);
+  }
+
+  @Override
+  public boolean accepts(Row row) {
+    for (Predicate operand : operands) {
+      if (operand.accepts(row)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean rejects(Row row) {
+    for (Predicate operand : operands) {
+      if (!operand.rejects(row)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public PositionPredicate compile(ColumnVector[] columns) {
+    PositionPredicate[] compiled = new PositionPredicate[operands.length];
+    for (int i = 0; i < operands.length; i++) {
+      compiled[i] = operands[i].compile(columns);
+      if (compiled[i] == null) {
+        return null;
+      }
+    }
+    return new PositionPredicate() {
+      @Override
+      public boolean accepts(int position) {
+        for (PositionPredicate operand : compiled) {
+          if (operand.accepts(position)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public boolean rejects(int position) {
+        for (PositionPredicate operand : compiled) {
+          if (!operand.rejects(position)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.stream(operands).map(p -> "(" + p + ")").collect(joining(" OR "));
+  }
+}
@@ -0,0 +1,12 @@
+package volcano.operator.filter;
+
+/**
+ * A {@link Predicate} compiled against a table's column vectors: it is evaluated at a row position, reading the
+ * values it needs directly, with every choice that doesn't depend on the row made once, when it was compiled
+ */
+public interface PositionPredicate {
+
+  boolean accepts(int position);
+
+  boolean rejects(int position);
+}
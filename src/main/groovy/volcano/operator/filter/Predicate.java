@@ -0,0 +1,29 @@
+package volcano.operator.filter;
+
+import volcano.db.Row;
+import volcano.db.column.ColumnVector;
+
+/**
+ * Boolean condition over a row, evaluated with SQL's three-valued logic: a predicate may be neither true nor false
+ * for a row, e.g. when it compares a null, and such a row passes neither the predicate nor its negation
+ */
+public interface Predicate {
+
+  /**
+   * @return true if the predicate is true for the row
+   */
+  boolean accepts(Row row);
+
+  /**
+   * @return true if the predicate is false for the row
+   */
+  boolean rejects(Row row);
+
+  /**
+   * @param columns the vectors of the table the predicate's rows come from, in the order of the rows' columns
+   * @return the predicate specialized to the columns' current values, or null if it can only be interpreted
+   */
+  default PositionPredicate compile(ColumnVector[] columns) {
+    return null;
+  }
+}
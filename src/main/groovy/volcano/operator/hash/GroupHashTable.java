@@ -0,0 +1,137 @@
+package volcano.operator.hash;
+
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.db.Type;
+
+/**
+ * Assigns each distinct grouping key a dense group id, in order of first appearance. Keys and their hash codes
+ * are stored in flat arrays indexed by group id, with an open-addressing slot array mapping keys to ids.
+ * Null keys form their own group.
+ */
+public class GroupHashTable {
+
+  private static final int EMPTY = -1;
+
+  private final KeyColumn[] keys;
+  private final KeyHasher hasher;
+  private final int[] keyIndexes;
+
+  private int[] hashes;
+  private int size;
+
+  private int[] slots;
+  private int mask;
+
+  public GroupHashTable(List<Type> keyTypes, int[] keyIndexes) {
+    if (keyTypes.size() != keyIndexes.length) {
+      throw new IllegalArgumentException(
+          String.format("Mismatched key types [%d] and indexes [%d]", keyTypes.size(), keyIndexes.length));
+    }
+    this.keys = keyTypes.stream().map(KeyColumn::forType).toArray(KeyColumn[]::new);
+    this.hasher = new KeyHasher(keyTypes);
+    this.keyIndexes = keyIndexes;
+    this.hashes = new int[0];
+    this.slots = new int[16];
+    Arrays.fill(slots, EMPTY);
+    this.mask = slots.length - 1;
+  }
+
+  /**
+   * @return id of the row's group, adding a new group if its key hasn't been seen
+   */
+  public int findOrInsert(Row row) {
+    int hash = hasher.hash(row, keyIndexes);
+    int slot = hash & mask;
+    while (slots[slot] != EMPTY) {
+      int id = slots[slot];
+      if (hashes[id] == hash && keysMatch(id, row)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+    int id = size++;
+    ensureCapacity(size);
+    hashes[id] = hash;
+    for (int k = 0; k < keys.length; k++) {
+      keys[k].setKey(id, row, keyIndexes[k]);
+    }
+    slots[slot] = id;
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+    return id;
+  }
+
+  /**
+   * @return id of the row's group, or -1 if its key hasn't been seen
+   */
+  public int find(Row row) {
+    int hash = hasher.hash(row, keyIndexes);
+    for (int slot = hash & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+      int id = slots[slot];
+      if (hashes[id] == hash && keysMatch(id, row)) {
+        return id;
+      }
+    }
+    return EMPTY;
+  }
+
+  /**
+   * @return number of groups
+   */
+  public int size() {
+    return size;
+  }
+
+  public Comparable getKey(int groupId, int keyIndex) {
+    return keys[keyIndex].getKey(groupId);
+  }
+
+  public void copyKeyTo(int groupId, int keyIndex, MutableRow row, int index) {
+    keys[keyIndex].copyKeyTo(groupId, row, index);
+  }
+
+  public long sizeInBytes() {
+    long bytes = 4L * (slots.length + hashes.length);
+    for (KeyColumn key : keys) {
+      bytes += key.sizeInBytes();
+    }
+    return bytes;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > hashes.length) {
+      int newLength = KeyColumn.grow(hashes.length, capacity);
+      hashes = Arrays.copyOf(hashes, newLength);
+      for (KeyColumn key : keys) {
+        key.ensureCapacity(newLength);
+      }
+    }
+  }
+
+  private void rehash(int newCapacity) {
+    slots = new int[newCapacity];
+    Arrays.fill(slots, EMPTY);
+    mask = newCapacity - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id;
+    }
+  }
+
+  private boolean keysMatch(int id, Row row) {
+    for (int k = 0; k < keys.length; k++) {
+      if (!keys[k].keyMatches(id, row, keyIndexes[k])) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,162 @@
+package volcano.operator.hash;
+
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.db.Type;
+
+/**
+ * Build side of an equi-join. Distinct keys live in an open-addressing slot array; each slot points at the first
+ * build row with that key, and further rows with the same key are chained through {@code nextRow}. Keys and their
+ * hash codes are kept in flat arrays indexed by build row id, so probing compares primitives without allocating.
+ * Rows with a null key are never stored, since they can't match anything.
+ */
+public class JoinHashTable {
+
+  private static final int EMPTY = -1;
+
+  private final KeyColumn[] keys;
+  private final KeyHasher hasher;
+  private final int[] keyIndexes;
+
+  private Row[] rows;
+  private int[] hashes;
+  private int[] nextRow;
+  private int size;
+
+  private int[] slots;
+  private int mask;
+  private int distinctKeys;
+
+  public JoinHashTable(List<Type> keyTypes, int[] keyIndexes) {
+    if (keyTypes.size() != keyIndexes.length) {
+      throw new IllegalArgumentException(
+          String.format("Mismatched key types [%d] and indexes [%d]", keyTypes.size(), keyIndexes.length));
+    }
+    this.keys = keyTypes.stream().map(KeyColumn::forType).toArray(KeyColumn[]::new);
+    this.hasher = new KeyHasher(keyTypes);
+    this.keyIndexes = keyIndexes;
+    this.rows = new Row[0];
+    this.hashes = new int[0];
+    this.nextRow = new int[0];
+    this.slots = new int[16];
+    Arrays.fill(slots, EMPTY);
+    this.mask = slots.length - 1;
+  }
+
+  /**
+   * Add a build row; the table keeps a reference, so the caller must pass a row that won't change
+   */
+  public void add(Row row) {
+    if (KeyHasher.hasNullKey(row, keyIndexes)) {
+      return;
+    }
+    int id = size;
+    ensureCapacity(id + 1);
+    int hash = hasher.hash(row, keyIndexes);
+    rows[id] = row;
+    hashes[id] = hash;
+    for (int k = 0; k < keys.length; k++) {
+      keys[k].setKey(id, row, keyIndexes[k]);
+    }
+    size++;
+
+    int slot = hash & mask;
+    while (slots[slot] != EMPTY) {
+      int head = slots[slot];
+      if (hashes[head] == hash && keysMatch(head, row, keyIndexes)) {
+        nextRow[id] = head;
+        slots[slot] = id;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    nextRow[id] = EMPTY;
+    slots[slot] = id;
+    distinctKeys++;
+    if (distinctKeys * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+  }
+
+  /**
+   * @return id of the first build row matching the probe row's key, or -1
+   */
+  public int find(Row probe, int[] probeKeyIndexes) {
+    if (KeyHasher.hasNullKey(probe, probeKeyIndexes)) {
+      return EMPTY;
+    }
+    int hash = hasher.hash(probe, probeKeyIndexes);
+    int slot = hash & mask;
+    while (slots[slot] != EMPTY) {
+      int head = slots[slot];
+      if (hashes[head] == hash && keysMatch(head, probe, probeKeyIndexes)) {
+        return head;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return EMPTY;
+  }
+
+  /**
+   * @return id of the next build row with the same key as rowId, or -1
+   */
+  public int nextMatch(int rowId) {
+    return nextRow[rowId];
+  }
+
+  public Row getRow(int rowId) {
+    return rows[rowId];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long sizeInBytes() {
+    long bytes = 4L * slots.length + 4L * (hashes.length + nextRow.length) + 8L * rows.length;
+    for (KeyColumn key : keys) {
+      bytes += key.sizeInBytes();
+    }
+    return bytes;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > rows.length) {
+      int newLength = KeyColumn.grow(rows.length, capacity);
+      rows = Arrays.copyOf(rows, newLength);
+      hashes = Arrays.copyOf(hashes, newLength);
+      nextRow = Arrays.copyOf(nextRow, newLength);
+      for (KeyColumn key : keys) {
+        key.ensureCapacity(newLength);
+      }
+    }
+  }
+
+  private void rehash(int newCapacity) {
+    int[] oldSlots = slots;
+    slots = new int[newCapacity];
+    Arrays.fill(slots, EMPTY);
+    mask = newCapacity - 1;
+    for (int head : oldSlots) {
+      if (head == EMPTY) {
+        continue;
+      }
+      int slot = hashes[head] & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = head;
+    }
+  }
+
+  private boolean keysMatch(int id, Row row, int[] indexes) {
+    for (int k = 0; k < keys.length; k++) {
+      if (!keys[k].keyMatches(id, row, indexes[k])) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
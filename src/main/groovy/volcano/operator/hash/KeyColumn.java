@@ -0,0 +1,255 @@
+package volcano.operator.hash;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.db.Type;
+import volcano.db.column.Dictionary;
+
+/**
+ * Flat, type-specialized storage for one key column of a hash table, addressed by entry id.
+ * Keys are compared straight from the row's typed accessors, so probing never boxes a value.
+ * A null key only matches another null key.
+ */
+abstract class KeyColumn {
+
+  private BitSet nulls;
+
+  static KeyColumn forType(Type type) {
+    switch (type) {
+    case INT:
+      return new IntKeyColumn();
+    case BOOLEAN:
+      return new BooleanKeyColumn();
+    case DOUBLE:
+      return new DoubleKeyColumn();
+    case STRING:
+      return new StringKeyColumn();
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+
+  final void setKey(int id, Row row, int index) {
+    if (row.isNull(index)) {
+      if (nulls == null) {
+        nulls = new BitSet();
+      }
+      nulls.set(id);
+    } else {
+      set(id, row, index);
+    }
+  }
+
+  final boolean keyMatches(int id, Row row, int index) {
+    boolean storedNull = isNull(id);
+    if (storedNull || row.isNull(index)) {
+      return storedNull && row.isNull(index);
+    }
+    return matches(id, row, index);
+  }
+
+  final Comparable getKey(int id) {
+    return isNull(id) ? null : get(id);
+  }
+
+  final void copyKeyTo(int id, MutableRow row, int index) {
+    if (isNull(id)) {
+      row.setNull(index);
+    } else {
+      copyTo(id, row, index);
+    }
+  }
+
+  private boolean isNull(int id) {
+    return nulls != null && nulls.get(id);
+  }
+
+  abstract void ensureCapacity(int capacity);
+
+  abstract void set(int id, Row row, int index);
+
+  abstract boolean matches(int id, Row row, int index);
+
+  abstract Comparable get(int id);
+
+  abstract void copyTo(int id, MutableRow row, int index);
+
+  abstract long sizeInBytes();
+
+  static int grow(int length, int capacity) {
+    return Math.max(capacity, Math.max(16, length + (length >> 1)));
+  }
+
+  private static class IntKeyColumn extends KeyColumn {
+    private int[] values = new int[0];
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int id, Row row, int index) {
+      values[id] = row.getInt(index);
+    }
+
+    @Override
+    boolean matches(int id, Row row, int index) {
+      return values[id] == row.getInt(index);
+    }
+
+    @Override
+    Comparable get(int id) {
+      return values[id];
+    }
+
+    @Override
+    void copyTo(int id, MutableRow row, int index) {
+      row.setInt(index, values[id]);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 4L * values.length;
+    }
+  }
+
+  private static class BooleanKeyColumn extends KeyColumn {
+    private boolean[] values = new boolean[0];
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int id, Row row, int index) {
+      values[id] = row.getBoolean(index);
+    }
+
+    @Override
+    boolean matches(int id, Row row, int index) {
+      return values[id] == row.getBoolean(index);
+    }
+
+    @Override
+    Comparable get(int id) {
+      return values[id];
+    }
+
+    @Override
+    void copyTo(int id, MutableRow row, int index) {
+      row.setBoolean(index, values[id]);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return values.length;
+    }
+  }
+
+  // compares bit patterns, matching Double.equals
+  private static class DoubleKeyColumn extends KeyColumn {
+    private long[] values = new long[0];
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int id, Row row, int index) {
+      values[id] = Double.doubleToLongBits(row.getDouble(index));
+    }
+
+    @Override
+    boolean matches(int id, Row row, int index) {
+      return values[id] == Double.doubleToLongBits(row.getDouble(index));
+    }
+
+    @Override
+    Comparable get(int id) {
+      return Double.longBitsToDouble(values[id]);
+    }
+
+    @Override
+    void copyTo(int id, MutableRow row, int index) {
+      row.setDouble(index, Double.longBitsToDouble(values[id]));
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 8L * values.length;
+    }
+  }
+
+  /**
+   * Keys from a dictionary-encoded column also keep their code, so later rows from the same dictionary, e.g. the
+   * rest of the scan being grouped or a probe of the table that was built on, compare codes instead of strings
+   */
+  private static class StringKeyColumn extends KeyColumn {
+    private String[] values = new String[0];
+    // code in dictionary, or -1 if the key came from elsewhere
+    private int[] codes = new int[0];
+    private Dictionary dictionary;
+    private long valueBytes = 0;
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (capacity > values.length) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+        codes = Arrays.copyOf(codes, values.length);
+      }
+    }
+
+    @Override
+    void set(int id, Row row, int index) {
+      values[id] = row.getString(index);
+      Dictionary rowDictionary = row.getDictionary(index);
+      if (dictionary == null) {
+        dictionary = rowDictionary;
+      }
+      if (rowDictionary != null && rowDictionary == dictionary) {
+        codes[id] = row.getCode(index);
+      } else {
+        codes[id] = -1;
+      }
+      // the dictionary already holds the string
+      if (rowDictionary == null) {
+        valueBytes += 40 + 2L * values[id].length();
+      }
+    }
+
+    @Override
+    boolean matches(int id, Row row, int index) {
+      if (codes[id] >= 0 && row.getDictionary(index) == dictionary) {
+        return codes[id] == row.getCode(index);
+      }
+      return values[id].equals(row.getString(index));
+    }
+
+    @Override
+    Comparable get(int id) {
+      return values[id];
+    }
+
+    @Override
+    void copyTo(int id, MutableRow row, int index) {
+      row.setString(index, values[id]);
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 8L * values.length + valueBytes;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package volcano.operator.hash;
+
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.db.Type;
+import volcano.db.column.Dictionary;
+
+/**
+ * Hashes key columns through the row's typed accessors. Null keys hash to 0.
+ * Dictionary-encoded strings use the hash cached in the dictionary.
+ */
+public class KeyHasher {
+
+  private final Type[] types;
+
+  public KeyHasher(List<Type> types) {
+    this.types = types.toArray(new Type[0]);
+  }
+
+  public int hash(Row row, int[] indexes) {
+    int h = 1;
+    for (int k = 0; k < types.length; k++) {
+      h = 31 * h + hashValue(types[k], row, indexes[k]);
+    }
+    return mix(h);
+  }
+
+  public static boolean hasNullKey(Row row, int[] indexes) {
+    for (int index : indexes) {
+      if (row.isNull(index)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // murmur3 finalizer, spreads the low bits used for slot selection
+  public static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private static int hashValue(Type type, Row row, int index) {
+    if (row.isNull(index)) {
+      return 0;
+    }
+    switch (type) {
+    case INT:
+      return row.getInt(index);
+    case BOOLEAN:
+      return row.getBoolean(index) ? 1 : 0;
+    case DOUBLE:
+      return Long.hashCode(Double.doubleToLongBits(row.getDouble(index)));
+    case STRING:
+      // same as the string's hash code, so encoded and plain rows of equal keys land in the same slot
+      Dictionary dictionary = row.getDictionary(index);
+      return dictionary == null ? row.getString(index).hashCode() : dictionary.hash(row.getCode(index));
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+}
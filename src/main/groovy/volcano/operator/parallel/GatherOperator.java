@@ -0,0 +1,213 @@
+package volcano.operator.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Strings;
+
+import volcano.db.Row;
+import volcano.operator.Operator;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Exchange operator that runs copies of a pipeline on worker threads and combines their output in whatever order
+ * it arrives. The copies share their input through {@link SharedState}, e.g. a {@link MorselQueue} handing out
+ * table ranges, so together they produce the same rows as a single copy would. Workers copy each batch they
+ * produce, since the pipeline reuses its rows, and hand it over through a bounded queue.
+ */
+public class GatherOperator implements Operator {
+
+  private static final Row[] END = new Row[0];
+  private static final int CHUNKS_PER_WORKER = 4;
+  private static final long OFFER_TIMEOUT_MILLIS = 10;
+
+  private final List<Operator> pipelines;
+  private final ExecutorService executor;
+  private final List<? extends SharedState> sharedState;
+
+  private BlockingQueue<Row[]> chunks;
+  private List<Future<?>> workers;
+  private int runningWorkers;
+  private volatile boolean cancelled;
+  private final AtomicReference<Throwable> failure;
+
+  private Row[] chunk;
+  private int chunkIndex;
+
+  public GatherOperator(List<Operator> pipelines, ExecutorService executor, List<? extends SharedState> sharedState) {
+    if (pipelines.isEmpty()) {
+      throw new IllegalArgumentException("Gather requires at least one pipeline");
+    }
+    this.pipelines = pipelines;
+    this.executor = executor;
+    this.sharedState = sharedState;
+    this.workers = new ArrayList<>();
+    this.failure = new AtomicReference<>();
+  }
+
+  @Override
+  public void open() {
+    sharedState.forEach(SharedState::reset);
+    cancelled = false;
+    failure.set(null);
+    chunk = null;
+    chunkIndex = 0;
+    chunks = new ArrayBlockingQueue<>(CHUNKS_PER_WORKER * pipelines.size());
+    runningWorkers = pipelines.size();
+    workers = new ArrayList<>();
+    for (Operator pipeline : pipelines) {
+      workers.add(executor.submit(() -> run(pipeline)));
+    }
+  }
+
+  private void run(Operator pipeline) {
+    try {
+      pipeline.open();
+      RowBatch batch = new RowBatch();
+      while (!cancelled && pipeline.nextBatch(batch)) {
+        Row[] rows = new Row[batch.size()];
+        for (int i = 0; i < rows.length; i++) {
+          rows[i] = batch.get(i).copy();
+        }
+        put(rows);
+      }
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+    } finally {
+      try {
+        pipeline.close();
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      }
+      put(END);
+    }
+  }
+
+  // gives up once the consumer has closed the gather, so a worker never blocks on a queue nobody drains
+  private void put(Row[] rows) {
+    try {
+      while (!cancelled) {
+        if (chunks.offer(rows, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public Row next() {
+    if (!hasRows()) {
+      return null;
+    }
+    return chunk[chunkIndex++];
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    batch.clear();
+    while (!batch.isFull()) {
+      // hand over what's already here rather than wait on the workers for a full batch
+      if ((chunk == null || chunkIndex == chunk.length) && batch.size() > 0 && chunks.isEmpty()) {
+        break;
+      }
+      if (!hasRows()) {
+        break;
+      }
+      int count = Math.min(chunk.length - chunkIndex, batch.capacity() - batch.size());
+      for (int i = 0; i < count; i++) {
+        batch.add(chunk[chunkIndex++]);
+      }
+    }
+    return batch.size() > 0;
+  }
+
+  /**
+   * @return false once every worker has finished
+   */
+  private boolean hasRows() {
+    while (chunk == null || chunkIndex == chunk.length) {
+      if (runningWorkers == 0) {
+        return false;
+      }
+      chunk = takeChunk();
+      chunkIndex = 0;
+      if (chunk == END) {
+        runningWorkers--;
+        checkFailure();
+      }
+    }
+    return true;
+  }
+
+  private Row[] takeChunk() {
+    try {
+      return chunks.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for parallel workers", e);
+    }
+  }
+
+  private void checkFailure() {
+    Throwable t = failure.get();
+    if (t != null) {
+      close();
+      throw new IllegalStateException("Parallel worker failed", t);
+    }
+  }
+
+  /**
+   * Stops the workers and waits for them to finish, so the pipelines and their shared state can be reused
+   */
+  @Override
+  public void close() {
+    cancelled = true;
+    for (Future<?> worker : workers) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while stopping parallel workers", e);
+      } catch (ExecutionException e) {
+        // already reported through failure
+      }
+    }
+    workers.clear();
+    runningWorkers = 0;
+    if (chunks != null) {
+      chunks.clear();
+    }
+    chunk = null;
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return pipelines.get(0).getOutputSchema();
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("gather[");
+    sb.append("parallelism:");
+    sb.append(pipelines.size());
+    sb.append(",");
+    sb.append("input:").append("\n");
+    sb.append(pipelines.get(0).printOperator(indentation + 2));
+    sb.append("\n");
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append("]");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,54 @@
+package volcano.operator.parallel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import volcano.operator.batch.RowBatch;
+
+/**
+ * Hands out consecutive ranges ("morsels") of a table's rows to parallel scans. Each scan claims a new morsel
+ * when it finishes the previous one, so faster workers naturally take on more of the table.
+ */
+public class MorselQueue implements SharedState {
+
+  public static final int DEFAULT_MORSEL_SIZE = 16 * RowBatch.DEFAULT_CAPACITY;
+
+  private final int rowCount;
+  private final int morselSize;
+  private final AtomicInteger nextStart;
+
+  public MorselQueue(int rowCount) {
+    this(rowCount, DEFAULT_MORSEL_SIZE);
+  }
+
+  public MorselQueue(int rowCount, int morselSize) {
+    if (morselSize <= 0) {
+      throw new IllegalArgumentException(String.format("Morsel size must be positive; received %d", morselSize));
+    }
+    this.rowCount = rowCount;
+    this.morselSize = morselSize;
+    this.nextStart = new AtomicInteger();
+  }
+
+  /**
+   * @return first row of the claimed morsel, or -1 if the table has been handed out
+   */
+  public int claim() {
+    if (nextStart.get() >= rowCount) {
+      return -1;
+    }
+    int start = nextStart.getAndAdd(morselSize);
+    return start < rowCount ? start : -1;
+  }
+
+  /**
+   * @return end (exclusive) of the morsel starting at start
+   */
+  public int end(int start) {
+    return Math.min(rowCount, start + morselSize);
+  }
+
+  @Override
+  public void reset() {
+    nextStart.set(0);
+  }
+}
@@ -0,0 +1,26 @@
+package volcano.operator.parallel;
+
+import java.util.function.Supplier;
+
+import volcano.operator.hash.JoinHashTable;
+
+/**
+ * Hash table built once and probed by every copy of a parallel join pipeline. The first copy to open builds it;
+ * the others wait and then read it concurrently, which is safe since the table isn't modified after the build.
+ */
+public class SharedJoinBuild implements SharedState {
+
+  private JoinHashTable table;
+
+  public synchronized JoinHashTable getOrBuild(Supplier<JoinHashTable> builder) {
+    if (table == null) {
+      table = builder.get();
+    }
+    return table;
+  }
+
+  @Override
+  public synchronized void reset() {
+    table = null;
+  }
+}
@@ -0,0 +1,9 @@
+package volcano.operator.parallel;
+
+/**
+ * State shared by the pipeline copies under a {@link GatherOperator}, reset before every execution
+ */
+public interface SharedState {
+
+  void reset();
+}
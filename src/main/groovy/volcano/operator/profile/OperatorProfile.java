@@ -0,0 +1,196 @@
+package volcano.operator.profile;
+
+import java.util.List;
+
+import com.google.common.base.Strings;
+
+import volcano.operator.Operator;
+
+/**
+ * Runtime statistics of one operator of a tree run for EXPLAIN ANALYZE, recorded by a {@link ProfilingOperator},
+ * along with the profiles of the operator's inputs. Times are inclusive, so an operator's time covers the calls it
+ * made into its inputs; the self time leaves those out.
+ */
+public class OperatorProfile {
+
+  public enum Phase {
+    OPEN, NEXT, CLOSE
+  }
+
+  private final Operator operator;
+  private final double estimatedRows;
+  private final List<OperatorProfile> inputs;
+  private final long[] wallNanos;
+  private final long[] cpuNanos;
+  private long opens;
+  private long rows;
+  private long peakBufferedRows;
+  private long peakBufferedBytes;
+
+  OperatorProfile(Operator operator, double estimatedRows, List<OperatorProfile> inputs) {
+    this.operator = operator;
+    this.estimatedRows = estimatedRows;
+    this.inputs = inputs;
+    this.wallNanos = new long[Phase.values().length];
+    this.cpuNanos = new long[Phase.values().length];
+    this.peakBufferedRows = -1;
+    this.peakBufferedBytes = -1;
+  }
+
+  void opened() {
+    opens++;
+  }
+
+  void record(Phase phase, long wall, long cpu) {
+    wallNanos[phase.ordinal()] += wall;
+    cpuNanos[phase.ordinal()] += cpu;
+  }
+
+  void addRows(long count) {
+    rows += count;
+  }
+
+  void recordPeak(long rows, long bytes) {
+    peakBufferedRows = Math.max(peakBufferedRows, rows);
+    peakBufferedBytes = Math.max(peakBufferedBytes, bytes);
+  }
+
+  /**
+   * @return the first line of the operator's plan, without the input that follows it, with the current values of
+   * its bind parameters. A leaf, such as a compiled pipeline with its scan, is joined onto one line instead.
+   */
+  public String getOperator() {
+    String plan = operator.printOperator(0);
+    if (inputs.isEmpty()) {
+      return plan.replaceAll("\n\\s*", "");
+    }
+    String line = plan.split("\n", 2)[0].replaceAll(",?(input:)?$", "");
+    return line.endsWith("[") ? line.substring(0, line.length() - 1) : line + "]";
+  }
+
+  /**
+   * @return rows the planner expected the operator to return, or NaN if it made no estimate
+   */
+  public double getEstimatedRows() {
+    return estimatedRows;
+  }
+
+  /**
+   * @return rows the operator returned
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * @return rows the operator's inputs returned to it
+   */
+  public long getInputRows() {
+    return inputs.stream().mapToLong(OperatorProfile::getRows).sum();
+  }
+
+  /**
+   * @return times the operator was opened; 0 if it never ran, e.g. the build side of a copy of a parallel join that
+   * found the shared hash table already built
+   */
+  public long getOpens() {
+    return opens;
+  }
+
+  public long getWallNanos(Phase phase) {
+    return wallNanos[phase.ordinal()];
+  }
+
+  public long getWallNanos() {
+    long total = 0;
+    for (long nanos : wallNanos) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * @return wall time not spent in the inputs; inputs running on other threads, as under a gather, count against it
+   * too, so it doesn't go below 0
+   */
+  public long getSelfWallNanos() {
+    long inputNanos = inputs.stream().mapToLong(OperatorProfile::getWallNanos).sum();
+    return Math.max(0, getWallNanos() - inputNanos);
+  }
+
+  /**
+   * @return CPU time of the calling thread, or 0 if the JVM doesn't measure thread CPU time
+   */
+  public long getCpuNanos(Phase phase) {
+    return cpuNanos[phase.ordinal()];
+  }
+
+  public long getCpuNanos() {
+    long total = 0;
+    for (long nanos : cpuNanos) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  /**
+   * @return most rows the operator held in memory at once, or -1 if it doesn't buffer rows
+   */
+  public long getPeakBufferedRows() {
+    return peakBufferedRows;
+  }
+
+  /**
+   * @return estimated size of the buffered rows at their peak, or -1 if the operator doesn't buffer rows
+   */
+  public long getPeakBufferedBytes() {
+    return peakBufferedBytes;
+  }
+
+  public List<OperatorProfile> getInputs() {
+    return inputs;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    append(sb, 0);
+    return sb.toString();
+  }
+
+  private void append(StringBuilder sb, int indentation) {
+    sb.append(Strings.repeat(" ", indentation));
+    sb.append(getOperator());
+    sb.append(" (");
+    if (!Double.isNaN(estimatedRows)) {
+      sb.append(String.format("estimated_rows=%.0f ", estimatedRows));
+    }
+    if (opens == 0) {
+      sb.append("never executed)");
+    } else {
+      sb.append("rows=").append(rows);
+      if (!inputs.isEmpty()) {
+        sb.append(" input_rows=").append(getInputRows());
+      }
+      sb.append(" time=").append(millis(getWallNanos()));
+      sb.append(" self=").append(millis(getSelfWallNanos()));
+      sb.append(" cpu=").append(millis(getCpuNanos()));
+      for (Phase phase : Phase.values()) {
+        sb.append(" ").append(phase.name().toLowerCase()).append("=").append(millis(getWallNanos(phase)));
+      }
+      if (peakBufferedRows >= 0) {
+        sb.append(" peak_rows=").append(peakBufferedRows);
+        sb.append(" peak_bytes=").append(peakBufferedBytes);
+      }
+      sb.append(")");
+    }
+    for (OperatorProfile input : inputs) {
+      sb.append("\n");
+      input.append(sb, indentation + 2);
+    }
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.3fms", nanos / 1e6);
+  }
+}
@@ -0,0 +1,124 @@
+package volcano.operator.profile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.operator.BufferingOperator;
+import volcano.operator.Operator;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.profile.OperatorProfile.Phase;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Passes every call through to an operator, recording in an {@link OperatorProfile} the rows it returns and the
+ * wall and CPU time of each call. The planner only wraps operators when a plan is profiled, so other plans don't
+ * read the clocks at all. Reading them costs on the order of a microsecond per call, which inflates the times of
+ * operators pulled a row at a time rather than a batch at a time.
+ */
+public class ProfilingOperator implements Operator {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME =
+      THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+  private final Operator operator;
+  private final OperatorProfile profile;
+
+  /**
+   * @param inputs profiles of the wrapped inputs of the operator
+   */
+  public ProfilingOperator(Operator operator, double estimatedRows, List<OperatorProfile> inputs) {
+    this.operator = operator;
+    this.profile = new OperatorProfile(operator, estimatedRows, inputs);
+  }
+
+  /**
+   * Run a profiled tree to completion, discarding its rows
+   *
+   * @return the profile of the root, which holds those of the operators under it
+   */
+  public static OperatorProfile analyze(Operator root) {
+    if (!(root instanceof ProfilingOperator)) {
+      throw new IllegalArgumentException("Operator tree was planned without profiling");
+    }
+    root.open();
+    try {
+      RowBatch batch = new RowBatch();
+      while (root.nextBatch(batch)) {
+        // rows are counted by the profile
+      }
+    } finally {
+      root.close();
+    }
+    return ((ProfilingOperator)root).getProfile();
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  public OperatorProfile getProfile() {
+    return profile;
+  }
+
+  @Override
+  public void open() {
+    profile.opened();
+    long wall = System.nanoTime();
+    long cpu = cpuTime();
+    operator.open();
+    profile.record(Phase.OPEN, System.nanoTime() - wall, cpuTime() - cpu);
+  }
+
+  @Override
+  public Row next() {
+    long wall = System.nanoTime();
+    long cpu = cpuTime();
+    Row r = operator.next();
+    profile.record(Phase.NEXT, System.nanoTime() - wall, cpuTime() - cpu);
+    if (r != null) {
+      profile.addRows(1);
+    }
+    return r;
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    long wall = System.nanoTime();
+    long cpu = cpuTime();
+    boolean more = operator.nextBatch(batch);
+    profile.record(Phase.NEXT, System.nanoTime() - wall, cpuTime() - cpu);
+    if (more) {
+      profile.addRows(batch.size());
+    }
+    return more;
+  }
+
+  @Override
+  public void close() {
+    long wall = System.nanoTime();
+    long cpu = cpuTime();
+    operator.close();
+    profile.record(Phase.CLOSE, System.nanoTime() - wall, cpuTime() - cpu);
+    if (operator instanceof BufferingOperator) {
+      BufferingOperator buffering = (BufferingOperator)operator;
+      profile.recordPeak(buffering.getPeakBufferedRows(), buffering.getPeakBufferedBytes());
+    }
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return operator.getOutputSchema();
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    return operator.printOperator(indentation);
+  }
+
+  private static long cpuTime() {
+    return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+  }
+}
@@ -0,0 +1,93 @@
+package volcano.operator.sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import volcano.db.Row;
+
+/**
+ * K-way merge of sorted runs. Each internal node of the tree remembers the loser of the match played there, so
+ * replacing the winner's row only replays the matches on its path to the root: log(k) comparisons per row.
+ * Ties go to the run with the lower index, which keeps the merge stable when runs are in input order.
+ */
+public class LoserTree {
+
+  /**
+   * A sorted run; a returned row only has to stay valid until the run's next call
+   */
+  public interface Run {
+    Row next();
+  }
+
+  private static final int NONE = -1;
+
+  private final Run[] runs;
+  private final Comparator<Row> comparator;
+  private final Row[] heads;
+  // tree[0] holds the overall winner, tree[1..k-1] the loser of each match
+  private final int[] tree;
+  private int pendingAdvance;
+
+  public LoserTree(List<? extends Run> runs, Comparator<Row> comparator) {
+    this.runs = runs.toArray(new Run[0]);
+    this.comparator = comparator;
+    this.heads = new Row[this.runs.length];
+    this.tree = new int[Math.max(1, this.runs.length)];
+    Arrays.fill(tree, NONE);
+    for (int i = 0; i < this.runs.length; i++) {
+      heads[i] = this.runs[i].next();
+      replay(i);
+    }
+    this.pendingAdvance = NONE;
+  }
+
+  /**
+   * @return the smallest remaining row, valid until the next call, or null once every run is exhausted
+   */
+  public Row next() {
+    if (runs.length == 0) {
+      return null;
+    }
+    // the winning run is only advanced now, since advancing it may overwrite the row returned last time
+    if (pendingAdvance != NONE) {
+      heads[pendingAdvance] = runs[pendingAdvance].next();
+      replay(pendingAdvance);
+    }
+    int winner = tree[0];
+    if (heads[winner] == null) {
+      pendingAdvance = NONE;
+      return null;
+    }
+    pendingAdvance = winner;
+    return heads[winner];
+  }
+
+  private void replay(int run) {
+    int winner = run;
+    for (int node = (run + runs.length) >> 1; node > 0; node >>= 1) {
+      if (tree[node] == NONE) {
+        // still building the tree: wait here for the other side of the match
+        tree[node] = winner;
+        return;
+      }
+      if (beats(tree[node], winner)) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+
+  private boolean beats(int a, int b) {
+    if (heads[b] == null) {
+      return heads[a] != null || a < b;
+    }
+    if (heads[a] == null) {
+      return false;
+    }
+    int c = comparator.compare(heads[a], heads[b]);
+    return c < 0 || (c == 0 && a < b);
+  }
+}
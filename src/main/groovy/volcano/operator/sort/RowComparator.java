@@ -0,0 +1,70 @@
+package volcano.operator.sort;
+
+import java.util.Comparator;
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.db.Type;
+
+/**
+ * Orders rows by several columns in one pass, reading each value through the row's typed accessors.
+ * Nulls sort before every other value in ascending order, and after them in descending order.
+ */
+public class RowComparator implements Comparator<Row> {
+
+  private final Type[] types;
+  private final int[] indexes;
+  private final boolean[] descending;
+
+  public RowComparator(List<Type> types, int[] indexes, List<SortOrder> sortOrders) {
+    if (types.size() != indexes.length || sortOrders.size() != indexes.length) {
+      throw new IllegalArgumentException(
+          String.format("Mismatched sort types [%d], indexes [%d] and orders [%d]", types.size(), indexes.length,
+              sortOrders.size()));
+    }
+    this.types = types.toArray(new Type[0]);
+    this.indexes = indexes;
+    this.descending = new boolean[indexes.length];
+    for (int k = 0; k < indexes.length; k++) {
+      descending[k] = sortOrders.get(k) == SortOrder.DESC;
+    }
+  }
+
+  @Override
+  public int compare(Row a, Row b) {
+    for (int k = 0; k < indexes.length; k++) {
+      int c = compareColumn(types[k], indexes[k], a, b);
+      if (c != 0) {
+        return descending[k] ? -c : c;
+      }
+    }
+    return 0;
+  }
+
+  private static int compareColumn(Type type, int index, Row a, Row b) {
+    return compareValues(type, a, index, b, index);
+  }
+
+  /**
+   * Compare a value of one row with a value of the same type in another row, in ascending order
+   */
+  public static int compareValues(Type type, Row a, int aIndex, Row b, int bIndex) {
+    boolean aNull = a.isNull(aIndex);
+    boolean bNull = b.isNull(bIndex);
+    if (aNull || bNull) {
+      return aNull == bNull ? 0 : (aNull ? -1 : 1);
+    }
+    switch (type) {
+    case INT:
+      return Integer.compare(a.getInt(aIndex), b.getInt(bIndex));
+    case DOUBLE:
+      return Double.compare(a.getDouble(aIndex), b.getDouble(bIndex));
+    case BOOLEAN:
+      return Boolean.compare(a.getBoolean(aIndex), b.getBoolean(bIndex));
+    case STRING:
+      return a.getString(aIndex).compareTo(b.getString(bIndex));
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized type %s", type));
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package volcano.operator.spill;
+
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.db.Row;
+import volcano.db.Type;
+import volcano.operator.hash.KeyHasher;
+
+/**
+ * Splits rows across spill files by the hash of their key columns. Each recursion level uses a different hash
+ * seed, so a partition that is still too large can be split again.
+ */
+public class HashPartitioner {
+
+  private final KeyHasher hasher;
+  private final int[] keyIndexes;
+  private final int level;
+  private final SpillFile[] files;
+  private final SpillFile.Writer[] writers;
+
+  public HashPartitioner(int fanout, List<Type> rowTypes, KeyHasher hasher, int[] keyIndexes, int level) {
+    this.hasher = hasher;
+    this.keyIndexes = keyIndexes;
+    this.level = level;
+    this.files = new SpillFile[fanout];
+    this.writers = new SpillFile.Writer[fanout];
+    for (int i = 0; i < fanout; i++) {
+      files[i] = SpillFile.create(rowTypes);
+      writers[i] = files[i].openWriter();
+    }
+  }
+
+  public void add(Row row) {
+    writers[partition(hasher.hash(row, keyIndexes))].write(row);
+  }
+
+  public List<SpillFile> finish() {
+    for (SpillFile.Writer writer : writers) {
+      writer.close();
+    }
+    return Arrays.asList(files);
+  }
+
+  private int partition(int hash) {
+    return Math.floorMod(KeyHasher.mix(hash ^ (0x9E3779B9 * (level + 1))), files.length);
+  }
+}
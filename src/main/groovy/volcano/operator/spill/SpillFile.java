@@ -0,0 +1,209 @@
+package volcano.operator.spill;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.db.Type;
+
+/**
+ * Temporary local file holding rows of a fixed schema, written once and then read back sequentially.
+ * Each row is a null bitmap followed by its non-null values in binary form.
+ */
+public class SpillFile {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Path path;
+  private final Type[] types;
+  private long rowCount;
+  private long sizeInBytes;
+
+  private SpillFile(Path path, List<Type> types) {
+    this.path = path;
+    this.types = types.toArray(new Type[0]);
+  }
+
+  /**
+   * Create an empty file in the temporary directory; the operator that creates it must {@link #delete()} it, at the
+   * latest when it is closed
+   */
+  public static SpillFile create(List<Type> types) {
+    try {
+      Path path = Files.createTempFile("volcano-", ".spill");
+      return new SpillFile(path, types);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to create spill file", e);
+    }
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public long getSizeInBytes() {
+    return sizeInBytes;
+  }
+
+  public Writer openWriter() {
+    try {
+      return new Writer(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to write spill file %s", path), e);
+    }
+  }
+
+  public Reader openReader() {
+    try {
+      return new Reader(new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to read spill file %s", path), e);
+    }
+  }
+
+  public void delete() {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Unable to delete spill file %s", path), e);
+    }
+  }
+
+  public List<Type> getTypes() {
+    return Arrays.asList(types);
+  }
+
+  public class Writer implements AutoCloseable {
+    private final DataOutputStream out;
+    private final byte[] nullBits;
+
+    private Writer(DataOutputStream out) {
+      this.out = out;
+      this.nullBits = new byte[(types.length + 7) / 8];
+      rowCount = 0;
+    }
+
+    public void write(Row row) {
+      try {
+        for (int i = 0; i < nullBits.length; i++) {
+          nullBits[i] = 0;
+        }
+        for (int c = 0; c < types.length; c++) {
+          if (row.isNull(c)) {
+            nullBits[c >> 3] |= 1 << (c & 7);
+          }
+        }
+        out.write(nullBits);
+        for (int c = 0; c < types.length; c++) {
+          if (row.isNull(c)) {
+            continue;
+          }
+          switch (types[c]) {
+          case INT:
+            out.writeInt(row.getInt(c));
+            break;
+          case DOUBLE:
+            out.writeDouble(row.getDouble(c));
+            break;
+          case BOOLEAN:
+            out.writeBoolean(row.getBoolean(c));
+            break;
+          case STRING:
+            byte[] bytes = row.getString(c).getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            break;
+          default:
+            throw new IllegalArgumentException(String.format("Unrecognized type %s", types[c]));
+          }
+        }
+        rowCount++;
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to write spill file %s", path), e);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        out.close();
+        sizeInBytes = Files.size(path);
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to close spill file %s", path), e);
+      }
+    }
+  }
+
+  public class Reader implements AutoCloseable {
+    private final DataInputStream in;
+    private final byte[] nullBits;
+    private long rowsRead;
+
+    private Reader(DataInputStream in) {
+      this.in = in;
+      this.nullBits = new byte[(types.length + 7) / 8];
+    }
+
+    /**
+     * Read the next row into {@code row}, which must have the file's schema
+     *
+     * @return false if every row has been read
+     */
+    public boolean readInto(MutableRow row) {
+      if (rowsRead == rowCount) {
+        return false;
+      }
+      try {
+        in.readFully(nullBits);
+        for (int c = 0; c < types.length; c++) {
+          if ((nullBits[c >> 3] & (1 << (c & 7))) != 0) {
+            row.setNull(c);
+            continue;
+          }
+          switch (types[c]) {
+          case INT:
+            row.setInt(c, in.readInt());
+            break;
+          case DOUBLE:
+            row.setDouble(c, in.readDouble());
+            break;
+          case BOOLEAN:
+            row.setBoolean(c, in.readBoolean());
+            break;
+          case STRING:
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            row.setString(c, new String(bytes, UTF_8));
+            break;
+          default:
+            throw new IllegalArgumentException(String.format("Unrecognized type %s", types[c]));
+          }
+        }
+        rowsRead++;
+        return true;
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to read spill file %s", path), e);
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Unable to close spill file %s", path), e);
+      }
+    }
+  }
+}
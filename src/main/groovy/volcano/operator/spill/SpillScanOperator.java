@@ -0,0 +1,82 @@
+package volcano.operator.spill;
+
+import com.google.common.base.Strings;
+
+import volcano.db.MutableRow;
+import volcano.db.Row;
+import volcano.operator.Operator;
+import volcano.operator.batch.RowBatch;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Reads back the rows of a {@link SpillFile}
+ */
+public class SpillScanOperator implements Operator {
+
+  private final SpillFile file;
+  private final OutputSchema outputSchema;
+  private SpillFile.Reader reader;
+  private MutableRow row;
+  private MutableRow[] batchRows;
+
+  public SpillScanOperator(SpillFile file, OutputSchema outputSchema) {
+    this.file = file;
+    this.outputSchema = outputSchema;
+  }
+
+  @Override
+  public void open() {
+    reader = file.openReader();
+    row = new MutableRow(outputSchema.getColumnTypes());
+  }
+
+  @Override
+  public Row next() {
+    if (reader == null) {
+      return null;
+    }
+    if (!reader.readInto(row)) {
+      close();
+      return null;
+    }
+    return row;
+  }
+
+  @Override
+  public boolean nextBatch(RowBatch batch) {
+    if (batchRows == null || batchRows.length < batch.capacity()) {
+      batchRows = new MutableRow[batch.capacity()];
+      for (int i = 0; i < batchRows.length; i++) {
+        batchRows[i] = new MutableRow(outputSchema.getColumnTypes());
+      }
+    }
+    batch.clear();
+    while (reader != null && !batch.isFull()) {
+      MutableRow r = batchRows[batch.size()];
+      if (!reader.readInto(r)) {
+        close();
+        break;
+      }
+      batch.add(r);
+    }
+    return batch.size() > 0;
+  }
+
+  @Override
+  public void close() {
+    if (reader != null) {
+      reader.close();
+      reader = null;
+    }
+  }
+
+  @Override
+  public OutputSchema getOutputSchema() {
+    return outputSchema;
+  }
+
+  @Override
+  public String printOperator(int indentation) {
+    return Strings.repeat(" ", indentation) + "spill_scan[rows:" + file.getRowCount() + "]";
+  }
+}
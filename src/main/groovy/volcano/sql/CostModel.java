@@ -0,0 +1,122 @@
+package volcano.sql;
+
+import java.util.List;
+
+import volcano.db.stats.ColumnStatistics;
+import volcano.db.stats.Histogram;
+import volcano.operator.filter.FilterLogicalOp;
+
+/**
+ * Cardinality estimates from table statistics. Statements are planned with their parameters' values where they're
+ * known, so ranges are sized against the column's min, max and histogram. A value that isn't known, such as a bind
+ * parameter of a plan prepared without values, is estimated from the column's distinct count where that doesn't
+ * depend on the value, and with fixed fractions otherwise.
+ */
+class CostModel {
+
+  // share of rows assumed to pass a range or LIKE predicate the statistics can't size
+  static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+  static final double DEFAULT_LIKE_SELECTIVITY = 0.1;
+
+  // an index lookup replaces the scan only for predicates estimated to pass at most this share of the rows; above the
+  // default of an unknown BETWEEN, so one still qualifies, but below that of an unknown one-sided range
+  static final double MAX_INDEX_SCAN_SELECTIVITY = 0.2;
+
+  // bytes a row costs in an in-memory join hash table beyond its stored column values
+  static final long HASH_TABLE_ROW_OVERHEAD_BYTES = 48;
+  // bytes a grouping key or aggregate's state takes per group in a hash aggregate, beyond that overhead
+  static final long AGGREGATE_VALUE_BYTES = 16;
+
+  private CostModel() {
+  }
+
+  /**
+   * @param value a literal or QueryParameter, or for IN and BETWEEN a list of them
+   * @return estimated fraction of the column's rows that satisfy the predicate
+   */
+  static double selectivity(ColumnStatistics stats, FilterLogicalOp op, Object value) {
+    if (stats.getRowCount() == 0) {
+      return 0;
+    }
+    double nonNull = 1 - stats.getNullFraction();
+    switch (op) {
+    case EQ:
+      return nonNull * equalFraction(stats, value);
+    case NEQ:
+      return nonNull * (1 - equalFraction(stats, value));
+    case LT:
+      return nonNull * range(stats, value, true, false);
+    case LTE:
+      return nonNull * range(stats, value, true, true);
+    case GT:
+      return nonNull * range(stats, value, false, false);
+    case GTE:
+      return nonNull * range(stats, value, false, true);
+    case BETWEEN:
+      List<Object> bounds = (List<Object>)value;
+      double fraction = fractionBelow(stats, bounds.get(1), true) - fractionBelow(stats, bounds.get(0), false);
+      return nonNull * (Double.isNaN(fraction) ? DEFAULT_RANGE_SELECTIVITY / 2 : Math.max(0, fraction));
+    case IN:
+      double matching = 0;
+      for (Object v : (List<Object>)value) {
+        matching += equalFraction(stats, v);
+      }
+      return nonNull * Math.min(1, matching);
+    case LIKE:
+      return nonNull * DEFAULT_LIKE_SELECTIVITY;
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized filter operator [%s]", op));
+    }
+  }
+
+  // share of the non-null values equal to value
+  private static double equalFraction(ColumnStatistics stats, Object value) {
+    if (stats.getDistinctCount() == 0) {
+      return 0;
+    }
+    if (isKnown(value) && (value == null || outOfRange(stats, (Comparable)value))) {
+      return 0;
+    }
+    return 1.0 / stats.getDistinctCount();
+  }
+
+  // share of the non-null values on one side of value
+  private static double range(ColumnStatistics stats, Object value, boolean below, boolean inclusive) {
+    double fraction = fractionBelow(stats, value, below == inclusive);
+    if (Double.isNaN(fraction)) {
+      return DEFAULT_RANGE_SELECTIVITY;
+    }
+    return below ? fraction : 1 - fraction;
+  }
+
+  /**
+   * @return share of the non-null values below value, or at or below it when inclusive; NaN if the statistics
+   * can't tell
+   */
+  private static double fractionBelow(ColumnStatistics stats, Object value, boolean inclusive) {
+    if (!isKnown(value) || value == null || stats.getMin() == null) {
+      return Double.NaN;
+    }
+    Comparable v = (Comparable)value;
+    if (v.compareTo(stats.getMin()) < 0) {
+      return 0;
+    }
+    if (v.compareTo(stats.getMax()) > 0) {
+      return 1;
+    }
+    double equal = inclusive ? 1.0 / stats.getDistinctCount() : 0;
+    Histogram histogram = stats.getHistogram();
+    if (histogram != null && v instanceof Number) {
+      return Math.min(1, histogram.fractionBelow(((Number)v).doubleValue()) + equal);
+    }
+    return Double.NaN;
+  }
+
+  private static boolean outOfRange(ColumnStatistics stats, Comparable value) {
+    return stats.getMin() != null && (value.compareTo(stats.getMin()) < 0 || value.compareTo(stats.getMax()) > 0);
+  }
+
+  private static boolean isKnown(Object value) {
+    return !(value instanceof QueryParameter);
+  }
+}
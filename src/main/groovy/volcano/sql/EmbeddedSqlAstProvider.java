@@ -0,0 +1,21 @@
+package volcano.sql;
+
+import java.util.Map;
+
+import volcano.sql.parser.SqlParser;
+
+/**
+ * Parses statements in-process with {@link SqlParser}
+ */
+public class EmbeddedSqlAstProvider implements SqlAstProvider {
+
+  @Override
+  public Map<String,Object> getAst(String sql) {
+    return new SqlParser(sql).parseStatement();
+  }
+
+  @Override
+  public boolean supportsBindParameters() {
+    return true;
+  }
+}
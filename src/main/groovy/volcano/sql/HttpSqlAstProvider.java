@@ -0,0 +1,46 @@
+package volcano.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.Charsets;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import com.google.gson.Gson;
+
+/**
+ * Gets the AST from the flora-sql-parser service in {@code sql-ast-parser}
+ */
+public class HttpSqlAstProvider implements SqlAstProvider {
+
+  private final HttpClient httpClient;
+  private final String address;
+  private final Gson gson;
+
+  public HttpSqlAstProvider(String host, int port) {
+    this.httpClient = HttpClients.createDefault();
+    this.address = String.format("http://%s:%s/ast", host, port);
+    this.gson = new Gson();
+  }
+
+  @Override
+  public Map<String,Object> getAst(String sql) throws Exception {
+    HttpPost post = new HttpPost(address);
+    post.addHeader("content-type", "application/json");
+    Map<String,String> bodyMap = new HashMap<>();
+    bodyMap.put("sql", sql);
+    StringEntity bodyEntity = new StringEntity(gson.toJson(bodyMap), Charsets.UTF_8);
+    post.setEntity(bodyEntity);
+    HttpResponse response = httpClient.execute(post);
+    if (response.getStatusLine().getStatusCode() > 201) {
+      throw new IllegalStateException(String.format("Error contacting SQL parsing service (%d): %s",
+          response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
+    }
+    return gson.fromJson(EntityUtils.toString(response.getEntity()), Map.class);
+  }
+}
@@ -0,0 +1,115 @@
+package volcano.sql;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import volcano.db.Database;
+
+/**
+ * LRU cache of planned statements, keyed by normalized SQL. Each entry keeps the parsed statement and a few idle
+ * operator trees; a tree is checked out for one execution at a time. Since normalization turns literals into bind
+ * parameters, each execution's values are costed first: an idle tree planned with the same choices is reused, and
+ * otherwise a new one is planned for the values from the parsed statement (without re-parsing).
+ */
+public class PlanCache {
+
+  public static final int DEFAULT_CAPACITY = 512;
+
+  // idle plans kept per statement, enough for a few concurrent executions
+  private static final int MAX_IDLE_PLANS = 4;
+
+  private final Map<String,Entry> entries;
+
+  public PlanCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public PlanCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(String.format("Plan cache capacity must be positive; received %d", capacity));
+    }
+    this.entries = new LinkedHashMap<String,Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * @param planner plans the statement on a cache miss
+   */
+  public Entry get(String normalizedSql, Function<String,SqlSelectNode> planner) {
+    synchronized (entries) {
+      Entry entry = entries.get(normalizedSql);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    // plan outside the lock; if two threads miss at once, the first entry cached wins
+    Entry entry = new Entry(planner.apply(normalizedSql));
+    synchronized (entries) {
+      return entries.computeIfAbsent(normalizedSql, k -> entry);
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public static class Entry {
+    private final SqlSelectNode statement;
+    private final Deque<PreparedPlan> idlePlans;
+
+    private Entry(SqlSelectNode statement) {
+      this.statement = statement;
+      this.idlePlans = new ArrayDeque<>();
+    }
+
+    public int getParameterCount() {
+      return statement.getParameterCount();
+    }
+
+    /**
+     * @param parameters the values the tree is about to be bound to
+     */
+    public PreparedPlan acquire(Database db, Object[] parameters) {
+      SqlSelectNode.PlanChoices choices = statement.planChoices(db, parameters);
+      synchronized (idlePlans) {
+        for (Iterator<PreparedPlan> plans = idlePlans.iterator(); plans.hasNext(); ) {
+          PreparedPlan plan = plans.next();
+          if (plan.getChoices().equals(choices)) {
+            plans.remove();
+            return plan;
+          }
+        }
+      }
+      return statement.toPreparedPlan(db, parameters);
+    }
+
+    /**
+     * @return a new tree for the statement with every operator profiled; it isn't cached
+     */
+    public PreparedPlan profile(Database db, Object[] parameters) {
+      return statement.toProfiledPlan(db, parameters);
+    }
+
+    /**
+     * Hand back a tree; the least recently used idle one makes room for it if the entry is full
+     */
+    public void release(PreparedPlan plan) {
+      synchronized (idlePlans) {
+        if (idlePlans.size() == MAX_IDLE_PLANS) {
+          idlePlans.removeLast();
+        }
+        idlePlans.push(plan);
+      }
+    }
+  }
+}
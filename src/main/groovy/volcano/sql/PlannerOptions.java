@@ -0,0 +1,141 @@
+package volcano.sql;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import volcano.operator.SortOperator;
+
+/**
+ * Settings that control how {@link SqlSelectNode} plans a query
+ */
+public class PlannerOptions {
+
+  public static final PlannerOptions DEFAULT = builder().build();
+
+  private final int parallelism;
+  private final ExecutorService executor;
+  private final long memoryBudgetBytes;
+  private final boolean compilePipelines;
+  private final boolean exactDecimal;
+
+  private PlannerOptions(Builder builder) {
+    this.parallelism = builder.parallelism;
+    this.executor = builder.executor;
+    this.memoryBudgetBytes = builder.memoryBudgetBytes;
+    this.compilePipelines = builder.compilePipelines;
+    this.exactDecimal = builder.exactDecimal;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return number of pipeline copies a parallel scan runs; 1 plans every query serially
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * @return pool that runs parallel pipelines, the shared {@link DefaultExecutor} unless one was given
+   */
+  public ExecutorService getExecutor() {
+    return executor != null ? executor : DefaultExecutor.POOL;
+  }
+
+  /**
+   * @return memory each sort or hash join may buffer before it spills to disk
+   */
+  public long getMemoryBudgetBytes() {
+    return memoryBudgetBytes;
+  }
+
+  /**
+   * @return whether scans and the filters and projection over them are fused into compiled pipelines, rather than
+   * interpreted operator by operator
+   */
+  public boolean isCompilePipelines() {
+    return compilePipelines;
+  }
+
+  /**
+   * @return whether SUM and AVG over DOUBLE columns add in exact decimal arithmetic, rather than in doubles whose
+   * result depends on the order rows arrive in
+   */
+  public boolean isExactDecimal() {
+    return exactDecimal;
+  }
+
+  public static class Builder {
+    private int parallelism = 1;
+    private ExecutorService executor;
+    private long memoryBudgetBytes = SortOperator.DEFAULT_MEMORY_BUDGET_BYTES;
+    private boolean compilePipelines = true;
+    private boolean exactDecimal;
+
+    private Builder() {
+    }
+
+    public Builder parallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException(String.format("Parallelism must be at least 1; received %d", parallelism));
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Pool that runs parallel pipelines; by default they share one pool of daemon threads, which the caller need not
+     * shut down
+     */
+    public Builder executor(ExecutorService executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    public Builder memoryBudgetBytes(long memoryBudgetBytes) {
+      if (memoryBudgetBytes <= 0) {
+        throw new IllegalArgumentException(
+            String.format("Memory budget must be positive; received %d", memoryBudgetBytes));
+      }
+      this.memoryBudgetBytes = memoryBudgetBytes;
+      return this;
+    }
+
+    public Builder compilePipelines(boolean compilePipelines) {
+      this.compilePipelines = compilePipelines;
+      return this;
+    }
+
+    public Builder exactDecimal(boolean exactDecimal) {
+      this.exactDecimal = exactDecimal;
+      return this;
+    }
+
+    public PlannerOptions build() {
+      return new PlannerOptions(this);
+    }
+  }
+
+  /**
+   * Holds the pool shared by every options instance without its own executor, created on first use. Threads are
+   * added as concurrent queries need them and exit after idling for a minute.
+   */
+  private static class DefaultExecutor {
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(new WorkerThreadFactory());
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "volcano-worker-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package volcano.sql;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import volcano.operator.Operator;
+
+/**
+ * Operator tree of a statement with bind parameters, along with the steps that push parameter values into its
+ * filters and limits. The tree can be re-bound and re-opened for every execution, but only runs one at a time.
+ */
+public class PreparedPlan {
+
+  private final Operator root;
+  private final int parameterCount;
+  private final List<Consumer<Object[]>> binders;
+  private final SqlSelectNode.PlanChoices choices;
+
+  PreparedPlan(Operator root, int parameterCount, List<Consumer<Object[]>> binders,
+      SqlSelectNode.PlanChoices choices) {
+    this.root = root;
+    this.parameterCount = parameterCount;
+    this.binders = binders;
+    this.choices = choices;
+  }
+
+  public int getParameterCount() {
+    return parameterCount;
+  }
+
+  /**
+   * @return the decisions the tree was planned with, which another execution's values must share to reuse it
+   */
+  SqlSelectNode.PlanChoices getChoices() {
+    return choices;
+  }
+
+  /**
+   * @return the operator tree with the parameters bound, ready to be opened
+   */
+  public Operator bind(Object... parameters) {
+    if (parameters.length != parameterCount) {
+      throw new IllegalArgumentException(
+          String.format("Expected %d parameters but received %d", parameterCount, parameters.length));
+    }
+    binders.forEach(b -> b.accept(parameters));
+    return root;
+  }
+}
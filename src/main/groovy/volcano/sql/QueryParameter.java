@@ -0,0 +1,34 @@
+package volcano.sql;
+
+import volcano.db.Type;
+
+/**
+ * A {@code ?} in a statement, standing in for a value of the given type until the statement is executed
+ */
+public class QueryParameter {
+
+  private final int index;
+  private final Type type;
+
+  public QueryParameter(int index, Type type) {
+    this.index = index;
+    this.type = type;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public Comparable bind(Object[] parameters) {
+    if (index >= parameters.length) {
+      throw new IllegalArgumentException(
+          String.format("No value bound for parameter %d; received %d values", index + 1, parameters.length));
+    }
+    return type.cast(parameters[index]);
+  }
+
+  @Override
+  public String toString() {
+    return "?" + (index + 1);
+  }
+}
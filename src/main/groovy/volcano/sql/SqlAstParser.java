@@ -1,54 +1,51 @@
 package volcano.sql;
 
-import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.codec.Charsets;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
-
-import com.google.gson.Gson;
-
 import volcano.db.Database;
 import volcano.operator.Operator;
 
 public class SqlAstParser {
 
-  private final HttpClient httpClient;
-  private final String address;
+  private final SqlAstProvider astProvider;
+
+  /**
+   * Parses in-process
+   */
+  public SqlAstParser() {
+    this(new EmbeddedSqlAstProvider());
+  }
 
+  /**
+   * Parses through the SQL AST service listening on host:port
+   */
   public SqlAstParser(String host, int port) {
-    this.httpClient = HttpClients.createDefault();
-    this.address = String.format("http://%s:%s/ast", host, port);
+    this(new HttpSqlAstProvider(host, port));
+  }
+
+  public SqlAstParser(SqlAstProvider astProvider) {
+    this.astProvider = astProvider;
   }
 
   public Operator parse(String sql, Database db) throws Exception {
-    Map<String,Object> ast = getAst(sql);
+    return parse(sql, db, PlannerOptions.DEFAULT);
+  }
+
+  public Operator parse(String sql, Database db, PlannerOptions options) throws Exception {
+    return parseStatement(sql, db, options).toOperator(db);
+  }
+
+  public SqlSelectNode parseStatement(String sql, Database db, PlannerOptions options) throws Exception {
+    Map<String,Object> ast = astProvider.getAst(sql);
     String type = (String)ast.get("type");
     if (type.equalsIgnoreCase("select")) {
-      return new SqlSelectNode(ast, db).toOperator(db);
+      return new SqlSelectNode(ast, db, options);
     } else {
       throw new IllegalArgumentException("expected top-level select, but was " + type);
     }
   }
 
-  private Map<String,Object> getAst(String sql) throws Exception {
-    Gson gson = new Gson();
-    HttpPost post = new HttpPost(address);
-    post.addHeader("content-type", "application/json");
-    Map<String,String> bodyMap = new HashMap<>();
-    bodyMap.put("sql", sql);
-    StringEntity bodyEntity = new StringEntity(gson.toJson(bodyMap), Charsets.UTF_8);
-    post.setEntity(bodyEntity);
-    HttpResponse response = httpClient.execute(post);
-    if (response.getStatusLine().getStatusCode() > 201) {
-      throw new IllegalStateException(String.format("Error contacting SQL parsing service (%d): %s",
-          response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase()));
-    }
-    return gson.fromJson(EntityUtils.toString(response.getEntity()), Map.class);
+  public boolean supportsBindParameters() {
+    return astProvider.supportsBindParameters();
   }
 }
@@ -0,0 +1,18 @@
+package volcano.sql;
+
+import java.util.Map;
+
+/**
+ * Turns a SQL statement into the flora-sql-parser style AST consumed by {@link SqlSelectNode}
+ */
+public interface SqlAstProvider {
+
+  Map<String,Object> getAst(String sql) throws Exception;
+
+  /**
+   * @return true if {@code ?} placeholders parse to {@code param} nodes
+   */
+  default boolean supportsBindParameters() {
+    return false;
+  }
+}
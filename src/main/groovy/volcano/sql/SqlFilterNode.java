@@ -1,66 +1,125 @@
 package volcano.sql;
 
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.google.common.collect.ImmutableList;
 
 import volcano.db.Database;
+import volcano.db.Type;
+import volcano.db.index.Index;
 import volcano.operator.Operator;
+import volcano.operator.filter.ClausePredicate;
 import volcano.operator.filter.FilterClause;
 import volcano.operator.filter.FilterLogicalOp;
+import volcano.operator.filter.Predicate;
+import volcano.operator.util.OutputSchema;
+import volcano.sql.SqlLogicalNode.LogicalOp;
+
+/**
+ * A single comparison of a column against a value
+ */
+public class SqlFilterNode implements SqlNode, SqlPredicateNode {
 
-public class SqlFilterNode implements SqlNode {
+  private static final Object[] NO_PARAMETERS = new Object[0];
 
+  // null when the clause doesn't name its table
+  private final String tableName;
   private final String column;
   private final FilterLogicalOp op;
-  private final Comparable value;
+  // a literal or QueryParameter, or for IN and BETWEEN a list of them
+  private final Object value;
 
-  private SqlFilterNode(String column, FilterLogicalOp op, Comparable value) {
+  private SqlFilterNode(String tableName, String column, FilterLogicalOp op, Object value) {
+    this.tableName = tableName;
     this.column = column;
     this.op = op;
     this.value = value;
   }
 
-  static SqlFilterNode parseFilterNode(Map<String,Object> jsonNode, Database db, List<String> tableNames) {
+  /**
+   * @return the WHERE clause's condition, or null if there is none
+   */
+  static SqlPredicateNode parseFilterNode(Map<String,Object> jsonNode, Database db, List<String> tableNames) {
     if (jsonNode.get("where") == null) {
       return null;
-    } else {
-      Map<String,Object> where = (Map<String,Object>)jsonNode.get("where");
-      if (where.get("type").equals("column_ref")) {
-        // treat 'where col' as 'where col = true'
-        return new SqlFilterNode((String)where.get("column"), FilterLogicalOp.EQ, true);
-      } else if (where.get("type").equals("unary_expr")) {
-        // treat 'where not col' as 'where col <> true'
-        if (!where.get("operator").equals("NOT")) {
-          throw new IllegalArgumentException(
-              String.format("NOT is the only supported unary operator; received %s", where.get("operator")));
-        }
-        Map<String,Object> expr = (Map<String,Object>)where.get("expr");
-        String filterColumn = (String)expr.get("column");
-        return new SqlFilterNode(filterColumn, FilterLogicalOp.NEQ, true);
-      } else if (where.get("type").equals("binary_expr")) {
-        FilterLogicalOp op = FilterLogicalOp.findBySqlOp((String)where.get("operator"));
-        Map<String,Object> left = (Map<String,Object>)where.get("left");
-        if (!left.get("type").equals("column_ref")) {
-          throw new IllegalArgumentException(
-              String.format("Only column refs are supported as left value of filter; received %s", left));
-        }
-        String filterColumn = (String)left.get("column");
-        String tableName = (String)left.get("table");
-
-        Map<String,Object> right = (Map<String,Object>)where.get("right");
-        if (!right.containsKey("value")) {
-          throw new IllegalArgumentException(
-              String.format("Only values are supported as right value of filter; received %s", right));
-        }
-        Object filterValue = right.get("value");
-        return new SqlFilterNode(filterColumn, op,
-            (db.getTable(tableName).fieldType(db.getTable(tableName).fieldIdx(filterColumn))).cast(
-                filterValue));
-      } else {
+    }
+    return parsePredicate((Map<String,Object>)jsonNode.get("where"), db, tableNames);
+  }
+
+  private static SqlPredicateNode parsePredicate(Map<String,Object> where, Database db, List<String> tableNames) {
+    if (where.get("type").equals("column_ref")) {
+      // treat 'where col' as 'where col = true'
+      return new SqlFilterNode(tableName(where, tableNames), (String)where.get("column"), FilterLogicalOp.EQ, true);
+    } else if (where.get("type").equals("unary_expr")) {
+      if (!where.get("operator").equals("NOT")) {
+        throw new IllegalArgumentException(
+            String.format("NOT is the only supported unary operator; received %s", where.get("operator")));
+      }
+      Map<String,Object> expr = (Map<String,Object>)where.get("expr");
+      return new SqlLogicalNode(LogicalOp.NOT, ImmutableList.of(parsePredicate(expr, db, tableNames)));
+    } else if (where.get("type").equals("binary_expr")) {
+      String sqlOp = ((String)where.get("operator")).toUpperCase();
+      Map<String,Object> left = (Map<String,Object>)where.get("left");
+      Map<String,Object> right = (Map<String,Object>)where.get("right");
+      if (sqlOp.equals("AND") || sqlOp.equals("OR")) {
+        return new SqlLogicalNode(LogicalOp.valueOf(sqlOp),
+            ImmutableList.of(parsePredicate(left, db, tableNames), parsePredicate(right, db, tableNames)));
+      }
+      if (sqlOp.startsWith("NOT ")) {
+        // NOT IN, NOT BETWEEN and NOT LIKE
+        Map<String,Object> positive = new HashMap<>(where);
+        positive.put("operator", sqlOp.substring("NOT ".length()));
+        return new SqlLogicalNode(LogicalOp.NOT, ImmutableList.of(parsePredicate(positive, db, tableNames)));
+      }
+      FilterLogicalOp op = FilterLogicalOp.findBySqlOp(sqlOp);
+      if (!left.get("type").equals("column_ref")) {
         throw new IllegalArgumentException(
-            String.format("Unrecognized where clause type: %s", where.get("type")));
+            String.format("Only column refs are supported as left value of filter; received %s", left));
       }
+      String filterColumn = (String)left.get("column");
+      String tableName = tableName(left, tableNames);
+      Type columnType = db.getTable(tableName).fieldType(filterColumn);
+      return new SqlFilterNode(tableName, filterColumn, op, parseValue(right, columnType));
+    } else {
+      throw new IllegalArgumentException(
+          String.format("Unrecognized where clause type: %s", where.get("type")));
+    }
+  }
+
+  // a column without a table can only belong to the one table in the FROM clause
+  private static String tableName(Map<String,Object> columnRef, List<String> tableNames) {
+    String tableName = (String)columnRef.get("table");
+    return tableName == null && tableNames.size() == 1 ? tableNames.get(0) : tableName;
+  }
+
+  private static Object parseValue(Map<String,Object> node, Type columnType) {
+    if ("param".equals(node.get("type"))) {
+      return new QueryParameter(((Number)node.get("value")).intValue(), columnType);
+    } else if ("expr_list".equals(node.get("type"))) {
+      List<Map<String,Object>> values = (List<Map<String,Object>>)node.get("value");
+      return values.stream().map(v -> parseValue(v, columnType)).collect(toList());
+    } else if (!node.containsKey("value")) {
+      throw new IllegalArgumentException(
+          String.format("Only values are supported as right value of filter; received %s", node));
+    }
+    return columnType.cast(node.get("value"));
+  }
+
+  private static Object bind(Object value, Object[] parameters) {
+    if (value instanceof QueryParameter) {
+      return ((QueryParameter)value).bind(parameters);
+    } else if (value instanceof List) {
+      return ((List<Object>)value).stream().map(v -> bind(v, parameters)).collect(toList());
     }
+    return value;
   }
 
   @Override
@@ -68,7 +127,55 @@ public class SqlFilterNode implements SqlNode {
     return null;
   }
 
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * @return an index on the clause's table and column that can look up the rows it accepts
+   */
+  Optional<Index> findIndex(Database db) {
+    if (tableName == null) {
+      return Optional.empty();
+    }
+    boolean ranges = op != FilterLogicalOp.EQ && op != FilterLogicalOp.IN;
+    return db.getTable(tableName).findIndex(column, ranges).filter(i -> FilterClause.canUseIndex(op, i));
+  }
+
+  @Override
+  public Set<String> getTableNames() {
+    return Collections.singleton(tableName);
+  }
+
+  @Override
+  public double estimateSelectivity(Database db, Object[] parameters) {
+    if (tableName == null) {
+      return CostModel.DEFAULT_RANGE_SELECTIVITY;
+    }
+    return CostModel.selectivity(db.getTable(tableName).columnStatistics(column), op,
+        parameters == null ? value : bind(value, parameters));
+  }
+
   public FilterClause getFilter() {
-    return new FilterClause(column, op, value);
+    return new FilterClause(column, op, bind(value, NO_PARAMETERS));
+  }
+
+  /**
+   * @return a clause with no value yet, to be supplied by {@link #bindFilter}
+   */
+  public FilterClause getUnboundFilter() {
+    return new FilterClause(column, op);
+  }
+
+  public void bindFilter(FilterClause filter, Object[] parameters) {
+    filter.bind(bind(value, parameters));
+  }
+
+  @Override
+  public Predicate toPredicate(Database db, Object[] parameters, OutputSchema schema,
+      List<Consumer<Object[]>> binders) {
+    FilterClause filter = getUnboundFilter();
+    binders.add(p -> bindFilter(filter, p));
+    return new ClausePredicate(filter, schema);
   }
 }
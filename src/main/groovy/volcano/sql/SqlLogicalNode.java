@@ -0,0 +1,96 @@
+package volcano.sql;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import volcano.db.Database;
+import volcano.operator.filter.AndPredicate;
+import volcano.operator.filter.NotPredicate;
+import volcano.operator.filter.OrPredicate;
+import volcano.operator.filter.Predicate;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * AND or OR over two or more conditions, or NOT over one. Nested ANDs and ORs are flattened, and the operands are
+ * evaluated in order of estimated selectivity so that evaluation can stop as early as possible.
+ */
+public class SqlLogicalNode implements SqlPredicateNode {
+
+  public enum LogicalOp {
+    AND, OR, NOT
+  }
+
+  private final LogicalOp op;
+  private final List<SqlPredicateNode> operands;
+
+  public SqlLogicalNode(LogicalOp op, List<SqlPredicateNode> operands) {
+    if (op == LogicalOp.NOT ? operands.size() != 1 : operands.size() < 2) {
+      throw new IllegalArgumentException(String.format("Wrong number of operands for %s: %d", op, operands.size()));
+    }
+    this.op = op;
+    this.operands = new ArrayList<>();
+    for (SqlPredicateNode operand : operands) {
+      if (op != LogicalOp.NOT && operand instanceof SqlLogicalNode && ((SqlLogicalNode)operand).op == op) {
+        this.operands.addAll(((SqlLogicalNode)operand).operands);
+      } else {
+        this.operands.add(operand);
+      }
+    }
+  }
+
+  /**
+   * @return the conjunction of the conditions, or the condition itself if there is only one
+   */
+  public static SqlPredicateNode and(List<SqlPredicateNode> conjuncts) {
+    return conjuncts.size() == 1 ? conjuncts.get(0) : new SqlLogicalNode(LogicalOp.AND, conjuncts);
+  }
+
+  @Override
+  public Set<String> getTableNames() {
+    Set<String> tableNames = new HashSet<>();
+    operands.forEach(o -> tableNames.addAll(o.getTableNames()));
+    return tableNames;
+  }
+
+  // operands are assumed independent
+  @Override
+  public double estimateSelectivity(Database db, Object[] parameters) {
+    switch (op) {
+    case AND:
+      return operands.stream().mapToDouble(o -> o.estimateSelectivity(db, parameters)).reduce(1, (a, b) -> a * b);
+    case OR:
+      return 1 - operands.stream().mapToDouble(o -> 1 - o.estimateSelectivity(db, parameters))
+          .reduce(1, (a, b) -> a * b);
+    case NOT:
+      return 1 - operands.get(0).estimateSelectivity(db, parameters);
+    default:
+      throw new IllegalArgumentException(String.format("Unrecognized logical operator [%s]", op));
+    }
+  }
+
+  @Override
+  public List<SqlPredicateNode> conjuncts() {
+    return op == LogicalOp.AND ? operands : SqlPredicateNode.super.conjuncts();
+  }
+
+  @Override
+  public Predicate toPredicate(Database db, Object[] parameters, OutputSchema schema,
+      List<Consumer<Object[]>> binders) {
+    if (op == LogicalOp.NOT) {
+      return new NotPredicate(operands.get(0).toPredicate(db, parameters, schema, binders));
+    }
+    // AND stops at the first operand that fails, OR at the first that passes
+    Comparator<SqlPredicateNode> bySelectivity = Comparator.comparingDouble(o -> o.estimateSelectivity(db, parameters));
+    List<Predicate> predicates = operands.stream()
+        .sorted(op == LogicalOp.AND ? bySelectivity : bySelectivity.reversed())
+        .map(o -> o.toPredicate(db, parameters, schema, binders))
+        .collect(toList());
+    return op == LogicalOp.AND ? new AndPredicate(predicates) : new OrPredicate(predicates);
+  }
+}
@@ -0,0 +1,127 @@
+package volcano.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import volcano.sql.parser.SqlLexer;
+import volcano.sql.parser.SqlToken;
+import volcano.sql.parser.SqlToken.Kind;
+
+/**
+ * Rewrites a statement into a canonical form with every literal replaced by a {@code ?}, so that statements differing
+ * only in their literals, whitespace, comments or keyword case share one cached plan. The literals are kept, in
+ * order, to be bound as parameters.
+ */
+public class SqlNormalizer {
+
+  private SqlNormalizer() {
+  }
+
+  public static NormalizedSql normalize(String sql) {
+    List<SqlToken> tokens = new SqlLexer(sql).tokenize();
+    StringBuilder text = new StringBuilder();
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      SqlToken token = tokens.get(i);
+      switch (token.getKind()) {
+      case NUMBER:
+        double number = Double.parseDouble(token.getText());
+        // fold a unary minus into the literal
+        if (isUnaryMinus(tokens, i - 1)) {
+          int minus = text.lastIndexOf("-");
+          text.setLength(minus > 0 ? minus - 1 : 0);
+          number = -number;
+        }
+        appendToken(text, "?");
+        values.add(number);
+        break;
+      case STRING:
+        appendToken(text, "?");
+        values.add(token.getText());
+        break;
+      case PARAMETER:
+        appendToken(text, "?");
+        values.add(NormalizedSql.BIND_PARAMETER);
+        break;
+      case IDENTIFIER:
+        appendToken(text, "\"" + token.getText().replace("\"", "\"\"") + "\"");
+        break;
+      case EOF:
+        break;
+      default:
+        appendToken(text, token.getText());
+      }
+    }
+    return new NormalizedSql(text.toString(), values.toArray());
+  }
+
+  private static boolean isUnaryMinus(List<SqlToken> tokens, int index) {
+    if (index < 0 || !tokens.get(index).getKind().equals(Kind.SYMBOL) || !tokens.get(index).getText().equals("-")) {
+      return false;
+    }
+    if (index == 0) {
+      return true;
+    }
+    SqlToken previous = tokens.get(index - 1);
+    switch (previous.getKind()) {
+    case SYMBOL:
+      return !previous.getText().equals(")");
+    case KEYWORD:
+      return !Arrays.asList("NULL", "TRUE", "FALSE").contains(previous.getText());
+    default:
+      return false;
+    }
+  }
+
+  private static void appendToken(StringBuilder text, String token) {
+    if (text.length() > 0) {
+      text.append(' ');
+    }
+    text.append(token);
+  }
+
+  public static class NormalizedSql {
+
+    // marks a ? written in the original statement, filled from the caller's parameters
+    static final Object BIND_PARAMETER = new Object();
+
+    private final String text;
+    private final Object[] values;
+    private final int bindParameterCount;
+
+    private NormalizedSql(String text, Object[] values) {
+      this.text = text;
+      this.values = values;
+      this.bindParameterCount = (int)Arrays.stream(values).filter(v -> v == BIND_PARAMETER).count();
+    }
+
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * @return the number of {@code ?} in the original statement
+     */
+    public int getBindParameterCount() {
+      return bindParameterCount;
+    }
+
+    /**
+     * @return values for every parameter of the normalized statement: the extracted literals, with the
+     *     statement's own {@code ?} filled from bindParameters
+     */
+    public Object[] parameters(Object... bindParameters) {
+      if (bindParameters.length != bindParameterCount) {
+        throw new IllegalArgumentException(
+            String.format("Expected %d parameters but received %d", bindParameterCount, bindParameters.length));
+      }
+      Object[] parameters = new Object[values.length];
+      int next = 0;
+      for (int i = 0; i < values.length; i++) {
+        parameters[i] = values[i] == BIND_PARAMETER ? bindParameters[next++] : values[i];
+      }
+      return parameters;
+    }
+  }
+}
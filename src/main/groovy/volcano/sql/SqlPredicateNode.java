@@ -0,0 +1,42 @@
+package volcano.sql;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import volcano.db.Database;
+import volcano.operator.filter.Predicate;
+import volcano.operator.util.OutputSchema;
+
+/**
+ * Condition from a WHERE clause: a {@link SqlFilterNode} comparison, or a {@link SqlLogicalNode} combining others
+ */
+public interface SqlPredicateNode {
+
+  /**
+   * @return tables whose columns the condition reads; null stands for a column that doesn't name its table
+   */
+  Set<String> getTableNames();
+
+  /**
+   * @param parameters values the statement will run with, or null if they aren't known yet
+   * @return estimated fraction of rows for which the condition is true
+   */
+  double estimateSelectivity(Database db, Object[] parameters);
+
+  /**
+   * @return the operands of a top-level AND, or just this condition
+   */
+  default List<SqlPredicateNode> conjuncts() {
+    return Collections.singletonList(this);
+  }
+
+  /**
+   * Build the condition over rows of the given schema. Its values are bound by the binders it adds, once per
+   * execution.
+   *
+   * @param parameters values the operands are ordered for, or null if they aren't known yet
+   */
+  Predicate toPredicate(Database db, Object[] parameters, OutputSchema schema, List<Consumer<Object[]>> binders);
+}
@@ -1,56 +1,99 @@
 package volcano.sql;
 
+import static java.util.Collections.nCopies;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.ImmutableList;
 
 import volcano.db.Database;
+import volcano.db.Table;
+import volcano.db.Type;
 import volcano.operator.AggregateOperator;
 import volcano.operator.DistinctOperator;
 import volcano.operator.FilterOperator;
 import volcano.operator.HashJoinOperator;
+import volcano.operator.HashJoinOperator.BuildSide;
+import volcano.operator.IndexScanOperator;
 import volcano.operator.LimitOperator;
 import volcano.operator.Operator;
+import volcano.operator.PipelineCompiler;
 import volcano.operator.ProjectOperator;
 import volcano.operator.ScanOperator;
+import volcano.operator.SortMergeJoinOperator;
 import volcano.operator.SortOperator;
+import volcano.operator.StreamAggregateOperator;
+import volcano.operator.StreamDistinctOperator;
+import volcano.operator.TopNOperator;
 import volcano.operator.aggregate.AggregateFn;
+import volcano.operator.filter.FilterClause;
+import volcano.operator.filter.Predicate;
+import volcano.operator.parallel.GatherOperator;
+import volcano.operator.parallel.MorselQueue;
+import volcano.operator.parallel.SharedJoinBuild;
+import volcano.operator.profile.OperatorProfile;
+import volcano.operator.profile.ProfilingOperator;
 import volcano.operator.sort.SortOrder;
 import volcano.operator.util.Column;
+import volcano.operator.util.OutputSchema;
 
 public class SqlSelectNode implements SqlNode {
 
-  private final SqlFilterNode filterNode;
+  // below this many rows a parallel plan costs more than it saves
+  private static final int MIN_PARALLEL_ROWS = 2 * MorselQueue.DEFAULT_MORSEL_SIZE;
+
+  private final PlannerOptions options;
+  // conjuncts of the WHERE clause that read only one of the FROM tables, by table, and the rest
+  private final List<List<SqlPredicateNode>> tableFilters;
+  private final List<SqlPredicateNode> joinFilters;
   private final Map<String,List<String>> sorts;
   private final Database db;
-  private final Integer limit;
+  // an Integer, or a QueryParameter bound at execution
+  private final Object limit;
+  private final int parameterCount;
   private final boolean distinct;
   private final List<String> tableNames;
 
   private final List<Column> columns;
   private final List<String> groupingColumns;
+  // fraction of each APPROX_PERCENTILE column: a Double, or a QueryParameter bound at execution
+  private final Map<Column,Object> percentiles;
 
   private final List<List<String>> joinColumns;
 
   //todo reorder result set columns?
   public SqlSelectNode(Map<String,Object> jsonNode, Database db) {
+    this(jsonNode, db, PlannerOptions.DEFAULT);
+  }
+
+  public SqlSelectNode(Map<String,Object> jsonNode, Database db, PlannerOptions options) {
     this.db = db;
+    this.options = options;
     columns = new ArrayList<>();
     groupingColumns = new ArrayList<>();
+    percentiles = new HashMap<>();
     joinColumns = new ArrayList<>();
     tableNames = parseTableNames(jsonNode);
     parseGroupingColumns(jsonNode);
     parseColumns(jsonNode);
-    filterNode = SqlFilterNode.parseFilterNode(jsonNode, db, tableNames);
+    tableFilters = new ArrayList<>();
+    joinFilters = new ArrayList<>();
+    splitFilters(SqlFilterNode.parseFilterNode(jsonNode, db, tableNames));
     sorts = parseSorts(jsonNode);
     limit = parseLimit(jsonNode);
     distinct = parseDistinct(jsonNode);
+    parameterCount = countParameters(jsonNode);
   }
 
   //todo these could have fns too
@@ -79,15 +122,35 @@ public class SqlSelectNode implements SqlNode {
         Map<String,Object> aggrArgsExpr = (Map<String,Object>)aggrArgs.get("expr");
         String name = (String)aggrArgsExpr.get("column");
         String table = (String)aggrArgsExpr.get("table");
-        columns.add(
-            new Column(name, db.getTable(table).fieldType(name), Optional.of(AggregateFn.valueOf(aggrFn)),
-                false));
+        AggregateFn fn = AggregateFn.valueOf(aggrFn);
+        List<Map<String,Object>> parameters = (List<Map<String,Object>>)aggrArgs.get("parameters");
+        int expectedParameters = fn == AggregateFn.APPROX_PERCENTILE ? 1 : 0;
+        if ((parameters == null ? 0 : parameters.size()) != expectedParameters) {
+          throw new IllegalArgumentException(
+              String.format("%s takes %d arguments after the column; received %s", fn, expectedParameters,
+                  parameters));
+        }
+        Column column = new Column(name, fn.resultType(db.getTable(table).fieldType(name)), Optional.of(fn), false);
+        columns.add(column);
+        if (fn == AggregateFn.APPROX_PERCENTILE) {
+          percentiles.put(column, parsePercentile(parameters.get(0)));
+        }
       } else {
         throw new IllegalArgumentException(String.format("Unrecognized column type %s", exprNode));
       }
     }
   }
 
+  private static Object parsePercentile(Map<String,Object> node) {
+    if ("param".equals(node.get("type"))) {
+      return new QueryParameter(((Number)node.get("value")).intValue(), Type.DOUBLE);
+    }
+    if (!"number".equals(node.get("type"))) {
+      throw new IllegalArgumentException(String.format("Expected a number for the percentile; received %s", node));
+    }
+    return ((Number)node.get("value")).doubleValue();
+  }
+
   //todo if not using `join on` syntax, join filters can appear in where clause
   private List<String> parseTableNames(Map<String,Object> jsonNode) {
     List<Map<String,Object>> from = (List<Map<String,Object>>)jsonNode.get("from");
@@ -122,6 +185,25 @@ public class SqlSelectNode implements SqlNode {
     return from.stream().map(m -> (String)m.get("table")).collect(toList());
   }
 
+  /**
+   * A conjunct that reads a single table is applied under the join, to that table's scan
+   */
+  private void splitFilters(SqlPredicateNode where) {
+    tableNames.forEach(t -> tableFilters.add(new ArrayList<>()));
+    if (where == null) {
+      return;
+    }
+    for (SqlPredicateNode conjunct : where.conjuncts()) {
+      Set<String> tables = conjunct.getTableNames();
+      int tableIndex = tables.size() == 1 ? tableNames.indexOf(tables.iterator().next()) : -1;
+      if (tableIndex >= 0) {
+        tableFilters.get(tableIndex).add(conjunct);
+      } else {
+        joinFilters.add(conjunct);
+      }
+    }
+  }
+
   private Map<String,List<String>> parseSorts(Map<String,Object> jsonNode) {
     List<Map<String,Object>> sortNode = (List<Map<String,Object>>)jsonNode.get("orderby");
     if (sortNode == null) {
@@ -148,7 +230,7 @@ public class SqlSelectNode implements SqlNode {
     return sorts;
   }
 
-  private Integer parseLimit(Map<String,Object> jsonNode) {
+  private Object parseLimit(Map<String,Object> jsonNode) {
     //[ { type: 'number', value: 0 }, { type: 'number', value: 5 } ] }
     if (jsonNode.get("limit") == null) {
       return null;
@@ -158,10 +240,31 @@ public class SqlSelectNode implements SqlNode {
     if (limit.size() != 2) {
       throw new IllegalArgumentException(String.format("Multiple limits not supported - %s", limit));
     }
+    if ("param".equals(limit.get(1).get("type"))) {
+      return new QueryParameter(((Number)limit.get(1).get("value")).intValue(), Type.INT);
+    }
     // comes back as a double from JSON SQL service
     return ((Double)limit.get(1).get("value")).intValue();
   }
 
+  private static int countParameters(Object node) {
+    int count = 0;
+    if (node instanceof Map) {
+      Map<String,Object> map = (Map<String,Object>)node;
+      if ("param".equals(map.get("type"))) {
+        return 1;
+      }
+      for (Object child : map.values()) {
+        count += countParameters(child);
+      }
+    } else if (node instanceof List) {
+      for (Object child : (List<Object>)node) {
+        count += countParameters(child);
+      }
+    }
+    return count;
+  }
+
   private boolean parseDistinct(Map<String,Object> jsonNode) {
     return "DISTINCT".equals(jsonNode.get("distinct"));
   }
@@ -182,33 +285,592 @@ public class SqlSelectNode implements SqlNode {
     });
   }
 
+  public int getParameterCount() {
+    return parameterCount;
+  }
+
   @Override
   public Operator toOperator(Database db) {
+    return toPreparedPlan(db).bind();
+  }
+
+  /**
+   * Plan the statement once so it can be executed with different bind parameters. Bind parameters are estimated
+   * with the cost model's defaults.
+   */
+  public PreparedPlan toPreparedPlan(Database db) {
+    return toPreparedPlan(db, false, null);
+  }
+
+  /**
+   * Plan the statement for the values it's about to run with, so that the cost model sees them; the tree can still
+   * be bound to other values, though they may call for another plan
+   */
+  public PreparedPlan toPreparedPlan(Database db, Object[] parameters) {
+    return toPreparedPlan(db, false, parameters);
+  }
+
+  /**
+   * Plan the statement with every operator wrapped in a {@link ProfilingOperator}, for EXPLAIN ANALYZE
+   */
+  public PreparedPlan toProfiledPlan(Database db) {
+    return toPreparedPlan(db, true, null);
+  }
+
+  /**
+   * Plan a profiled tree for the values it's about to run with
+   */
+  public PreparedPlan toProfiledPlan(Database db, Object[] parameters) {
+    return toPreparedPlan(db, true, parameters);
+  }
+
+  /**
+   * The plan's decisions that depend on estimates, and so on parameter values: a tree planned for one set of values
+   * suits another set with the same choices
+   *
+   * @param parameters values the statement will run with, or null if they aren't known yet
+   */
+  PlanChoices planChoices(Database db, Object[] parameters) {
+    BuildSide buildSide = tableNames.size() > 1 ? buildSide(db, parameters) : BuildSide.RIGHT;
+    boolean mergeJoin = tableNames.size() > 1 && mergeJoin(db, parameters);
+    int parallelism = mergeJoin ? 1 : parallelism(db, parameters, buildSide);
+    int[] indexFilters = new int[tableNames.size()];
+    for (int t = 0; t < indexFilters.length; t++) {
+      // the morsels split a parallel probe side by position, so it is always scanned
+      SqlFilterNode indexFilter = parallelism > 1 && t == probeTable(buildSide) ? null : indexFilter(db, parameters, t);
+      indexFilters[t] = indexFilter == null ? -1 : tableFilters.get(t).indexOf(indexFilter);
+    }
+    boolean aggregate = columns.stream().anyMatch(c -> c.getFn().isPresent());
+    // groups arrive together from a merge join on them, or a serial scan of a table stored in grouping order; the
+    // hash aggregate can't spill, so when its groups would outgrow the memory budget the input is sorted instead
+    boolean streamed = mergeJoin ? groupsOnLeadingJoinColumns() : parallelism == 1 && storedInGroupingOrder(db);
+    boolean sortForAggregate = aggregate && !streamed && !groupingColumns.isEmpty()
+        && estimateAggregateBytes(estimateGroups(db, groupingColumns, estimatePipelineRows(db, parameters)))
+            > options.getMemoryBudgetBytes();
+    return new PlanChoices(buildSide, mergeJoin, parallelism, indexFilters, aggregate && streamed, sortForAggregate);
+  }
+
+  private PreparedPlan toPreparedPlan(Database db, boolean profiled, Object[] parameters) {
+    PlanChoices choices = planChoices(db, parameters);
+    List<Consumer<Object[]>> binders = new ArrayList<>();
+    boolean aggregate = columns.stream().anyMatch(c -> c.getFn().isPresent());
+    // without a blocking operator above it, the projection can run inside each parallel pipeline
+    boolean projectInPipeline = !aggregate && sorts.isEmpty() && !distinct;
+    // a sort feeding straight into the limit only has to keep the first rows
+    boolean topN = !sorts.isEmpty() && limit != null && !distinct;
+    // set when the rows already come out in the ORDER BY's order, as a merge join or stream aggregate can leave them
+    boolean ordered = false;
+    BuildSide buildSide = choices.buildSide;
+    boolean mergeJoin = choices.mergeJoin;
+    int parallelism = choices.parallelism;
     Operator rootOperator;
-    if (tableNames.size() > 1) {
-      Operator leftInput = new ScanOperator(db, tableNames.get(0));
-      Operator rightInput = new ScanOperator(db, tableNames.get(1));
-      rootOperator = new HashJoinOperator(leftInput, rightInput, joinColumns.get(0), joinColumns.get(1));
+    if (parallelism > 1) {
+      MorselQueue morsels = new MorselQueue(db.getTable(tableNames.get(probeTable(buildSide))).rowCount());
+      SharedJoinBuild joinBuild = new SharedJoinBuild();
+      List<Operator> pipelines = new ArrayList<>();
+      for (int i = 0; i < parallelism; i++) {
+        Operator pipeline = pipeline(db, parameters, choices, morsels, joinBuild, binders, profiled);
+        // each copy keeps its own top rows, and the top-n above the gather merges them
+        if (topN && !aggregate) {
+          pipeline = topN(pipeline, binders, profiled);
+        }
+        if (projectInPipeline) {
+          pipeline = project(pipeline, profiled);
+        }
+        pipelines.add(pipeline);
+      }
+      Operator gather = new GatherOperator(pipelines, options.getExecutor(), ImmutableList.of(morsels, joinBuild));
+      rootOperator = profile(profiled, gather, pipelines.stream().mapToDouble(SqlSelectNode::estimateOf).sum(),
+          pipelines.toArray(new Operator[0]));
     } else {
-      rootOperator = new ScanOperator(db, tableNames.get(0));
-    }
-    if (filterNode != null) {
-      rootOperator = new FilterOperator(rootOperator, filterNode.getFilter());
+      rootOperator = pipeline(db, parameters, choices, null, null, binders, profiled);
+      if (projectInPipeline) {
+        rootOperator = project(rootOperator, profiled);
+      }
     }
-    if (columns.stream().anyMatch(c -> c.getFn().isPresent())) {
-      rootOperator = new AggregateOperator(rootOperator, columns);
+    if (aggregate) {
+      // estimated from the statistics rather than the inputs' profiles, which only EXPLAIN ANALYZE plans carry
+      double groups = groupingColumns.isEmpty() ? 1
+          : estimateGroups(db, groupingColumns, estimatePipelineRows(db, parameters));
+      boolean streamed = choices.streamedAggregate;
+      if (streamed) {
+        ordered = mergeJoin ? sortsFollowJoinColumns()
+            : sortsOnGroupingColumns() && sortOrders().equals(ImmutableList.of(SortOrder.ASC));
+      } else if (choices.sortForAggregate) {
+        ordered = sortsOnGroupingColumns();
+        Operator sort = ordered
+            ? new SortOperator(rootOperator, sorts.get("columns"), sortOrders(), options.getMemoryBudgetBytes())
+            : new SortOperator(rootOperator, groupingColumns, nCopies(groupingColumns.size(), SortOrder.ASC),
+                options.getMemoryBudgetBytes());
+        rootOperator = profile(profiled, sort, estimateOf(rootOperator), rootOperator);
+        streamed = true;
+      }
+      Operator aggregateOperator;
+      if (streamed) {
+        StreamAggregateOperator streamAggregate = new StreamAggregateOperator(rootOperator, columns,
+            options.isExactDecimal());
+        percentiles.forEach((column, fraction) ->
+            binders.add(p -> streamAggregate.setFraction(column, percentileValue(fraction, p))));
+        aggregateOperator = streamAggregate;
+      } else {
+        AggregateOperator hashAggregate = new AggregateOperator(rootOperator, columns, options.isExactDecimal());
+        percentiles.forEach((column, fraction) ->
+            binders.add(p -> hashAggregate.setFraction(column, percentileValue(fraction, p))));
+        aggregateOperator = hashAggregate;
+      }
+      rootOperator = profile(profiled, aggregateOperator, groups, rootOperator);
+    } else {
+      ordered = mergeJoin && sortsFollowJoinColumns();
     }
-    if (!sorts.isEmpty()) {
-      rootOperator = new SortOperator(rootOperator, sorts.get("columns"),
-          sorts.get("orders").stream().map(SortOrder::valueOf).collect(toList()));
+    topN &= !ordered;
+    if (topN) {
+      rootOperator = topN(rootOperator, binders, profiled);
+    } else if (!sorts.isEmpty() && !ordered) {
+      Operator sort = new SortOperator(rootOperator, sorts.get("columns"), sortOrders(),
+          options.getMemoryBudgetBytes());
+      rootOperator = profile(profiled, sort, estimateOf(rootOperator), rootOperator);
     }
     if (distinct) {
-      rootOperator = new DistinctOperator(rootOperator, columns);
+      List<String> names = columns.stream().map(Column::getName).collect(toList());
+      Operator distinctOperator = sortedOnDistinctColumns(rootOperator)
+          ? new StreamDistinctOperator(rootOperator, columns)
+          : new DistinctOperator(rootOperator, columns, options.getMemoryBudgetBytes());
+      rootOperator = profile(profiled, distinctOperator, estimateGroups(db, names, estimateOf(rootOperator)),
+          rootOperator);
+    }
+    // an aggregate already returns the select list; projecting it by name would mix up two aggregates of one column
+    if (!projectInPipeline && !aggregate) {
+      rootOperator = profile(profiled, new ProjectOperator(rootOperator, columns), estimateOf(rootOperator),
+          rootOperator);
     }
-    rootOperator = new ProjectOperator(rootOperator, columns);
-    if (limit != null) {
-      rootOperator = new LimitOperator(rootOperator, limit);
+    if (limit != null && !topN) {
+      LimitOperator limitOperator = new LimitOperator(rootOperator, 0);
+      binders.add(p -> limitOperator.setLimit(limitValue(p)));
+      rootOperator = profile(profiled, limitOperator, estimateLimit(estimateOf(rootOperator)), rootOperator);
+    }
+    return new PreparedPlan(rootOperator, parameterCount, binders, choices);
+  }
+
+  /**
+   * Scans, join and filter; with a morsel queue this is one copy of a parallel pipeline, and the morsels split the
+   * join's probe side
+   */
+  private Operator pipeline(Database db, Object[] parameters, PlanChoices choices, MorselQueue morsels,
+      SharedJoinBuild joinBuild, List<Consumer<Object[]>> binders, boolean profiled) {
+    BuildSide buildSide = choices.buildSide;
+    Operator rootOperator = scan(db, parameters, choices, 0, buildSide == BuildSide.RIGHT ? morsels : null, binders,
+        profiled);
+    if (tableNames.size() > 1) {
+      Operator rightInput = scan(db, parameters, choices, 1, buildSide == BuildSide.LEFT ? morsels : null, binders,
+          profiled);
+      Operator join;
+      if (choices.mergeJoin) {
+        rootOperator = sortedOnJoinColumns(db, rootOperator, 0, profiled);
+        rightInput = sortedOnJoinColumns(db, rightInput, 1, profiled);
+        join = new SortMergeJoinOperator(rootOperator, rightInput, joinColumns.get(0), joinColumns.get(1));
+      } else {
+        join = new HashJoinOperator(rootOperator, rightInput, joinColumns.get(0), joinColumns.get(1), buildSide,
+            options.getMemoryBudgetBytes(), joinBuild);
+      }
+      rootOperator = profile(profiled, join, estimateJoinRows(db, estimateOf(rootOperator), estimateOf(rightInput)),
+          rootOperator, rightInput);
+    }
+    if (!joinFilters.isEmpty()) {
+      double rows = estimateOf(rootOperator) * SqlLogicalNode.and(joinFilters).estimateSelectivity(db, parameters);
+      rootOperator = profile(profiled, filter(db, parameters, rootOperator, joinFilters, binders), rows, rootOperator);
     }
     return rootOperator;
   }
+
+  /**
+   * Look the table's rows up in an index when one of its conjuncts is selective enough and indexed. Otherwise scan
+   * it, also passing the single-column conjuncts to the scan, which uses them to skip blocks by zone map.
+   */
+  private Operator scan(Database db, Object[] parameters, PlanChoices choices, int tableIndex, MorselQueue morsels,
+      List<Consumer<Object[]>> binders, boolean profiled) {
+    List<SqlPredicateNode> filters = tableFilters.get(tableIndex);
+    double tableRows = db.getTable(tableNames.get(tableIndex)).rowCount();
+    int indexPosition = choices.indexFilters[tableIndex];
+    if (indexPosition >= 0) {
+      SqlFilterNode indexFilter = (SqlFilterNode)filters.get(indexPosition);
+      FilterClause clause = indexFilter.getUnboundFilter();
+      binders.add(p -> indexFilter.bindFilter(clause, p));
+      Operator scan = profile(profiled,
+          new IndexScanOperator(db, tableNames.get(tableIndex), indexFilter.findIndex(db).get(), clause),
+          tableRows * indexFilter.estimateSelectivity(db, parameters));
+      List<SqlPredicateNode> rest = new ArrayList<>(filters);
+      rest.remove(indexPosition);
+      return rest.isEmpty() ? scan
+          : profile(profiled, filter(db, parameters, scan, rest, binders), estimateRows(db, parameters, tableIndex),
+              scan);
+    }
+    // each copy of a parallel pipeline scans its share of the morsels
+    double share = morsels == null ? 1 : 1.0 / options.getParallelism();
+    List<FilterClause> blockFilters = new ArrayList<>();
+    for (SqlPredicateNode conjunct : filters) {
+      if (conjunct instanceof SqlFilterNode) {
+        SqlFilterNode filterNode = (SqlFilterNode)conjunct;
+        FilterClause clause = filterNode.getUnboundFilter();
+        binders.add(p -> filterNode.bindFilter(clause, p));
+        blockFilters.add(clause);
+      }
+    }
+    Operator scan = profile(profiled, new ScanOperator(db, tableNames.get(tableIndex), morsels, blockFilters),
+        tableRows * share);
+    if (filters.isEmpty()) {
+      return scan;
+    }
+    Operator filter = filter(db, parameters, scan, filters, binders);
+    return compile(profile(profiled, filter, estimateRows(db, parameters, tableIndex) * share, scan), profiled);
+  }
+
+  private Operator sortedOnJoinColumns(Database db, Operator input, int tableIndex, boolean profiled) {
+    if (storedInJoinOrder(db, tableIndex)) {
+      return input;
+    }
+    List<String> keys = joinColumns.get(tableIndex);
+    Operator sort = new SortOperator(input, keys, nCopies(keys.size(), SortOrder.ASC), options.getMemoryBudgetBytes());
+    return profile(profiled, sort, estimateOf(input), input);
+  }
+
+  private Operator project(Operator input, boolean profiled) {
+    Operator project = new ProjectOperator(input, columns);
+    return compile(profile(profiled, project, estimateOf(input), input), profiled);
+  }
+
+  private Operator compile(Operator pipeline, boolean profiled) {
+    if (!options.isCompilePipelines()) {
+      return pipeline;
+    }
+    Operator compiled = PipelineCompiler.compile(pipeline);
+    // a fused pipeline is profiled as one operator, in place of the ones it absorbed
+    return compiled == pipeline ? pipeline : profile(profiled, compiled, estimateOf(pipeline));
+  }
+
+  /**
+   * With profiled, wrap the operator to record its runtime statistics and the planner's estimate of the rows it
+   * returns; otherwise it's returned as is
+   *
+   * @param inputs the operator's inputs, already wrapped
+   */
+  private static Operator profile(boolean profiled, Operator operator, double estimatedRows, Operator... inputs) {
+    if (!profiled) {
+      return operator;
+    }
+    List<OperatorProfile> inputProfiles = Arrays.stream(inputs)
+        .map(i -> ((ProfilingOperator)i).getProfile())
+        .collect(toList());
+    return new ProfilingOperator(operator, estimatedRows, inputProfiles);
+  }
+
+  // the estimate a profiled operator was planned with
+  private static double estimateOf(Operator operator) {
+    return operator instanceof ProfilingOperator ? ((ProfilingOperator)operator).getProfile().getEstimatedRows()
+        : Double.NaN;
+  }
+
+  /**
+   * @return the most selective indexed conjunct of the table, if it's selective enough to beat a scan
+   */
+  private SqlFilterNode indexFilter(Database db, Object[] parameters, int tableIndex) {
+    SqlFilterNode best = null;
+    double bestSelectivity = CostModel.MAX_INDEX_SCAN_SELECTIVITY;
+    for (SqlPredicateNode conjunct : tableFilters.get(tableIndex)) {
+      if (!(conjunct instanceof SqlFilterNode) || !((SqlFilterNode)conjunct).findIndex(db).isPresent()) {
+        continue;
+      }
+      double selectivity = conjunct.estimateSelectivity(db, parameters);
+      if (selectivity <= bestSelectivity) {
+        best = (SqlFilterNode)conjunct;
+        bestSelectivity = selectivity;
+      }
+    }
+    return best;
+  }
+
+  private Operator filter(Database db, Object[] parameters, Operator input, List<SqlPredicateNode> conjuncts,
+      List<Consumer<Object[]>> binders) {
+    Predicate predicate = SqlLogicalNode.and(conjuncts).toPredicate(db, parameters, input.getOutputSchema(), binders);
+    return new FilterOperator(input, predicate);
+  }
+
+  private Operator topN(Operator input, List<Consumer<Object[]>> binders, boolean profiled) {
+    TopNOperator topN = new TopNOperator(input, sorts.get("columns"), sortOrders(), 0);
+    binders.add(p -> topN.setLimit(limitValue(p)));
+    return profile(profiled, topN, estimateLimit(estimateOf(input)), input);
+  }
+
+  private int limitValue(Object[] parameters) {
+    if (!(limit instanceof QueryParameter)) {
+      return (Integer)limit;
+    }
+    Comparable value = ((QueryParameter)limit).bind(parameters);
+    if (value == null) {
+      throw new IllegalArgumentException("LIMIT requires a value");
+    }
+    return (Integer)value;
+  }
+
+  private static double percentileValue(Object fraction, Object[] parameters) {
+    if (!(fraction instanceof QueryParameter)) {
+      return (Double)fraction;
+    }
+    Comparable value = ((QueryParameter)fraction).bind(parameters);
+    if (value == null) {
+      throw new IllegalArgumentException("APPROX_PERCENTILE requires a fraction");
+    }
+    return ((Number)value).doubleValue();
+  }
+
+  /**
+   * @return true if the statement's sort brings rows with equal distinct columns together, i.e. its leading
+   * columns are exactly the distinct columns
+   */
+  private boolean sortedOnDistinctColumns(Operator sorted) {
+    if (sorts.isEmpty() || sorts.get("columns").size() < columns.size()) {
+      return false;
+    }
+    OutputSchema schema = sorted.getOutputSchema();
+    Set<Integer> distinctIndexes = columns.stream().map(c -> schema.columnIndex(c.getName())).collect(toSet());
+    Set<Integer> leadingIndexes = sorts.get("columns").subList(0, columns.size()).stream()
+        .map(schema::columnIndex).collect(toSet());
+    return distinctIndexes.equals(leadingIndexes);
+  }
+
+  /**
+   * @return true if the statement only groups on one column, and reads it from one table that stores the column in
+   * ascending order; scans, index lookups and filters all keep the rows in table order
+   */
+  private boolean storedInGroupingOrder(Database db) {
+    if (tableNames.size() > 1 || groupingColumns.size() != 1) {
+      return false;
+    }
+    Table table = db.getTable(tableNames.get(0));
+    String column = groupingColumns.get(0);
+    return table.getColumnNames().contains(column) && table.columnStatistics(column).isSorted();
+  }
+
+  /**
+   * @return true if the statement orders by exactly its grouping columns, so that sorting the aggregate's input
+   * on them orders its output too
+   */
+  private boolean sortsOnGroupingColumns() {
+    return !sorts.isEmpty() && sorts.get("columns").size() == groupingColumns.size()
+        && sorts.get("columns").containsAll(groupingColumns);
+  }
+
+  /**
+   * @return true if the statement groups on as many of the leading join columns, taken from either table, as it
+   * has grouping columns, so that a merge join brings each group's rows together
+   */
+  private boolean groupsOnLeadingJoinColumns() {
+    Set<Integer> positions = groupingColumns.stream().map(this::joinColumnPosition).collect(toSet());
+    return !groupingColumns.isEmpty()
+        && positions.equals(IntStream.range(0, groupingColumns.size()).boxed().collect(toSet()));
+  }
+
+  /**
+   * @return true if the statement orders ascending by leading join columns, taken from either table, in join column
+   * order, as a merge join's output is
+   */
+  private boolean sortsFollowJoinColumns() {
+    if (sorts.isEmpty()) {
+      return false;
+    }
+    List<String> sortColumns = sorts.get("columns");
+    for (int i = 0; i < sortColumns.size(); i++) {
+      if (joinColumnPosition(sortColumns.get(i)) != i || !sorts.get("orders").get(i).equals(SortOrder.ASC.name())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // position of the column in the join condition, on either side, or -1
+  private int joinColumnPosition(String column) {
+    int position = joinColumns.get(0).indexOf(column);
+    return position >= 0 ? position : joinColumns.get(1).indexOf(column);
+  }
+
+  private List<SortOrder> sortOrders() {
+    return sorts.get("orders").stream().map(SortOrder::valueOf).collect(toList());
+  }
+
+  /**
+   * Merge join when both tables store their join column in order, so neither side needs sorting, or when its output
+   * order spares a sort of more rows than it has to sort to put its inputs in order. Otherwise the hash join is
+   * cheaper: it streams its probe side, can run in parallel, and falls back to a Grace hash join when its build side
+   * doesn't fit in memory.
+   */
+  private boolean mergeJoin(Database db, Object[] parameters) {
+    double sortedRows = 0;
+    for (int t = 0; t < tableNames.size(); t++) {
+      if (!storedInJoinOrder(db, t)) {
+        sortedRows += estimateRows(db, parameters, t);
+      }
+    }
+    return sortedRows == 0 || sortedRows < estimateSortRowsSpared(db, parameters);
+  }
+
+  /**
+   * @return estimated rows a hash join plan sorts that a merge join's output order would spare: the aggregate's input
+   * when it groups on the join columns and its groups don't fit in memory, or the rows an ORDER BY on the join
+   * columns sorts in full, rather than keeping the top n
+   */
+  private double estimateSortRowsSpared(Database db, Object[] parameters) {
+    double rows = estimatePipelineRows(db, parameters);
+    boolean fullSort = sortsFollowJoinColumns() && (limit == null || distinct);
+    if (columns.stream().noneMatch(c -> c.getFn().isPresent())) {
+      return fullSort ? rows : 0;
+    }
+    if (!groupsOnLeadingJoinColumns()) {
+      return 0;
+    }
+    double groups = estimateGroups(db, groupingColumns, rows);
+    if (estimateAggregateBytes(groups) > options.getMemoryBudgetBytes()) {
+      return rows;
+    }
+    return fullSort ? groups : 0;
+  }
+
+  private boolean storedInJoinOrder(Database db, int tableIndex) {
+    List<String> keys = joinColumns.get(tableIndex);
+    return keys.size() == 1 && db.getTable(tableNames.get(tableIndex)).columnStatistics(keys.get(0)).isSorted();
+  }
+
+  /**
+   * Hash whichever join input is estimated to take less memory; on a tie the second table is built, as written
+   */
+  private BuildSide buildSide(Database db, Object[] parameters) {
+    return estimateBuildBytes(db, parameters, 0) < estimateBuildBytes(db, parameters, 1) ? BuildSide.LEFT
+        : BuildSide.RIGHT;
+  }
+
+  private static int probeTable(BuildSide buildSide) {
+    return buildSide == BuildSide.LEFT ? 1 : 0;
+  }
+
+  /**
+   * @return estimated rows one table contributes to the join, after its own filters
+   */
+  private double estimateRows(Database db, Object[] parameters, int tableIndex) {
+    double rows = db.getTable(tableNames.get(tableIndex)).rowCount();
+    List<SqlPredicateNode> filters = tableFilters.get(tableIndex);
+    return filters.isEmpty() ? rows : rows * SqlLogicalNode.and(filters).estimateSelectivity(db, parameters);
+  }
+
+  /**
+   * @return estimated rows the scans, join and filters produce
+   */
+  private double estimatePipelineRows(Database db, Object[] parameters) {
+    double rows = estimateRows(db, parameters, 0);
+    if (tableNames.size() > 1) {
+      rows = estimateJoinRows(db, rows, estimateRows(db, parameters, 1));
+    }
+    return joinFilters.isEmpty() ? rows : rows * SqlLogicalNode.and(joinFilters).estimateSelectivity(db, parameters);
+  }
+
+  /**
+   * @return estimated rows of the equijoin, assuming every key value of the side with fewer distinct values finds
+   * a match
+   */
+  private double estimateJoinRows(Database db, double leftRows, double rightRows) {
+    double rows = leftRows * rightRows;
+    for (int i = 0; i < joinColumns.get(0).size(); i++) {
+      int leftDistinct = db.getTable(tableNames.get(0)).columnStatistics(joinColumns.get(0).get(i)).getDistinctCount();
+      int rightDistinct = db.getTable(tableNames.get(1)).columnStatistics(joinColumns.get(1).get(i)).getDistinctCount();
+      rows /= Math.max(1, Math.max(leftDistinct, rightDistinct));
+    }
+    return rows;
+  }
+
+  /**
+   * @return estimated distinct combinations of the columns' values, taking the columns as independent, and at most
+   * the input rows
+   */
+  private double estimateGroups(Database db, List<String> columnNames, double inputRows) {
+    double groups = 1;
+    for (String name : columnNames) {
+      Optional<Table> table = tableNames.stream()
+          .map(db::getTable)
+          .filter(t -> t.getColumnNames().contains(name))
+          .findFirst();
+      if (!table.isPresent()) {
+        return inputRows;
+      }
+      groups *= Math.max(1, table.get().columnStatistics(name).getDistinctCount());
+    }
+    return Math.min(groups, inputRows);
+  }
+
+  private double estimateAggregateBytes(double groups) {
+    return groups * (CostModel.HASH_TABLE_ROW_OVERHEAD_BYTES + CostModel.AGGREGATE_VALUE_BYTES * columns.size());
+  }
+
+  // a bind parameter LIMIT isn't known at planning time
+  private double estimateLimit(double inputRows) {
+    return limit instanceof Integer ? Math.min(inputRows, (Integer)limit) : inputRows;
+  }
+
+  private double estimateBuildBytes(Database db, Object[] parameters, int tableIndex) {
+    long rowBytes = db.getTable(tableNames.get(tableIndex)).getStatistics().getAverageRowBytes();
+    return estimateRows(db, parameters, tableIndex) * (rowBytes + CostModel.HASH_TABLE_ROW_OVERHEAD_BYTES);
+  }
+
+  /**
+   * Parallelize only probe scans large enough to split into several morsels, and joins whose build side is
+   * estimated to fit in memory, since the pipeline copies share one in-memory hash table rather than spilling. A
+   * probe side read through an index is left serial.
+   */
+  private int parallelism(Database db, Object[] parameters, BuildSide buildSide) {
+    int probeIndex = probeTable(buildSide);
+    if (options.getParallelism() <= 1 || db.getTable(tableNames.get(probeIndex)).rowCount() < MIN_PARALLEL_ROWS
+        || indexFilter(db, parameters, probeIndex) != null) {
+      return 1;
+    }
+    if (tableNames.size() > 1 && estimateBuildBytes(db, parameters, 1 - probeIndex) > options.getMemoryBudgetBytes()) {
+      return 1;
+    }
+    return options.getParallelism();
+  }
+
+  /**
+   * Decisions of a plan that depend on estimates; equal choices make structurally identical trees
+   */
+  static final class PlanChoices {
+    private final BuildSide buildSide;
+    private final boolean mergeJoin;
+    private final int parallelism;
+    // position of the conjunct each table is looked up in an index with, or -1 to scan it
+    private final int[] indexFilters;
+    private final boolean streamedAggregate;
+    private final boolean sortForAggregate;
+
+    private PlanChoices(BuildSide buildSide, boolean mergeJoin, int parallelism, int[] indexFilters,
+        boolean streamedAggregate, boolean sortForAggregate) {
+      this.buildSide = buildSide;
+      this.mergeJoin = mergeJoin;
+      this.parallelism = parallelism;
+      this.indexFilters = indexFilters;
+      this.streamedAggregate = streamedAggregate;
+      this.sortForAggregate = sortForAggregate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PlanChoices)) {
+        return false;
+      }
+      PlanChoices other = (PlanChoices)o;
+      return buildSide == other.buildSide && mergeJoin == other.mergeJoin && parallelism == other.parallelism
+          && Arrays.equals(indexFilters, other.indexFilters) && streamedAggregate == other.streamedAggregate
+          && sortForAggregate == other.sortForAggregate;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(buildSide, mergeJoin, parallelism, Arrays.hashCode(indexFilters), streamedAggregate,
+          sortForAggregate);
+    }
+  }
 }
@@ -0,0 +1,151 @@
+package volcano.sql.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Splits a SQL statement into tokens. Reserved words become upper-cased keywords; identifiers keep their case and
+ * may be quoted with double quotes or backticks. String literals use single quotes, with '' as an escaped quote.
+ */
+public class SqlLexer {
+
+  static final Set<String> KEYWORDS = ImmutableSet.of(
+      "SELECT", "DISTINCT", "FROM", "WHERE", "GROUP", "BY", "HAVING", "ORDER", "ASC", "DESC", "LIMIT", "OFFSET",
+      "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "ON", "USING", "AS", "AND", "OR", "NOT", "IN",
+      "BETWEEN", "LIKE", "IS", "NULL", "TRUE", "FALSE", "UNION");
+
+  private static final Set<String> TWO_CHAR_SYMBOLS = ImmutableSet.of("<=", ">=", "<>", "!=");
+  private static final String SYMBOLS = "(),.;*+-/%=<>";
+
+  private final String sql;
+  private int position;
+
+  public SqlLexer(String sql) {
+    this.sql = sql;
+  }
+
+  public List<SqlToken> tokenize() {
+    List<SqlToken> tokens = new ArrayList<>();
+    while (true) {
+      skipWhitespaceAndComments();
+      if (position == sql.length()) {
+        tokens.add(new SqlToken(SqlToken.Kind.EOF, "", position));
+        return tokens;
+      }
+      tokens.add(nextToken());
+    }
+  }
+
+  private SqlToken nextToken() {
+    int start = position;
+    char c = sql.charAt(position);
+    if (Character.isLetter(c) || c == '_') {
+      while (position < sql.length() && isIdentifierPart(sql.charAt(position))) {
+        position++;
+      }
+      String word = sql.substring(start, position);
+      String upper = word.toUpperCase(Locale.ROOT);
+      return KEYWORDS.contains(upper)
+          ? new SqlToken(SqlToken.Kind.KEYWORD, upper, start)
+          : new SqlToken(SqlToken.Kind.IDENTIFIER, word, start);
+    }
+    if (Character.isDigit(c) || (c == '.' && position + 1 < sql.length() && Character.isDigit(
+        sql.charAt(position + 1)))) {
+      return number(start);
+    }
+    if (c == '\'') {
+      return new SqlToken(SqlToken.Kind.STRING, quoted('\''), start);
+    }
+    if (c == '"' || c == '`') {
+      return new SqlToken(SqlToken.Kind.IDENTIFIER, quoted(c), start);
+    }
+    if (c == '?') {
+      position++;
+      return new SqlToken(SqlToken.Kind.PARAMETER, "?", start);
+    }
+    if (position + 1 < sql.length() && TWO_CHAR_SYMBOLS.contains(sql.substring(position, position + 2))) {
+      position += 2;
+      return new SqlToken(SqlToken.Kind.SYMBOL, sql.substring(start, position), start);
+    }
+    if (SYMBOLS.indexOf(c) >= 0) {
+      position++;
+      return new SqlToken(SqlToken.Kind.SYMBOL, String.valueOf(c), start);
+    }
+    throw new IllegalArgumentException(String.format("Unexpected character '%s' at position %d", c, start));
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  private SqlToken number(int start) {
+    while (position < sql.length() && Character.isDigit(sql.charAt(position))) {
+      position++;
+    }
+    if (position < sql.length() && sql.charAt(position) == '.') {
+      position++;
+      while (position < sql.length() && Character.isDigit(sql.charAt(position))) {
+        position++;
+      }
+    }
+    if (position < sql.length() && (sql.charAt(position) == 'e' || sql.charAt(position) == 'E')) {
+      int exponent = position + 1;
+      if (exponent < sql.length() && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+        exponent++;
+      }
+      if (exponent < sql.length() && Character.isDigit(sql.charAt(exponent))) {
+        position = exponent;
+        while (position < sql.length() && Character.isDigit(sql.charAt(position))) {
+          position++;
+        }
+      }
+    }
+    return new SqlToken(SqlToken.Kind.NUMBER, sql.substring(start, position), start);
+  }
+
+  // a doubled quote character stands for the character itself
+  private String quoted(char quote) {
+    int start = position;
+    StringBuilder sb = new StringBuilder();
+    position++;
+    while (true) {
+      if (position == sql.length()) {
+        throw new IllegalArgumentException(String.format("Unterminated quoted text at position %d", start));
+      }
+      char c = sql.charAt(position++);
+      if (c == quote) {
+        if (position < sql.length() && sql.charAt(position) == quote) {
+          position++;
+        } else {
+          return sb.toString();
+        }
+      }
+      sb.append(c);
+    }
+  }
+
+  private void skipWhitespaceAndComments() {
+    while (position < sql.length()) {
+      char c = sql.charAt(position);
+      if (Character.isWhitespace(c)) {
+        position++;
+      } else if (sql.startsWith("--", position)) {
+        while (position < sql.length() && sql.charAt(position) != '\n') {
+          position++;
+        }
+      } else if (sql.startsWith("/*", position)) {
+        int end = sql.indexOf("*/", position + 2);
+        if (end < 0) {
+          throw new IllegalArgumentException(String.format("Unterminated comment at position %d", position));
+        }
+        position = end + 2;
+      } else {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,455 @@
+package volcano.sql.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import volcano.sql.parser.SqlToken.Kind;
+
+/**
+ * Recursive-descent parser for SELECT statements. It produces the same AST of nested maps as the flora-sql-parser
+ * service, so {@code SqlSelectNode} consumes either one: numbers are doubles, joins and where clauses are
+ * {@code binary_expr} trees, and a limit is an [offset, count] pair. A {@code ?} bind parameter becomes a
+ * {@code param} node holding its position.
+ */
+public class SqlParser {
+
+  private static final Set<String> AGGREGATE_FUNCTIONS = ImmutableSet.of("COUNT", "SUM", "AVG", "MIN", "MAX",
+      "APPROX_COUNT_DISTINCT", "APPROX_MEDIAN", "APPROX_PERCENTILE");
+  private static final Set<String> COMPARISON_OPERATORS = ImmutableSet.of("=", "<>", "!=", "<", "<=", ">", ">=");
+
+  private final List<SqlToken> tokens;
+  private int position;
+  private int parameterCount;
+
+  public SqlParser(String sql) {
+    this.tokens = new SqlLexer(sql).tokenize();
+  }
+
+  public Map<String,Object> parseStatement() {
+    Map<String,Object> select = select();
+    acceptSymbol(";");
+    if (peek().getKind() != Kind.EOF) {
+      throw unexpected("end of statement");
+    }
+    return select;
+  }
+
+  private Map<String,Object> select() {
+    expectKeyword("SELECT");
+    Map<String,Object> node = new LinkedHashMap<>();
+    node.put("type", "select");
+    node.put("distinct", acceptKeyword("DISTINCT") ? "DISTINCT" : null);
+    node.put("columns", columns());
+    expectKeyword("FROM");
+    node.put("from", from());
+    node.put("where", acceptKeyword("WHERE") ? expr() : null);
+    node.put("groupby", acceptKeywords("GROUP", "BY") ? exprList() : null);
+    node.put("having", acceptKeyword("HAVING") ? expr() : null);
+    node.put("orderby", acceptKeywords("ORDER", "BY") ? orderBy() : null);
+    node.put("limit", acceptKeyword("LIMIT") ? limit() : null);
+    return node;
+  }
+
+  private Object columns() {
+    if (acceptSymbol("*")) {
+      return "*";
+    }
+    List<Map<String,Object>> columns = new ArrayList<>();
+    do {
+      Map<String,Object> column = new LinkedHashMap<>();
+      column.put("expr", expr());
+      column.put("as", alias());
+      columns.add(column);
+    } while (acceptSymbol(","));
+    return columns;
+  }
+
+  private List<Map<String,Object>> from() {
+    List<Map<String,Object>> from = new ArrayList<>();
+    from.add(tableRef());
+    while (true) {
+      if (acceptSymbol(",")) {
+        from.add(tableRef());
+        continue;
+      }
+      String join = joinType();
+      if (join == null) {
+        return from;
+      }
+      Map<String,Object> table = tableRef();
+      table.put("join", join);
+      if (acceptKeyword("ON")) {
+        table.put("on", expr());
+      } else if (acceptKeyword("USING")) {
+        expectSymbol("(");
+        List<String> using = new ArrayList<>();
+        do {
+          using.add(identifier());
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        table.put("using", using);
+      }
+      from.add(table);
+    }
+  }
+
+  private String joinType() {
+    String type;
+    if (acceptKeyword("INNER")) {
+      type = "INNER JOIN";
+    } else if (acceptKeyword("LEFT")) {
+      type = "LEFT JOIN";
+    } else if (acceptKeyword("RIGHT")) {
+      type = "RIGHT JOIN";
+    } else if (acceptKeyword("FULL")) {
+      type = "FULL JOIN";
+    } else if (acceptKeyword("CROSS")) {
+      type = "CROSS JOIN";
+    } else if (peek().is(Kind.KEYWORD, "JOIN")) {
+      type = "INNER JOIN";
+    } else {
+      return null;
+    }
+    if (!type.equals("INNER JOIN") && !type.equals("CROSS JOIN")) {
+      acceptKeyword("OUTER");
+    }
+    expectKeyword("JOIN");
+    return type;
+  }
+
+  private Map<String,Object> tableRef() {
+    String name = identifier();
+    String db = null;
+    if (acceptSymbol(".")) {
+      db = name;
+      name = identifier();
+    }
+    Map<String,Object> table = new LinkedHashMap<>();
+    table.put("db", db);
+    table.put("table", name);
+    table.put("as", alias());
+    return table;
+  }
+
+  private String alias() {
+    if (acceptKeyword("AS") || peek().getKind() == Kind.IDENTIFIER) {
+      return identifier();
+    }
+    return null;
+  }
+
+  private List<Map<String,Object>> orderBy() {
+    List<Map<String,Object>> orderBy = new ArrayList<>();
+    do {
+      Map<String,Object> sort = new LinkedHashMap<>();
+      sort.put("expr", expr());
+      if (acceptKeyword("DESC")) {
+        sort.put("type", "DESC");
+      } else {
+        acceptKeyword("ASC");
+        sort.put("type", "ASC");
+      }
+      orderBy.add(sort);
+    } while (acceptSymbol(","));
+    return orderBy;
+  }
+
+  // LIMIT count, LIMIT offset, count and LIMIT count OFFSET offset all become [offset, count]
+  private List<Map<String,Object>> limit() {
+    Map<String,Object> first = limitValue();
+    List<Map<String,Object>> limit = new ArrayList<>();
+    if (acceptSymbol(",")) {
+      limit.add(first);
+      limit.add(limitValue());
+    } else if (acceptKeyword("OFFSET")) {
+      limit.add(limitValue());
+      limit.add(first);
+    } else {
+      limit.add(literal("number", 0.0));
+      limit.add(first);
+    }
+    return limit;
+  }
+
+  private Map<String,Object> limitValue() {
+    SqlToken token = peek();
+    if (token.getKind() == Kind.PARAMETER) {
+      position++;
+      return parameter();
+    }
+    if (token.getKind() != Kind.NUMBER) {
+      throw unexpected("a number");
+    }
+    position++;
+    return literal("number", Double.parseDouble(token.getText()));
+  }
+
+  private List<Map<String,Object>> exprList() {
+    List<Map<String,Object>> exprs = new ArrayList<>();
+    do {
+      exprs.add(expr());
+    } while (acceptSymbol(","));
+    return exprs;
+  }
+
+  private Map<String,Object> expr() {
+    Map<String,Object> left = and();
+    while (acceptKeyword("OR")) {
+      left = binary("OR", left, and());
+    }
+    return left;
+  }
+
+  private Map<String,Object> and() {
+    Map<String,Object> left = not();
+    while (acceptKeyword("AND")) {
+      left = binary("AND", left, not());
+    }
+    return left;
+  }
+
+  private Map<String,Object> not() {
+    if (acceptKeyword("NOT")) {
+      Map<String,Object> node = new LinkedHashMap<>();
+      node.put("type", "unary_expr");
+      node.put("operator", "NOT");
+      node.put("expr", not());
+      return node;
+    }
+    return predicate();
+  }
+
+  private Map<String,Object> predicate() {
+    Map<String,Object> left = additive();
+    SqlToken token = peek();
+    if (token.getKind() == Kind.SYMBOL && COMPARISON_OPERATORS.contains(token.getText())) {
+      position++;
+      String operator = token.getText().equals("!=") ? "<>" : token.getText();
+      return binary(operator, left, additive());
+    }
+    if (acceptKeyword("IS")) {
+      String operator = acceptKeyword("NOT") ? "IS NOT" : "IS";
+      expectKeyword("NULL");
+      return binary(operator, left, literal("null", null));
+    }
+    boolean negated = acceptKeyword("NOT");
+    String prefix = negated ? "NOT " : "";
+    if (acceptKeyword("IN")) {
+      expectSymbol("(");
+      Map<String,Object> values = exprListNode(exprList());
+      expectSymbol(")");
+      return binary(prefix + "IN", left, values);
+    } else if (acceptKeyword("BETWEEN")) {
+      List<Map<String,Object>> bounds = new ArrayList<>();
+      bounds.add(additive());
+      expectKeyword("AND");
+      bounds.add(additive());
+      return binary(prefix + "BETWEEN", left, exprListNode(bounds));
+    } else if (acceptKeyword("LIKE")) {
+      return binary(prefix + "LIKE", left, additive());
+    } else if (negated) {
+      throw unexpected("IN, BETWEEN or LIKE");
+    }
+    return left;
+  }
+
+  private Map<String,Object> additive() {
+    Map<String,Object> left = multiplicative();
+    while (peek().is(Kind.SYMBOL, "+") || peek().is(Kind.SYMBOL, "-")) {
+      String operator = tokens.get(position++).getText();
+      left = binary(operator, left, multiplicative());
+    }
+    return left;
+  }
+
+  private Map<String,Object> multiplicative() {
+    Map<String,Object> left = unary();
+    while (peek().is(Kind.SYMBOL, "*") || peek().is(Kind.SYMBOL, "/") || peek().is(Kind.SYMBOL, "%")) {
+      String operator = tokens.get(position++).getText();
+      left = binary(operator, left, unary());
+    }
+    return left;
+  }
+
+  private Map<String,Object> unary() {
+    if (acceptSymbol("-")) {
+      Map<String,Object> operand = unary();
+      if ("number".equals(operand.get("type"))) {
+        return literal("number", -(Double)operand.get("value"));
+      }
+      Map<String,Object> node = new LinkedHashMap<>();
+      node.put("type", "unary_expr");
+      node.put("operator", "-");
+      node.put("expr", operand);
+      return node;
+    }
+    return primary();
+  }
+
+  private Map<String,Object> primary() {
+    SqlToken token = peek();
+    switch (token.getKind()) {
+    case NUMBER:
+      position++;
+      return literal("number", Double.parseDouble(token.getText()));
+    case STRING:
+      position++;
+      return literal("string", token.getText());
+    case PARAMETER:
+      position++;
+      return parameter();
+    case KEYWORD:
+      if (acceptKeyword("TRUE")) {
+        return literal("bool", true);
+      } else if (acceptKeyword("FALSE")) {
+        return literal("bool", false);
+      } else if (acceptKeyword("NULL")) {
+        return literal("null", null);
+      }
+      throw unexpected("an expression");
+    case SYMBOL:
+      if (acceptSymbol("(")) {
+        Map<String,Object> inner = expr();
+        expectSymbol(")");
+        inner.put("parentheses", true);
+        return inner;
+      }
+      throw unexpected("an expression");
+    case IDENTIFIER:
+      position++;
+      if (peek().is(Kind.SYMBOL, "(")) {
+        return function(token.getText());
+      }
+      if (acceptSymbol(".")) {
+        return columnRef(token.getText(), identifier());
+      }
+      return columnRef(null, token.getText());
+    default:
+      throw unexpected("an expression");
+    }
+  }
+
+  private Map<String,Object> function(String name) {
+    expectSymbol("(");
+    String upper = name.toUpperCase(Locale.ROOT);
+    Map<String,Object> node = new LinkedHashMap<>();
+    if (AGGREGATE_FUNCTIONS.contains(upper)) {
+      Map<String,Object> args = new LinkedHashMap<>();
+      if (acceptKeyword("DISTINCT")) {
+        args.put("distinct", "DISTINCT");
+      }
+      args.put("expr", acceptSymbol("*") ? literal("star", "*") : expr());
+      // arguments after the column, e.g. the fraction of APPROX_PERCENTILE
+      if (acceptSymbol(",")) {
+        args.put("parameters", exprList());
+      }
+      node.put("type", "aggr_func");
+      node.put("name", upper);
+      node.put("args", args);
+    } else {
+      node.put("type", "function");
+      node.put("name", name);
+      node.put("args", exprListNode(peek().is(Kind.SYMBOL, ")") ? new ArrayList<>() : exprList()));
+    }
+    expectSymbol(")");
+    return node;
+  }
+
+  // parameters are numbered from 0 in the order they appear
+  private Map<String,Object> parameter() {
+    return literal("param", parameterCount++);
+  }
+
+  private static Map<String,Object> columnRef(String table, String column) {
+    Map<String,Object> node = new LinkedHashMap<>();
+    node.put("type", "column_ref");
+    node.put("table", table);
+    node.put("column", column);
+    return node;
+  }
+
+  private static Map<String,Object> binary(String operator, Map<String,Object> left, Map<String,Object> right) {
+    Map<String,Object> node = new LinkedHashMap<>();
+    node.put("type", "binary_expr");
+    node.put("operator", operator);
+    node.put("left", left);
+    node.put("right", right);
+    return node;
+  }
+
+  private static Map<String,Object> exprListNode(List<Map<String,Object>> values) {
+    Map<String,Object> node = new LinkedHashMap<>();
+    node.put("type", "expr_list");
+    node.put("value", values);
+    return node;
+  }
+
+  private static Map<String,Object> literal(String type, Object value) {
+    Map<String,Object> node = new LinkedHashMap<>();
+    node.put("type", type);
+    node.put("value", value);
+    return node;
+  }
+
+  private String identifier() {
+    SqlToken token = peek();
+    if (token.getKind() != Kind.IDENTIFIER) {
+      throw unexpected("an identifier");
+    }
+    position++;
+    return token.getText();
+  }
+
+  private SqlToken peek() {
+    return tokens.get(position);
+  }
+
+  private boolean acceptKeyword(String keyword) {
+    if (peek().is(Kind.KEYWORD, keyword)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean acceptKeywords(String first, String second) {
+    if (acceptKeyword(first)) {
+      expectKeyword(second);
+      return true;
+    }
+    return false;
+  }
+
+  private void expectKeyword(String keyword) {
+    if (!acceptKeyword(keyword)) {
+      throw unexpected(keyword);
+    }
+  }
+
+  private boolean acceptSymbol(String symbol) {
+    if (peek().is(Kind.SYMBOL, symbol)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private void expectSymbol(String symbol) {
+    if (!acceptSymbol(symbol)) {
+      throw unexpected("'" + symbol + "'");
+    }
+  }
+
+  private IllegalArgumentException unexpected(String expected) {
+    SqlToken token = peek();
+    return new IllegalArgumentException(
+        String.format("Syntax error at position %d: expected %s but found %s", token.getPosition(), expected,
+            token));
+  }
+}
@@ -0,0 +1,45 @@
+package volcano.sql.parser;
+
+/**
+ * A lexical token of a SQL statement, with the offset it starts at for error messages
+ */
+public class SqlToken {
+
+  public enum Kind {
+    IDENTIFIER, KEYWORD, NUMBER, STRING, SYMBOL, PARAMETER, EOF
+  }
+
+  private final Kind kind;
+  private final String text;
+  private final int position;
+
+  SqlToken(Kind kind, String text, int position) {
+    this.kind = kind;
+    this.text = text;
+    this.position = position;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return the identifier as written (unquoted), the upper-cased keyword, the literal's value, or the symbol
+   */
+  public String getText() {
+    return text;
+  }
+
+  public int getPosition() {
+    return position;
+  }
+
+  boolean is(Kind kind, String text) {
+    return this.kind == kind && this.text.equals(text);
+  }
+
+  @Override
+  public String toString() {
+    return kind == Kind.EOF ? "end of input" : String.format("'%s'", text);
+  }
+}
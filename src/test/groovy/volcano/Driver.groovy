@@ -7,13 +7,25 @@ import static volcano.db.Type.STRING
 
 import java.sql.Connection
 import java.sql.DriverManager
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
 import volcano.db.Database
+import volcano.db.MutableRow
 import volcano.db.Row
 import volcano.db.Table
+import volcano.db.Type
+import volcano.db.column.DictionaryEncodedVector
+import volcano.db.file.TableFile
+import volcano.db.index.IndexType
+import volcano.operator.aggregate.Accumulator
+import volcano.operator.aggregate.AggregateFn
+import volcano.operator.aggregate.HyperLogLog
+import volcano.sql.PlannerOptions
+import volcano.sql.SqlNormalizer
 
 class Driver extends Specification {
 
@@ -66,7 +78,7 @@ order  by department.name
 """
 
     expect:
-    def result = new QueryEngine(db, 'localhost').executeQuery(query)
+    def result = new QueryEngine(db).executeQuery(query)
     assert result == queryH2Database(query)
     println()
     println()
@@ -77,6 +89,343 @@ order  by department.name
     println("=========================================")
   }
 
+  def 'closing a cursor early stops parallel workers and deletes spill files'() {
+    given:
+    def data = (0..<200000).collect { new Row([it, it % 1000, 's' + it]) }
+    def bigDb = new Database([big: new Table('big', ['id', 'k', 's'], [INT, INT, STRING], data)])
+    def executor = Executors.newFixedThreadPool(4)
+    def parallel = new QueryEngine(bigDb, PlannerOptions.builder().parallelism(4).executor(executor).build())
+    def spilling = new QueryEngine(bigDb, PlannerOptions.builder().memoryBudgetBytes(65536).build())
+    def spillFiles = { new File(System.getProperty('java.io.tmpdir')).list().count { it ==~ /volcano-.*\.spill/ } }
+    def spillFilesBefore = spillFiles()
+
+    when:
+    parallel.query('select big.id from big where big.k < 900 limit 150000').withCloseable { it.next() }
+    ['select big.id, big.k from big order by big.k', 'select distinct big.s from big'].each { query ->
+      spilling.query(query).withCloseable { it.next() }
+    }
+    executor.shutdown()
+
+    then:
+    executor.awaitTermination(10, TimeUnit.SECONDS)
+    spillFiles() == spillFilesBefore
+
+    cleanup:
+    executor.shutdownNow()
+  }
+
+  def 'a cached plan is rebound to new values and replanned when they call for another access path'() {
+    given:
+    def random = new Random(11)
+    def ids = (0..<20000).toList()
+    Collections.shuffle(ids, random)
+    def data = ids.collect { new Row([it, it % 97 - 48]) }
+    def table = new Table('t', ['id', 'v'], [INT, INT], data)
+    table.createIndex('id', IndexType.SORTED)
+    def engine = new QueryEngine(new Database([t: table]))
+    populateH2Table('t', ['id', 'v'], [INT, INT], data)
+    def statement = engine.prepare('select t.id, t.v from t where t.id < ? and t.v > ? order by t.id')
+    def query = 'select t.id, t.v from t where t.id < ? and t.v > ? order by t.id'
+
+    expect:
+    statement.explain(10, 0).contains('index_scan')
+    !statement.explain(19000, 0).contains('index_scan')
+    200.times {
+      def bound = random.nextBoolean() ? random.nextInt(100) : random.nextInt(20000)
+      def threshold = random.nextInt(97) - 48
+      assert statement.execute(bound, threshold) == queryH2Database(query, [bound, threshold])
+    }
+    // the literals of these become parameters of one cached statement, with each unary minus folded into its value
+    [-48, -7, 0, 13].each { threshold ->
+      def literal = "select t.id, t.v from t where t.id < 50 and t.v > $threshold order by t.id"
+      def spaced = literal.replace('> -', '> - ')
+      assert engine.executeQuery(literal) == queryH2Database(literal)
+      assert engine.executeQuery(spaced) == queryH2Database(literal)
+    }
+    SqlNormalizer.normalize('select t.id from t where t.v > -3').text ==
+        SqlNormalizer.normalize('select t.id from t where t.v > 3').text
+    SqlNormalizer.normalize('select t.id from t where t.v > - 3').parameters() == [-3.0] as Object[]
+    SqlNormalizer.normalize('select t.id from t where t.v between -3 and -1').parameters() == [-3.0, -1.0] as Object[]
+  }
+
+  def 'selective predicates on an indexed column are looked up in the index'() {
+    given:
+    def ids = (0..<100000).toList()
+    Collections.shuffle(ids, new Random(16))
+    def data = ids.collect { new Row([it, 's' + it % 100]) }
+    def table = new Table('l', ['id', 's'], [INT, STRING], data)
+    table.createIndex('id', IndexType.SORTED)
+    def engine = new QueryEngine(new Database([l: table]))
+    populateH2Table('l', ['id', 's'], [INT, STRING], data)
+    def query = "select l.id, l.s from l where $condition order by l.id"
+
+    expect:
+    engine.explain(query).contains('index_scan') == indexed
+    engine.executeQuery(query) == queryH2Database(query)
+
+    where:
+    condition                       | indexed
+    'l.id = 5'                      | true
+    'l.id in (1, 50000, 99999)'     | true
+    'l.id between 100 and 2000'     | true
+    'l.id < 10'                     | true
+    'l.id >= 99990'                 | true
+    'l.id < 90000'                  | false
+    'l.id between 1000 and 90000'   | false
+  }
+
+  def 'range estimates follow the histogram of a skewed column'() {
+    given:
+    def random = new Random(13)
+    // exponentially distributed, so most values crowd near zero
+    def data = (0..<50000).collect { new Row([-Math.log(1 - random.nextDouble()) * 100]) }
+    def engine = new QueryEngine(new Database([t: new Table('t', ['v'], [DOUBLE], data)]))
+
+    expect:
+    def profile = engine.explainAnalyze("select t.v from t where t.v $condition")
+    Math.abs(profile.estimatedRows - profile.rows) <= 0.02 * data.size()
+
+    where:
+    condition << ['< 1', '< 10', '< 69.3', '>= 200', '> 460', 'between 10 and 20', 'between 5 and 300', '> 100000',
+                  '< -1', '= -5']
+  }
+
+  def 'a hash join over its memory budget spills, splits skewed partitions and matches H2'() {
+    given:
+    def random = new Random(5)
+    // key 0 is too common for any partition holding it to fit, however often it's split
+    def leftData = (0..<20000).collect { new Row([it, it % 50 == 0 ? 0 : 1 + random.nextInt(5000)]) }
+    def rightData = (0..<8000).collect { new Row([it, it % 80 == 0 ? 0 : 1 + random.nextInt(5000), 'r' + it]) }
+    def joinDb = new Database([
+        l: new Table('l', ['l_id', 'l_k'], [INT, INT], leftData),
+        r: new Table('r', ['r_id', 'r_k', 'r_s'], [INT, INT, STRING], rightData)])
+    populateH2Table('l', ['l_id', 'l_k'], [INT, INT], leftData)
+    populateH2Table('r', ['r_id', 'r_k', 'r_s'], [INT, INT, STRING], rightData, ['r_k'])
+    def engine = new QueryEngine(joinDb, PlannerOptions.builder().memoryBudgetBytes(budget).build())
+    def query = '''select l.l_id, r.r_id, r.r_s from l join r on l.l_k = r.r_k where l.l_id < 15000
+                   order by l.l_id, r.r_id'''
+    def spillFiles = { new File(System.getProperty('java.io.tmpdir')).list().count { it ==~ /volcano-.*\.spill/ } }
+    def spillFilesBefore = spillFiles()
+
+    expect:
+    !engine.explain(query).contains('merge_join')
+    engine.executeQuery(query) == queryH2Database(query)
+    spillFiles() == spillFilesBefore
+
+    where:
+    budget << [4096, 65536, 1 << 20, 64 << 20]
+  }
+
+  def 'an external sort merging more runs than it can open at once matches H2 and stays stable'() {
+    given:
+    def random = new Random(8)
+    def data = (0..<60000).collect {
+      new Row([it, random.nextInt(300), 's' + random.nextInt(100000), random.nextGaussian()])
+    }
+    def sortDb = new Database([t: new Table('t', ['id', 'k', 's', 'd'], [INT, INT, STRING, DOUBLE], data)])
+    populateH2Table('t', ['id', 'k', 's', 'd'], [INT, INT, STRING, DOUBLE], data)
+    def engine = new QueryEngine(sortDb, PlannerOptions.builder().memoryBudgetBytes(budget).build())
+    def spillFiles = { new File(System.getProperty('java.io.tmpdir')).list().count { it ==~ /volcano-.*\.spill/ } }
+    def spillFilesBefore = spillFiles()
+
+    expect:
+    ['select t.k, t.s, t.id from t order by t.k desc, t.s, t.id',
+     'select t.d, t.id from t where t.k < 150 order by t.d',
+     'select t.s, t.k from t order by t.s desc, t.k'].each { query ->
+      assert engine.executeQuery(query) == queryH2Database(query)
+    }
+    // rows with equal keys keep their table order
+    engine.executeQuery('select t.k, t.id from t order by t.k') ==
+        data.collect { new Row([it.getAt(1), it.getAt(0)]) }.sort { it.getAt(0) }
+    spillFiles() == spillFilesBefore
+
+    where:
+    budget << [2048, 65536, 64 << 20]
+  }
+
+  def '150 random AND/OR/NOT filters over nullable columns return the same rows as H2'() {
+    given:
+    def random = new Random(14)
+    def maybeNull = { value -> random.nextInt(5) == 0 ? null : value }
+    def tData = (0..<3000).collect {
+      new Row([it, maybeNull(random.nextInt(20)), maybeNull(random.nextInt(1000) / 100d),
+               maybeNull('x' + random.nextInt(30))])
+    }
+    def uData = (0..<300).collect { new Row([it, maybeNull(random.nextInt(20)), maybeNull(random.nextInt(10))]) }
+    def filterDb = new Database([
+        t: new Table('t', ['id', 'a', 'b', 's'], [INT, INT, DOUBLE, STRING], tData),
+        u: new Table('u', ['u_id', 'u_a', 'c'], [INT, INT, INT], uData)])
+    populateH2Table('t', ['id', 'a', 'b', 's'], [INT, INT, DOUBLE, STRING], tData, ['a'])
+    populateH2Table('u', ['u_id', 'u_a', 'c'], [INT, INT, INT], uData, ['u_a'])
+    def engine = new QueryEngine(filterDb)
+    def number = { random.nextInt(25) - 3 }
+    def atoms = [
+        { "t.a ${['=', '<>', '<', '<=', '>', '>='][random.nextInt(6)]} ${number()}" },
+        { "t.a ${random.nextBoolean() ? 'not ' : ''}in (${number()}, ${number()}, ${number()})" },
+        { "t.a ${random.nextBoolean() ? 'not ' : ''}between ${number()} and ${number()}" },
+        { "t.b ${random.nextBoolean() ? '<' : '>='} ${random.nextInt(1000) / 100d}" },
+        { "t.s ${random.nextBoolean() ? 'not ' : ''}like 'x${random.nextInt(4)}%'" },
+        { "t.s = 'x${random.nextInt(30)}'" }]
+    def joinAtoms = [{ "u.c ${['=', '<>', '<', '>'][random.nextInt(4)]} ${random.nextInt(10)}" }]
+    def condition
+    condition = { List choices, int depth ->
+      switch (depth == 0 ? 0 : random.nextInt(4)) {
+      case 0: return choices[random.nextInt(choices.size())]()
+      case 1: return "not (${condition(choices, depth - 1)})"
+      case 2: return "(${condition(choices, depth - 1)} and ${condition(choices, depth - 1)})"
+      default: return "(${condition(choices, depth - 1)} or ${condition(choices, depth - 1)})"
+      }
+    }
+
+    expect:
+    100.times {
+      def query = "select t.id, t.a, t.b, t.s from t where ${condition(atoms, 4)} order by t.id"
+      assert engine.executeQuery(query) == queryH2Database(query)
+    }
+    50.times {
+      def query = """select t.id, u.u_id from t join u on t.a = u.u_a where ${condition(atoms + joinAtoms, 3)}
+                     order by t.id, u.u_id"""
+      assert engine.executeQuery(query) == queryH2Database(query)
+    }
+  }
+
+  def 'a table written to a file reads back with the same rows, encodings, zone maps and statistics'() {
+    given:
+    def random = new Random(rowCount)
+    def names = ['sorted', 'n', 'd', 'city', 'label', 'flag', 'missing']
+    def types = [INT, INT, DOUBLE, STRING, STRING, BOOLEAN, INT]
+    // city repeats a few values, so it's dictionary-encoded; label is unique, so it's stored plain
+    def cities = ['Zürich', 'Paris', 'Kraków', 'São Paulo', '']
+    def maybeNull = { value -> random.nextInt(6) == 0 ? null : value }
+    def data = (0..<rowCount).collect {
+      new Row([it, maybeNull(random.nextInt()), maybeNull(random.nextGaussian()),
+               maybeNull(cities[random.nextInt(cities.size())]), 'label-' + it, maybeNull(random.nextBoolean()), null])
+    }
+    def table = new Table('t', names, types, data)
+    def path = tempFolder.newFile().toPath()
+
+    when:
+    TableFile.write(table, path)
+    def mapped = TableFile.open(path)
+
+    then:
+    mapped.tableName == 't'
+    mapped == table
+    (0..<names.size()).every { c ->
+      def stats = mapped.statistics.column(c)
+      def expected = table.statistics.column(c)
+      def zoneMap = mapped.zoneMap(c)
+      def expectedZoneMap = table.zoneMap(c)
+      (mapped.column(c) instanceof DictionaryEncodedVector) == (table.column(c) instanceof DictionaryEncodedVector) &&
+          stats.toString() == expected.toString() &&
+          stats.histogram?.bounds == expected.histogram?.bounds &&
+          zoneMap.blockCount() == expectedZoneMap.blockCount() &&
+          (0..<zoneMap.blockCount()).every {
+            zoneMap.getMin(it) == expectedZoneMap.getMin(it) && zoneMap.getMax(it) == expectedZoneMap.getMax(it) &&
+                zoneMap.getNullCount(it) == expectedZoneMap.getNullCount(it)
+          }
+    }
+    rowCount < 1000 || table.column(names.indexOf('city')) instanceof DictionaryEncodedVector
+    rowCount < 1000 || !(table.column(names.indexOf('label')) instanceof DictionaryEncodedVector)
+    ['select t.city, count(t.n), sum(t.d) from t group by t.city order by t.city',
+     "select t.label, t.flag from t where t.sorted between 100 and 200 or t.city = 'Kraków' order by t.label"].every {
+      def fromFile = new QueryEngine(new Database([t: mapped])).executeQuery(it)
+      fromFile == new QueryEngine(new Database([t: table])).executeQuery(it)
+    }
+
+    where:
+    rowCount << [0, 1, 5000, 70000]
+  }
+
+  def 'DISTINCT over its memory budget spills partitions and returns the same rows as H2'() {
+    given:
+    def random = new Random(22)
+    def data = (0..<50000).collect {
+      new Row([it, random.nextInt(8) == 0 ? null : random.nextInt(200), 's' + random.nextInt(100)])
+    }
+    def distinctDb = new Database([t: new Table('t', ['id', 'a', 's'], [INT, INT, STRING], data)])
+    populateH2Table('t', ['id', 'a', 's'], [INT, INT, STRING], data)
+    def engine = new QueryEngine(distinctDb, PlannerOptions.builder().memoryBudgetBytes(budget).build())
+    def spillFiles = { new File(System.getProperty('java.io.tmpdir')).list().count { it ==~ /volcano-.*\.spill/ } }
+    def spillFilesBefore = spillFiles()
+
+    expect:
+    // without an ORDER BY on the distinct columns the rows aren't sorted first, so the hashing DISTINCT runs
+    ['select distinct t.a, t.s from t', 'select distinct t.s, t.a from t where t.id < 20000 or t.a < 50',
+     'select distinct t.a from t'].each { query ->
+      assert !engine.explain(query).contains('stream_distinct')
+      assert engine.executeQuery(query)*.toString().sort() == queryH2Database(query)*.toString().sort()
+    }
+    def ordered = 'select distinct t.s, t.a from t order by t.s, t.a'
+    engine.executeQuery(ordered) == queryH2Database(ordered)
+    spillFiles() == spillFilesBefore
+
+    where:
+    budget << [1024, 16384, 64 << 20]
+  }
+
+  def 'approximate count distinct is unbiased and merges into the sketch of a single pass'() {
+    given:
+    def random = new Random(cardinality)
+    def values = (0..<cardinality * 3).collect { new Row([random.nextInt(cardinality * 2)]) }
+    def exact = values.collect { it.getAt(0) }.toSet().size()
+    def singlePass = Accumulator.create(AggregateFn.APPROX_COUNT_DISTINCT, INT, false)
+    def parts = Accumulator.create(AggregateFn.APPROX_COUNT_DISTINCT, INT, false)
+    [singlePass, parts]*.ensureCapacity(3)
+
+    when:
+    values.eachWithIndex { row, i ->
+      singlePass.add(0, row, 0)
+      parts.add(1 + i % 2, row, 0)
+    }
+    parts.merge(0, parts, 1)
+    parts.merge(0, parts, 2)
+    // relative error of 200 sketches of 10000 random hashes each
+    def errors = (0..<200).collect { seed ->
+      def sketch = new HyperLogLog()
+      def hashes = new Random(seed)
+      10000.times { sketch.add(HyperLogLog.hash(hashes.nextLong())) }
+      sketch.estimate() / 10000 - 1
+    }
+
+    then:
+    result(parts, 0, INT) == result(singlePass, 0, INT)
+    Math.abs(result(singlePass, 0, INT) - exact) <= 0.05 * exact
+    Math.abs(errors.sum() / errors.size()) < 0.002
+    Math.sqrt(errors.sum { it * it } / errors.size()) < 0.03
+
+    where:
+    cardinality << [10, 1000, 100000]
+  }
+
+  def 'approximate percentiles stay within a percent of rank and merge like a single pass'() {
+    given:
+    def random = new Random(23)
+    def values = (0..<100000).collect { new Row([random.nextGaussian() * 1000]) }
+    def sorted = values.collect { it.getDouble(0) }.sort()
+    def singlePass = Accumulator.create(AggregateFn.APPROX_PERCENTILE, DOUBLE, false, fraction)
+    def parts = Accumulator.create(AggregateFn.APPROX_PERCENTILE, DOUBLE, false, fraction)
+    [singlePass, parts]*.ensureCapacity(5)
+
+    when:
+    values.eachWithIndex { row, i ->
+      singlePass.add(0, row, 0)
+      parts.add(1 + i % 4, row, 0)
+    }
+    (1..4).each { parts.merge(0, parts, it) }
+    def rank = { double value ->
+      def position = Collections.binarySearch(sorted, value)
+      (position < 0 ? -position - 1 : position) / sorted.size()
+    }
+
+    then:
+    Math.abs(rank(result(singlePass, 0, DOUBLE)) - fraction) < 0.01
+    Math.abs(rank(result(parts, 0, DOUBLE)) - fraction) < 0.01
+
+    where:
+    fraction << [0.01, 0.25, 0.5, 0.9, 0.999]
+  }
+
   private void populateH2Database(List<Row> courseData, List<Row> departmentData) {
     Connection c
     try {
@@ -93,11 +442,36 @@ order  by department.name
     }
   }
 
-  private List<Row> queryH2Database(String query) {
+  private void populateH2Table(String name, List<String> columnNames, List<Type> columnTypes, List<Row> data,
+      List<String> indexedColumns = []) {
+    def sqlTypes = [(INT): 'int', (DOUBLE): 'double', (STRING): 'varchar', (BOOLEAN): 'boolean']
     Connection c
     try {
       c = DriverManager.getConnection("jdbc:h2:~/$tempFolder.root", "sa", "")
-      def resultSet = c.createStatement().executeQuery(query)
+      def columns = [columnNames, columnTypes].transpose().collect { n, t -> "$n ${sqlTypes[t]}" }.join(', ')
+      c.createStatement().execute("create table $name ($columns)")
+      def insert = c.prepareStatement("insert into $name values (${(['?'] * columnNames.size()).join(', ')})")
+      data.collate(1000).each { batch ->
+        batch.each { row ->
+          (0..<columnNames.size()).each { insert.setObject(it + 1, row.getAt(it)) }
+          insert.addBatch()
+        }
+        insert.executeBatch()
+      }
+      indexedColumns.each { c.createStatement().execute("create index on $name ($it)") }
+    }
+    finally {
+      c?.close()
+    }
+  }
+
+  private List<Row> queryH2Database(String query, List parameters = []) {
+    Connection c
+    try {
+      c = DriverManager.getConnection("jdbc:h2:~/$tempFolder.root", "sa", "")
+      def statement = c.prepareStatement(query)
+      parameters.eachWithIndex { value, i -> statement.setObject(i + 1, value) }
+      def resultSet = statement.executeQuery()
       def resultRows = []
       def metadata = resultSet.getMetaData()
       while (resultSet.next()) {
@@ -115,6 +489,12 @@ order  by department.name
     }
   }
 
+  private static result(Accumulator accumulator, int group, Type type) {
+    def row = new MutableRow([type])
+    accumulator.writeResult(group, row, 0)
+    row.getAt(0)
+  }
+
   private static List<Row> rows(List<List> rrs) {
     rrs.collect { it as Row }
   }